@@ -23,6 +23,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
+import fr.tpt.s3.mcdag.model.SchedulingTable;
 import fr.tpt.s3.mcdag.model.Vertex;
 import fr.tpt.s3.mcdag.model.VertexAvailability;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
@@ -66,16 +67,15 @@ public class Automata {
 	// Calculate completion time of tasks and create a new state
 	public void calcCompTimeLO (String task) {
 		int c_t = 0;
-		for (int i = 0; i < ls.getDeadline(); i++){
-			for (int j = 0; j < ls.getNbCores(); j++) {
-				if (ls.getSched()[0][i] != null && ls.getSched()[0][i][j] != null) {
-					if (ls.getSched()[0][i][j].contentEquals(task))
-						c_t = i;
-				}
-			}
-		}
-
 		Vertex n = d.getNodebyName(task);
+		SchedulingTable sched = ls.getSchedTable();
+		int id = sched.getTaskId((VertexScheduling) n);
+		
+		// Last slot of the task before the deadline
+		int last = sched.getSegments().lastSlot(0, id, ls.getDeadline());
+		if (last != -1)
+			c_t = last;
+
 		State s;
 		if (n.getWcet(1) !=  0) {
 			s = new State(nbStates++, task, VertexScheduling.HI);
@@ -112,14 +112,15 @@ public class Automata {
 	// Calculate completion time of tasks and create a new state HI mode
 	public void calcCompTimeHI (String task) {
 		int c_t = 0;
-		for (int i = 0; i < ls.getDeadline(); i++){
-			for (int j = 0; j < ls.getNbCores(); j++) {
-				if (ls.getSched()[1][i][j].contentEquals(task))
-					c_t = i;
-			}
-		}
-
 		VertexScheduling n = (VertexScheduling) d.getNodebyName(task);
+		SchedulingTable sched = ls.getSchedTable();
+		int id = sched.getTaskId(n);
+		
+		// Last slot of the task before the deadline
+		int last = sched.getSegments().lastSlot(1, id, ls.getDeadline());
+		if (last != -1)
+			c_t = last;
+
 		State s;
 		s = new State(nbStates++, task, VertexScheduling.HI);
 		s.setCompTime(c_t);
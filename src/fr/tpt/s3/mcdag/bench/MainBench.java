@@ -24,7 +24,6 @@ import java.io.PrintWriter;
 import java.io.Writer;
 import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
@@ -37,6 +36,9 @@ import org.apache.commons.cli.ParseException;
 
 import fr.tpt.s3.mcdag.bench.multidag.BenchThreadDualCriticality;
 import fr.tpt.s3.mcdag.bench.nlevel.BenchThreadNLevels;
+import fr.tpt.s3.mcdag.model.McSystem;
+import fr.tpt.s3.mcdag.parser.SystemLoader;
+import fr.tpt.s3.mcdag.scheduling.SchedulerMetrics;
 
 /**
  * These benchmarks compares us to the state of the art techniques
@@ -51,7 +53,7 @@ public class MainBench {
 		// Command line options
 		Options options = new Options();
 		
-		Option input = new Option("i", "input", true, "MC-DAG XML models");
+		Option input = new Option("i", "input", true, "MC-DAG XML or binary models, directories, globs or zip/tar archives of models");
 		input.setRequired(true);
 		input.setArgs(Option.UNLIMITED_VALUES);
 		options.addOption(input);
@@ -107,7 +109,7 @@ public class MainBench {
 		boolean boolDebug = cmd.hasOption("debug");
 		int nbLvls = Integer.parseInt(cmd.getOptionValue("levels"));
 		int nbJobs = 1;
-		int nbFiles = inputFilePath.length;
+		int nbFiles = 0;
 				
 		if (cmd.hasOption("jobs"))
 			nbJobs = Integer.parseInt(cmd.getOptionValue("jobs"));
@@ -124,18 +126,23 @@ public class MainBench {
 			
 			System.out.println(">>>>>>>>>>>>>>>>>>>>> NB levels "+nbLvls);
 			
-			int i_files2 = 0;
 			String outFile = outputFilePath.substring(0, outputFilePath.lastIndexOf('.')).concat("-schedulability.csv");
 			PrintWriter writer = new PrintWriter(outFile, "UTF-8");
-			writer.println("Thread; File; FSched (%); FPreempts; FAct; LSched (%); LPreempts; LAct; ESched (%); EPreempts; EAct; HSched(%); HPreempts; HAct; Utilization");
+			writer.println("Thread; File; FSched (%); FPreempts; FAct; LSched (%); LPreempts; LAct; ESched (%); EPreempts; EAct; HSched(%); HPreempts; HAct; Utilization; "
+					+SchedulerMetrics.csvHeader("F")+"; "+SchedulerMetrics.csvHeader("L")+"; "
+					+SchedulerMetrics.csvHeader("E")+"; "+SchedulerMetrics.csvHeader("H"));
 			writer.close();
 						
-			ExecutorService executor2 = Executors.newFixedThreadPool(nbJobs);
-			while (i_files2 != nbFiles) {
-				BenchThreadDualCriticality bt2 = new BenchThreadDualCriticality(inputFilePath[i_files2], outFile, nbCores, boolDebug);
+			// Systems are parsed while the previous ones are benchmarked
+			SystemLoader loader = new SystemLoader(inputFilePath, nbJobs, nbJobs, false);
+			ExecutorService executor2 = SystemLoader.newBoundedPool(nbJobs);
+			McSystem system;
+			loader.start();
+			while ((system = loader.take()) != null) {
+				BenchThreadDualCriticality bt2 = new BenchThreadDualCriticality(system, outFile, nbCores, boolDebug);
 				
 				executor2.execute(bt2);
-				i_files2++;
+				nbFiles++;
 			}
 			
 			executor2.shutdown();
@@ -217,20 +224,24 @@ public class MainBench {
 			wOutput.close();
 			
 		} else if (nbLvls > 2) {
-			int i_files2 = 0;
 			String outFile = outputFilePath.substring(0, outputFilePath.lastIndexOf('.')).concat("-schedulability.csv");
 			PrintWriter writer = new PrintWriter(outFile, "UTF-8");
-			writer.println("Thread; File; LSched (%); LPreempts; LAct; ESched (%); EPreempts; EAct; HSched(%); HPreempts; HAct; Utilization");
+			writer.println("Thread; File; LSched (%); LPreempts; LAct; ESched (%); EPreempts; EAct; HSched(%); HPreempts; HAct; Utilization; "
+					+SchedulerMetrics.csvHeader("L")+"; "+SchedulerMetrics.csvHeader("E")+"; "+SchedulerMetrics.csvHeader("H"));
 			writer.close();
 			
 
 			
-			ExecutorService executor2 = Executors.newFixedThreadPool(nbJobs);
-			while (i_files2 != nbFiles) {
-				BenchThreadNLevels bt2 = new BenchThreadNLevels(inputFilePath[i_files2], outFile, nbCores, boolDebug);
+			// Systems are parsed while the previous ones are benchmarked
+			SystemLoader loader = new SystemLoader(inputFilePath, nbJobs, nbJobs, false);
+			ExecutorService executor2 = SystemLoader.newBoundedPool(nbJobs);
+			McSystem system;
+			loader.start();
+			while ((system = loader.take()) != null) {
+				BenchThreadNLevels bt2 = new BenchThreadNLevels(system, outFile, nbCores, boolDebug);
 				
 				executor2.execute(bt2);
-				i_files2++;
+				nbFiles++;
 			}
 			
 			executor2.shutdown();
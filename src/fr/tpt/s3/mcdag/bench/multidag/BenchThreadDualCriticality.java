@@ -24,15 +24,16 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Set;
 
-import fr.tpt.s3.mcdag.model.Vertex;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
 import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.McSystem;
 import fr.tpt.s3.mcdag.parser.MCParser;
 import fr.tpt.s3.mcdag.scheduling.EartliestDeadlineFirstMCSched;
 import fr.tpt.s3.mcdag.scheduling.FederatedMCSched;
 import fr.tpt.s3.mcdag.scheduling.GlobalGenericMCScheduler;
 import fr.tpt.s3.mcdag.scheduling.HybridMCSched;
 import fr.tpt.s3.mcdag.scheduling.LeastLaxityFirstMCSched;
+import fr.tpt.s3.mcdag.scheduling.SchedulerMetrics;
 import fr.tpt.s3.mcdag.scheduling.SchedulingException;
 
 public class BenchThreadDualCriticality implements Runnable {
@@ -47,6 +48,10 @@ public class BenchThreadDualCriticality implements Runnable {
 	private GlobalGenericMCScheduler llf;
 	private GlobalGenericMCScheduler edf;
 	private GlobalGenericMCScheduler hybrid;
+	private SchedulerMetrics fedMetrics;
+	private SchedulerMetrics laxMetrics;
+	private SchedulerMetrics edfMetrics;
+	private SchedulerMetrics hybridMetrics;
 	
 	public int getNbCores() {
 		return nbCores;
@@ -60,6 +65,8 @@ public class BenchThreadDualCriticality implements Runnable {
 	private boolean schedLax;
 	private boolean schedEdf;
 	private boolean schedHybrid;
+	// System already read by a loader
+	private boolean loaded;
 	
 	public BenchThreadDualCriticality (String input, String output, int cores, boolean debug) {
 		setInputFile(input);
@@ -74,6 +81,21 @@ public class BenchThreadDualCriticality implements Runnable {
 		mcp = new MCParser(inputFile, null, dags, false);
 	}
 	
+	/**
+	 * Thread for a system already read
+	 * @param system
+	 * @param output
+	 * @param cores
+	 * @param debug
+	 */
+	public BenchThreadDualCriticality (McSystem system, String output, int cores, boolean debug) {
+		this(system.getName(), output, cores, debug);
+		dags.addAll(system.getDags());
+		mcp.setNbCores(system.getNbCores());
+		mcp.setNbLevels(system.getNbLevels());
+		loaded = true;
+	}
+	
 	/**
 	 * Writes the results of the thread in the text file
 	 * @throws IOException 
@@ -137,31 +159,64 @@ public class BenchThreadDualCriticality implements Runnable {
 		+outBLSched+"; "+outPreemptsLax+"; "+outActLax+"; "
 		+outBEDFSched+"; "+outPreemptsEdf+"; "+outActEdf+"; "
 		+outBHybridSched+"; "+outPreemptsHybrid+"; "+outActHybrid+"; "
-		+uDAGs+"\n");
+		+uDAGs+"; "
+		+fedMetrics.toCsv()+"; "+laxMetrics.toCsv()+"; "+edfMetrics.toCsv()+"; "+hybridMetrics.toCsv()+"\n");
 		output.close();
 	}
 	
 	/**
-	 * Internal function to reset visits on DAGs
-	 * @param sd
+	 * Metrics of a scheduler of the thread, registered as an MBean while the thread runs
+	 * @param algorithm
+	 * @return
 	 */
-	private void resetVisited (Set<McDAG> sd) {
-		for (McDAG d : sd) {
-			for (Vertex a : d.getVertices()) {
-				((VertexScheduling) a).getVisitedL()[0] = false;
-				((VertexScheduling) a).getVisitedL()[1] = false;
-			}
-		}
+	private SchedulerMetrics newMetrics (String algorithm) {
+		SchedulerMetrics ret = new SchedulerMetrics(Thread.currentThread().getName()+"-"+algorithm+"-"+getInputFile());
+		
+		ret.register();
+		return ret;
+	}
+	
+	/**
+	 * Unregisters the MBeans of the metrics created by the thread
+	 */
+	private void unregisterMetrics () {
+		if (fedMetrics != null)
+			fedMetrics.unregister();
+		if (edfMetrics != null)
+			edfMetrics.unregister();
+		if (laxMetrics != null)
+			laxMetrics.unregister();
+		if (hybridMetrics != null)
+			hybridMetrics.unregister();
 	}
 	
 	@Override
 	public void run() {
-		mcp.readXML();
+		try {
+			bench();
+		} finally {
+			unregisterMetrics();
+		}
+	}
+	
+	/**
+	 * Reads the system if needed, schedules it with every algorithm and writes the results
+	 */
+	private void bench () {
+		if (!loaded) {
+			try {
+				mcp.readXML();
+			} catch (IOException e) {
+				System.err.println("[ERROR] Unable to read the system "+getInputFile()+": "+e.getMessage());
+				return;
+			}
+		}
 		
 		// Test federated approach
-		// Make a copy of the system instance
-		Set<McDAG> fedDAGs = new HashSet<McDAG>(dags);
-		fedScheduler = new FederatedMCSched(fedDAGs, nbCores, debug);
+		// Schedulers only read the system instance, no copy is needed
+		fedScheduler = new FederatedMCSched(dags, nbCores, debug);
+		fedMetrics = newMetrics("federated");
+		fedScheduler.setMetrics(fedMetrics);
 		
 		try {
 			fedScheduler.buildAllTables();
@@ -171,12 +226,11 @@ public class BenchThreadDualCriticality implements Runnable {
 		}
 		
 		// Test edf
-		// Make another copy of the system instance
-		Set<McDAG> edfDAGs = new HashSet<McDAG>(dags);
-		edf = new EartliestDeadlineFirstMCSched(edfDAGs, nbCores, 2, debug, true);
+		edf = new EartliestDeadlineFirstMCSched(dags, nbCores, 2, debug, true);
+		edfMetrics = newMetrics("edf");
+		edf.setMetrics(edfMetrics);
 		
 		try {
-			resetVisited(edfDAGs);
 			edf.scheduleSystem();
 		} catch (SchedulingException se) {
 			setSchedEdf(false);
@@ -184,10 +238,11 @@ public class BenchThreadDualCriticality implements Runnable {
 		}
 	
 		// Test laxity
-		llf = new LeastLaxityFirstMCSched(edfDAGs, nbCores, 2, debug, true);
+		llf = new LeastLaxityFirstMCSched(dags, nbCores, 2, debug, true);
+		laxMetrics = newMetrics("laxity");
+		llf.setMetrics(laxMetrics);
 		
 		try {
-			resetVisited(edfDAGs);
 			llf.scheduleSystem();
 		} catch (SchedulingException se) {
 			setSchedLax(false);
@@ -195,10 +250,11 @@ public class BenchThreadDualCriticality implements Runnable {
 		}
 		
 		// Test hybrid
-		hybrid = new HybridMCSched(edfDAGs, nbCores, 2, debug, true);
+		hybrid = new HybridMCSched(dags, nbCores, 2, debug, true);
+		hybridMetrics = newMetrics("hybrid");
+		hybrid.setMetrics(hybridMetrics);
 		
 		try {
-			resetVisited(edfDAGs);
 			hybrid.scheduleSystem();
 		} catch (SchedulingException se) {
 			setSchedHybrid(false);
@@ -25,13 +25,14 @@ import java.util.Hashtable;
 import java.util.Set;
 
 import fr.tpt.s3.mcdag.model.McDAG;
-import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.McSystem;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
 import fr.tpt.s3.mcdag.parser.MCParser;
 import fr.tpt.s3.mcdag.scheduling.EartliestDeadlineFirstMCSched;
 import fr.tpt.s3.mcdag.scheduling.GlobalGenericMCScheduler;
 import fr.tpt.s3.mcdag.scheduling.HybridMCSched;
 import fr.tpt.s3.mcdag.scheduling.LeastLaxityFirstMCSched;
+import fr.tpt.s3.mcdag.scheduling.SchedulerMetrics;
 import fr.tpt.s3.mcdag.scheduling.SchedulingException;
 
 public class BenchThreadNLevels implements Runnable {
@@ -45,9 +46,14 @@ public class BenchThreadNLevels implements Runnable {
 	private GlobalGenericMCScheduler llf;
 	private GlobalGenericMCScheduler edf;
 	private GlobalGenericMCScheduler hybrid;
+	private SchedulerMetrics laxMetrics;
+	private SchedulerMetrics edfMetrics;
+	private SchedulerMetrics hybridMetrics;
 	private boolean schedLax;
 	private boolean schedEdf;
 	private boolean schedHybrid;
+	// System already read by a loader
+	private boolean loaded;
 	
 	public BenchThreadNLevels(String input, String output, int cores, boolean debug) {
 		setInputFile(input);
@@ -61,6 +67,21 @@ public class BenchThreadNLevels implements Runnable {
 		mcp = new MCParser(inputFile, null, dags, false);
 	}
 	
+	/**
+	 * Thread for a system already read
+	 * @param system
+	 * @param output
+	 * @param cores
+	 * @param debug
+	 */
+	public BenchThreadNLevels(McSystem system, String output, int cores, boolean debug) {
+		this(system.getName(), output, cores, debug);
+		dags.addAll(system.getDags());
+		mcp.setNbCores(system.getNbCores());
+		mcp.setNbLevels(system.getNbLevels());
+		loaded = true;
+	}
+	
 	/**
 	 * Writes the results of the thread in the text file
 	 * @throws IOException 
@@ -111,29 +132,62 @@ public class BenchThreadNLevels implements Runnable {
 		+outBLSched+"; "+outPreemptsLax+"; "+outActLax+"; "
 		+outBEDFSched+"; "+outPreemptsEdf+"; "+outActEdf+"; "
 		+outBHybridSched+"; "+outPreemptsHybrid+"; "+outActHybrid+"; "
-		+uDAGs+"\n");
+		+uDAGs+"; "
+		+laxMetrics.toCsv()+"; "+edfMetrics.toCsv()+"; "+hybridMetrics.toCsv()+"\n");
 		output.close();
 	}
 	
-	private void resetVisited (Set<McDAG> sd) {
-		for (McDAG d : sd) {
-			for (Vertex a : d.getVertices()) {
-				((VertexScheduling) a).getVisitedL()[0] = false;
-				((VertexScheduling) a).getVisitedL()[1] = false;
-			}
-		}
+	/**
+	 * Metrics of a scheduler of the thread, registered as an MBean while the thread runs
+	 * @param algorithm
+	 * @return
+	 */
+	private SchedulerMetrics newMetrics (String algorithm) {
+		SchedulerMetrics ret = new SchedulerMetrics(Thread.currentThread().getName()+"-"+algorithm+"-"+getInputFile());
+		
+		ret.register();
+		return ret;
 	}
 	
+	/**
+	 * Unregisters the MBeans of the metrics created by the thread
+	 */
+	private void unregisterMetrics () {
+		if (edfMetrics != null)
+			edfMetrics.unregister();
+		if (laxMetrics != null)
+			laxMetrics.unregister();
+		if (hybridMetrics != null)
+			hybridMetrics.unregister();
+	}
 	
 	@Override
 	public void run() {
-		mcp.readXML();
+		try {
+			bench();
+		} finally {
+			unregisterMetrics();
+		}
+	}
+	
+	/**
+	 * Reads the system if needed, schedules it with every algorithm and writes the results
+	 */
+	private void bench () {
+		if (!loaded) {
+			try {
+				mcp.readXML();
+			} catch (IOException e) {
+				System.err.println("[ERROR] Unable to read the system "+getInputFile()+": "+e.getMessage());
+				return;
+			}
+		}
 		// Test edf
-		// Make another copy of the system instance
 		edf = new EartliestDeadlineFirstMCSched(getDags(), nbCores, mcp.getNbLevels(), debug, true);
+		edfMetrics = newMetrics("edf");
+		edf.setMetrics(edfMetrics);
 		
 		try {
-			resetVisited(getDags());
 			edf.scheduleSystem();
 		} catch (SchedulingException se) {
 			setSchedEdf(false);
@@ -142,9 +196,10 @@ public class BenchThreadNLevels implements Runnable {
 	
 		// Test laxity
 		llf = new LeastLaxityFirstMCSched(getDags(), nbCores, mcp.getNbLevels(), debug, true);
+		laxMetrics = newMetrics("laxity");
+		llf.setMetrics(laxMetrics);
 		
 		try {
-			resetVisited(getDags());
 			llf.scheduleSystem();
 		} catch (SchedulingException se) {
 			setSchedLax(false);
@@ -153,9 +208,10 @@ public class BenchThreadNLevels implements Runnable {
 		
 		// Test hybrid
 		hybrid = new HybridMCSched(getDags(), nbCores, mcp.getNbLevels(), debug, true);
+		hybridMetrics = newMetrics("hybrid");
+		hybrid.setMetrics(hybridMetrics);
 		
 		try {
-			resetVisited(getDags());
 			hybrid.scheduleSystem();
 		} catch (SchedulingException se) {
 			setSchedHybrid(false);
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.bench.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import fr.tpt.s3.mcdag.model.Edge;
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.VertexAvailability;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Former reader of the MC systems building the whole document, kept to compare
+ * the streaming reader with it in the parse benchmarks
+ * @author Roberto Medina
+ *
+ */
+class DOMSystemReader {
+
+	private String inputFile;
+	private Set<McDAG> dags;
+	// Vertices read with their failure probabilities
+	private boolean availability;
+
+	private int nbCores;
+	private int nbLevels;
+
+	DOMSystemReader (String inputFile, Set<McDAG> dags, boolean availability) {
+		this.inputFile = inputFile;
+		this.dags = dags;
+		this.availability = availability;
+	}
+
+	/**
+	 * Reads the XML file for a N level MC System building the whole document
+	 * @throws IOException if the file is not a valid MC system
+	 */
+	void read () throws IOException {
+		try {
+			File iFile = new File(inputFile);
+			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+		
+			// 	Root element
+			Document doc = dBuilder.parse(iFile);
+			doc.getDocumentElement().normalize();
+			
+			// Extract number of cores
+			NodeList cList = doc.getElementsByTagName("cores");
+			Element c = (Element) cList.item(0);
+			nbCores = Integer.parseInt(c.getAttribute("number"));
+			
+			// Extract number of levels
+			NodeList lList = doc.getElementsByTagName("levels");
+			Element l = (Element) lList.item(0);
+			nbLevels = Integer.parseInt(l.getAttribute("number"));
+			
+			// Extract DAGs that constitute the system
+			NodeList eList = doc.getElementsByTagName("mcdag");
+			int count = 0;
+			
+			for (int d = 0; d < eList.getLength(); d++) {
+				Element eDag = (Element) eList.item(d);
+				McDAG dag	= new McDAG();
+				dag.setId(count);
+				dag.setDeadline(Integer.parseInt(eDag.getAttribute("deadline")));
+				dag.setLevels(nbLevels);
+				// Instantiate the DAG
+				int nb_actors = 0;
+				
+				// List of actors in the DAG
+				NodeList nList = eDag.getElementsByTagName("actor");
+				for (int i = 0; i < nList.getLength(); i++) {
+					Node n = nList.item(i);
+					if (n.getNodeType() == Node.ELEMENT_NODE) {
+						Element e = (Element) n;
+						Vertex a;
+						int[] wcets = new int[nbLevels];
+						
+						// Initialize all the WCET of a node
+						NodeList wList = e.getElementsByTagName("wcet");
+						for (int j = 0; j < nbLevels; j++) {
+							Node w = wList.item(j);
+							if (w.getNodeType() == Node.ELEMENT_NODE) {
+								Element we = (Element) w;
+								
+								wcets[Integer.parseInt(we.getAttribute("number"))] = Integer.parseInt(we.getTextContent());
+							}
+						}
+						
+						if (!availability) {
+							a = new VertexScheduling(nb_actors++, e.getAttribute("name"),nbLevels);
+							a.setWcets(wcets);
+						} else {
+							a = new VertexAvailability(nb_actors++, e.getAttribute("name"), wcets);
+							((VertexScheduling) a).setfProb(Double.parseDouble(e.getElementsByTagName("fprob").item(0).getTextContent()));
+						}
+							
+						((VertexScheduling) a).setGraphID(count);
+						((VertexScheduling) a).setGraphDead(dag.getDeadline());
+						dag.getVertices().add(a);
+					}
+				}
+					
+				// List of fault tolerance mechanisms
+				NodeList ftList = eDag.getElementsByTagName("ftm");
+				for (int i = 0; i < ftList.getLength(); i++) {
+					Node n = ftList.item(i);
+					if (n.getNodeType() == Node.ELEMENT_NODE) {
+						Element e = (Element) n;
+						
+						if (e.getAttribute("type").contains("voter")) {
+							// Initialize all the WCET of a node							
+							NodeList wList = e.getElementsByTagName("wcet");
+							int[] wcets = new int[nbLevels];
+
+							for (int j = 0; j < nbLevels; j++) {
+								Node w = wList.item(j);
+								if (w.getNodeType() == Node.ELEMENT_NODE) {
+									Element we = (Element) w;
+									
+									wcets[Integer.parseInt(we.getAttribute("number"))] = Integer.parseInt(we.getTextContent());
+								}
+							}
+							VertexAvailability a = new VertexAvailability(nb_actors++, e.getAttribute("name"), wcets);
+							a.setfMechanism(true);
+							a.setfMechType(VertexAvailability.VOTER);
+							a.setVotTask(e.getElementsByTagName("vtask").item(0).getTextContent());
+							((VertexAvailability) dag.getNodebyName(e.getElementsByTagName("vtask").item(0).getTextContent())).setVoted(true);
+							a.setNbReplicas(Integer.parseInt(e.getElementsByTagName("replicas").item(0).getTextContent()));
+							dag.getVertices().add(a);
+						} else if (e.getAttribute("type").contains("mkfirm")) {
+							VertexAvailability a = (VertexAvailability) dag.getNodebyName(e.getAttribute("name"));
+							a.setfMechanism(true);
+							a.setfMechType(VertexAvailability.MKFIRM);
+							a.setM(Integer.parseInt(e.getElementsByTagName("m").item(0).getTextContent()));
+							a.setK(Integer.parseInt(e.getElementsByTagName("k").item(0).getTextContent()));
+							a.setVoted(true);
+						} else {
+							System.err.println("[WARNING] Uknown fault tolerant mechanism.");
+						}
+					}
+				}
+				
+				// List of connections
+				NodeList ports = eDag.getElementsByTagName("ports");
+				NodeList pList = ports.item(0).getChildNodes();
+				for (int i = 0; i < pList.getLength(); i++) {
+					Node n = pList.item(i);
+					if (n.getNodeType() == Node.ELEMENT_NODE) {
+						Element e = (Element) n;
+						// Creating the edge adds it to the corresponding nodes
+						@SuppressWarnings("unused")
+						Edge ed = new Edge(dag.getNodebyName(e.getAttribute("srcActor")),
+								dag.getNodebyName(e.getAttribute("dstActor")));
+					}
+				}
+				// dag.sanityChecks();
+				dags.add(dag);
+				count++;
+			}
+			
+		} catch (Exception e) {
+			// Missing elements end as null pointers or bad casts, the file is rejected
+			throw new IOException("Unable to read "+inputFile+": "+e, e);
+		}
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	int getNbCores() {
+		return nbCores;
+	}
+
+	int getNbLevels() {
+		return nbLevels;
+	}
+}
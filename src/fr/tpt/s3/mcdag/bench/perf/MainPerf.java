@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.bench.perf;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Performance benchmarks of the scheduling engines, the parser and the counters.
+ * Measures the time taken by each operation on the case studies given as input
+ * and on systems generated with a fixed seed for each combination of the parameters.
+ * @author Roberto Medina
+ *
+ */
+public class MainPerf {
+
+	/**
+	 * Values of an option separated by commas
+	 * @param cmd
+	 * @param opt
+	 * @return null if the option is not given
+	 */
+	private static String[] values (CommandLine cmd, String opt) {
+		return cmd.hasOption(opt) ? cmd.getOptionValue(opt).split(",") : null;
+	}
+
+	private static int[] ints (CommandLine cmd, String opt, int def) {
+		String values[] = values(cmd, opt);
+
+		if (values == null)
+			return new int[] {def};
+
+		int ret[] = new int[values.length];
+		for (int i = 0; i < values.length; i++)
+			ret[i] = Integer.parseInt(values[i]);
+		return ret;
+	}
+
+	private static double[] doubles (CommandLine cmd, String opt, double def) {
+		String values[] = values(cmd, opt);
+
+		if (values == null)
+			return new double[] {def};
+
+		double ret[] = new double[values.length];
+		for (int i = 0; i < values.length; i++)
+			ret[i] = Double.parseDouble(values[i]);
+		return ret;
+	}
+
+	private static Option listOption (String opt, String longOpt, String description) {
+		Option ret = new Option(opt, longOpt, true, description+" Values are separated by commas.");
+
+		ret.setRequired(false);
+		return ret;
+	}
+
+	public static void main (String[] args) throws IOException {
+
+		// Command line options
+		Options options = new Options();
+
+		Option inputOpt = new Option("i", "input", true, "MC-DAG XML or binary models, the cores of the models are used.");
+		inputOpt.setRequired(false);
+		inputOpt.setArgs(Option.UNLIMITED_VALUES);
+		options.addOption(inputOpt);
+		options.addOption(listOption("nt", "nb_tasks", "Number of vertices of the generated systems."));
+		options.addOption(listOption("nd", "num_dags", "Number of DAGs of the generated systems."));
+		options.addOption(listOption("l", "levels", "Number of criticality levels of the generated systems."));
+		options.addOption(listOption("e", "eprobability", "Probability of edges (%) of the generated systems."));
+		options.addOption(listOption("c", "cores", "Cores given to the generated systems."));
+		options.addOption(listOption("b", "benchmarks", "Benchmarks to run: parse, parse-dom, edf, llf, hybrid, federated, single, preemptions."));
+
+		Option uOpt = new Option("u", "utilization", true, "Utilization of the generated systems per core (default 0.5).");
+		uOpt.setRequired(false);
+		options.addOption(uOpt);
+
+		Option seedOpt = new Option("s", "seed", true, "Seed of the generator (default 42).");
+		seedOpt.setRequired(false);
+		options.addOption(seedOpt);
+
+		Option genOpt = new Option("g", "genned", true, "Folder where the generated systems are kept, they are drawn again by default.");
+		genOpt.setRequired(false);
+		options.addOption(genOpt);
+
+		Option warmupOpt = new Option("w", "warmup", true, "Warmup iterations (default 10).");
+		warmupOpt.setRequired(false);
+		options.addOption(warmupOpt);
+
+		Option iterOpt = new Option("r", "iterations", true, "Measured iterations (default 30).");
+		iterOpt.setRequired(false);
+		options.addOption(iterOpt);
+
+		Option output = new Option("o", "output", true, "CSV file where results are written, standard output by default.");
+		output.setRequired(false);
+		options.addOption(output);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd;
+
+		try {
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			formatter.printHelp("Performance benchmarks", options);
+			System.exit(1);
+			return;
+		}
+
+		int seed = Integer.parseInt(cmd.getOptionValue("seed", "42"));
+		double uPerCore = Double.parseDouble(cmd.getOptionValue("utilization", "0.5"));
+		String genDir = cmd.getOptionValue("genned");
+		PerfRunner runner = new PerfRunner(Integer.parseInt(cmd.getOptionValue("warmup", "10")),
+										   Integer.parseInt(cmd.getOptionValue("iterations", "30")));
+
+		// Case studies, then generated systems when one of their parameters is given
+		List<PerfInput> inputs = new ArrayList<PerfInput>();
+		if (cmd.hasOption("input")) {
+			for (String file : cmd.getOptionValues("input")) {
+				try {
+					inputs.add(new PerfInput(file));
+				} catch (IOException e) {
+					System.err.println("[ERROR] Unable to read the system "+file+": "+e.getMessage());
+				}
+			}
+		}
+
+		if (cmd.hasOption("nb_tasks") || cmd.hasOption("num_dags") || cmd.hasOption("levels")
+				|| cmd.hasOption("eprobability") || cmd.hasOption("cores") || !cmd.hasOption("input")) {
+			for (int nbTasks : ints(cmd, "nb_tasks", 20)) {
+				for (int nbDAGs : ints(cmd, "num_dags", 2)) {
+					for (int levels : ints(cmd, "levels", 2)) {
+						for (double eProb : doubles(cmd, "eprobability", 20)) {
+							for (int cores : ints(cmd, "cores", 4))
+								inputs.add(PerfInput.generate(genDir, nbTasks, nbDAGs, levels, eProb, cores, uPerCore * cores, seed));
+						}
+					}
+				}
+			}
+		}
+
+		List<PerfBenchmark> benchmarks = PerfBenchmark.all();
+		if (cmd.hasOption("benchmarks")) {
+			List<String> names = Arrays.asList(values(cmd, "benchmarks"));
+			List<PerfBenchmark> selected = new ArrayList<PerfBenchmark>();
+
+			for (PerfBenchmark b : benchmarks) {
+				if (names.contains(b.getName()))
+					selected.add(b);
+			}
+			benchmarks = selected;
+		}
+
+		PrintWriter out = cmd.hasOption("output") ? new PrintWriter(cmd.getOptionValue("output"), "UTF-8")
+												  : new PrintWriter(System.out, true);
+		out.println(PerfRunner.CSV_HEADER);
+		for (PerfInput input : inputs) {
+			for (PerfBenchmark b : benchmarks) {
+				String line = runner.measure(b, input);
+
+				if (line != null) {
+					out.println(line);
+					out.flush();
+				}
+			}
+		}
+		if (cmd.hasOption("output"))
+			out.close();
+
+		System.err.println("[PERF Main] Done "+inputs.size()+" input(s), "+benchmarks.size()+" benchmark(s)");
+	}
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.bench.perf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+import fr.tpt.s3.mcdag.parser.MCParser;
+import fr.tpt.s3.mcdag.scheduling.EartliestDeadlineFirstMCSched;
+import fr.tpt.s3.mcdag.scheduling.FederatedMCSched;
+import fr.tpt.s3.mcdag.scheduling.GlobalGenericMCScheduler;
+import fr.tpt.s3.mcdag.scheduling.HybridMCSched;
+import fr.tpt.s3.mcdag.scheduling.LeastLaxityFirstMCSched;
+import fr.tpt.s3.mcdag.scheduling.SchedulingException;
+import fr.tpt.s3.mcdag.scheduling.SingleDAG;
+import fr.tpt.s3.mcdag.util.Counters;
+
+/**
+ * Operation measured by the performance benchmarks. The system is read once by setup,
+ * each call to run measures one operation on it.
+ * @author Roberto Medina
+ *
+ */
+public abstract class PerfBenchmark {
+
+	private String name;
+
+	// System of the input set up
+	protected PerfInput input;
+	protected Set<McDAG> dags;
+
+	public PerfBenchmark (String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Tells if the operation can be measured on an input
+	 * @param input
+	 * @return
+	 */
+	public boolean applies (PerfInput input) {
+		return true;
+	}
+
+	/**
+	 * Reads the system of the input, called before the warmup
+	 * @param input
+	 * @return false if the operation can not be measured on the input
+	 */
+	public boolean setup (PerfInput input) {
+		this.input = input;
+		try {
+			this.dags = input.load();
+		} catch (IOException e) {
+			System.err.println("[ERROR] Unable to read the system "+input.getFile()+": "+e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the operation once
+	 * @return a value depending on the result, consumed by the runner
+	 * @throws SchedulingException when the system is not schedulable, the run is still measured
+	 * @throws IOException when the system can not be read, the run is still measured
+	 */
+	public abstract long run () throws SchedulingException, IOException;
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * All the benchmarks, in the order in which they are run
+	 * @return
+	 */
+	public static List<PerfBenchmark> all () {
+		List<PerfBenchmark> ret = new ArrayList<PerfBenchmark>();
+
+		ret.add(new Parse(false));
+		ret.add(new Parse(true));
+		ret.add(new Global("edf"));
+		ret.add(new Global("llf"));
+		ret.add(new Global("hybrid"));
+		ret.add(new Federated());
+		ret.add(new Single());
+		ret.add(new Preemptions());
+		return ret;
+	}
+
+	/**
+	 * Reading of the XML model, streamed or through the whole document
+	 */
+	public static class Parse extends PerfBenchmark {
+
+		private boolean dom;
+
+		public Parse (boolean dom) {
+			super(dom ? "parse-dom" : "parse");
+			this.dom = dom;
+		}
+
+		@Override
+		public long run () throws IOException {
+			Set<McDAG> read = new HashSet<McDAG>();
+
+			if (dom)
+				new DOMSystemReader(input.getFile(), read, false).read();
+			else
+				new MCParser(input.getFile(), null, read, false).readXML();
+			return read.size();
+		}
+	}
+
+	/**
+	 * Construction of the tables of all the levels by a global scheduler
+	 */
+	public static class Global extends PerfBenchmark {
+
+		public Global (String algorithm) {
+			super(algorithm);
+		}
+
+		/**
+		 * Creates the scheduler of the benchmark, preemptions are not counted
+		 * @param name
+		 * @param dags
+		 * @param input
+		 * @return
+		 */
+		static GlobalGenericMCScheduler newScheduler (String name, Set<McDAG> dags, PerfInput input) {
+			if (name.equals("edf"))
+				return new EartliestDeadlineFirstMCSched(dags, input.getNbCores(), input.getNbLevels(), false, false);
+			else if (name.equals("llf"))
+				return new LeastLaxityFirstMCSched(dags, input.getNbCores(), input.getNbLevels(), false, false);
+			return new HybridMCSched(dags, input.getNbCores(), input.getNbLevels(), false, false);
+		}
+
+		@Override
+		public long run () throws SchedulingException {
+			GlobalGenericMCScheduler sched = newScheduler(getName(), dags, input);
+
+			sched.scheduleSystem();
+			return sched.getSchedTable().get(0, 0, 0);
+		}
+	}
+
+	/**
+	 * Construction of the tables by the federated scheduler, dual-criticality only
+	 */
+	public static class Federated extends PerfBenchmark {
+
+		public Federated () {
+			super("federated");
+		}
+
+		@Override
+		public boolean applies (PerfInput input) {
+			return input.getNbLevels() == 2;
+		}
+
+		@Override
+		public long run () throws SchedulingException {
+			FederatedMCSched sched = new FederatedMCSched(dags, input.getNbCores(), false);
+
+			sched.buildAllTables();
+			return sched.getActivations();
+		}
+	}
+
+	/**
+	 * List scheduling of each DAG of the system on its own, dual-criticality only
+	 */
+	public static class Single extends PerfBenchmark {
+
+		public Single () {
+			super("single");
+		}
+
+		@Override
+		public boolean applies (PerfInput input) {
+			return input.getNbLevels() == 2;
+		}
+
+		@Override
+		public long run () throws SchedulingException {
+			long ret = 0;
+
+			for (McDAG d : dags) {
+				SingleDAG sched = new SingleDAG(d, input.getNbCores());
+
+				sched.buildAllTables();
+				ret += sched.getSchedTable().get(0, 0, 0);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Counting of the preemptions on the tables of the first global scheduler
+	 * that schedules the system
+	 */
+	public static class Preemptions extends PerfBenchmark {
+
+		private GlobalGenericMCScheduler sched;
+		private Hashtable<VertexScheduling, Integer> preemptions;
+
+		public Preemptions () {
+			super("preemptions");
+		}
+
+		@Override
+		public boolean setup (PerfInput input) {
+			super.setup(input);
+			preemptions = new Hashtable<VertexScheduling, Integer>();
+
+			for (String algorithm : new String[] {"edf", "llf", "hybrid"}) {
+				sched = Global.newScheduler(algorithm, dags, input);
+				try {
+					sched.scheduleSystem();
+					return true;
+				} catch (SchedulingException se) {
+					sched = null;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public long run () {
+			for (McDAG d : dags) {
+				for (Vertex v : d.getVertices())
+					preemptions.put((VertexScheduling) v, 0);
+			}
+			Counters.countPreemptions(sched.getSchedTable(), preemptions, sched.getLevels(), sched.gethPeriod(), sched.getNbCores());
+			return preemptions.size();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.bench.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import fr.tpt.s3.mcdag.generator.GeneratorThread;
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.parser.MCParser;
+import fr.tpt.s3.mcdag.util.RandomNumberGenerator;
+
+/**
+ * System given to the performance benchmarks: a case study or a system
+ * drawn by the generator with a fixed seed
+ * @author Roberto Medina
+ *
+ */
+public class PerfInput {
+
+	private String name;
+	private String file;
+	private int nbCores;
+	private int nbLevels;
+
+	/**
+	 * Input read from an XML file, cores and levels are the ones of the model
+	 * @param file
+	 * @throws IOException if the file is not a valid MC system
+	 */
+	public PerfInput (String file) throws IOException {
+		this(new File(file).getName(), file, 0);
+	}
+
+	/**
+	 * Input read from an XML file
+	 * @param name
+	 * @param file
+	 * @param cores number of cores given to the schedulers, 0 to keep the cores of the model
+	 * @throws IOException if the file is not a valid MC system
+	 */
+	public PerfInput (String name, String file, int cores) throws IOException {
+		setName(name);
+		setFile(file);
+
+		MCParser mcp = new MCParser(file, null, new HashSet<McDAG>(), false);
+		mcp.readXML();
+		setNbLevels(mcp.getNbLevels());
+		setNbCores(cores == 0 ? mcp.getNbCores() : cores);
+	}
+
+	/**
+	 * Input drawn by the generator. The seed fixes the system drawn, it is written
+	 * in a temporary file or kept in a directory to be read again by the following runs.
+	 * @param dir directory where generated systems are kept, null to draw the system again
+	 * @param nbTasks
+	 * @param nbDAGs
+	 * @param levels
+	 * @param eProb edge probability in %
+	 * @param cores
+	 * @param utilization
+	 * @param seed
+	 * @return
+	 * @throws IOException
+	 */
+	public static PerfInput generate (String dir, int nbTasks, int nbDAGs, int levels,
+									  double eProb, int cores, double utilization, int seed) throws IOException {
+		String name = "gen-t"+nbTasks+"-d"+nbDAGs+"-l"+levels+"-e"+eProb+"-u"+utilization+"-s"+seed;
+		File file;
+
+		if (dir == null) {
+			file = File.createTempFile(name+"-", ".xml");
+			file.deleteOnExit();
+		} else {
+			file = new File(dir, name+".xml");
+		}
+
+		if (dir == null || !file.exists()) {
+			GeneratorThread gt = new GeneratorThread(utilization, nbTasks, eProb, levels, 1,
+													 nbDAGs, 2.0, file.getPath(), false, false);
+
+			file.getAbsoluteFile().getParentFile().mkdirs();
+			gt.getUg().setRng(new RandomNumberGenerator(seed));
+			gt.run();
+		}
+
+		return new PerfInput(name+"-c"+cores, file.getPath(), cores);
+	}
+
+	/**
+	 * Reads a new instance of the system
+	 * @return
+	 * @throws IOException
+	 */
+	public Set<McDAG> load () throws IOException {
+		Set<McDAG> ret = new HashSet<McDAG>();
+		MCParser mcp = new MCParser(file, null, ret, false);
+
+		mcp.readXML();
+		return ret;
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getFile() {
+		return file;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public void setNbCores(int nbCores) {
+		this.nbCores = nbCores;
+	}
+
+	public int getNbLevels() {
+		return nbLevels;
+	}
+
+	public void setNbLevels(int nbLevels) {
+		this.nbLevels = nbLevels;
+	}
+}
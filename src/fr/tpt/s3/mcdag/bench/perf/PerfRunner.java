@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.bench.perf;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import fr.tpt.s3.mcdag.scheduling.SchedulingException;
+
+/**
+ * Measures a benchmark on an input: warmup iterations are run first so the hot
+ * paths are compiled, then each measured iteration is timed on its own.
+ * @author Roberto Medina
+ *
+ */
+public class PerfRunner {
+
+	public static final String CSV_HEADER = "Benchmark; Input; Levels; Cores; Iterations; Failures; MeanUs; StdDevUs; MinUs; MedianUs; MaxUs";
+
+	private int warmup;
+	private int iterations;
+
+	// Results of the operations are consumed here so they are not optimized away
+	private static volatile long sink;
+
+	public PerfRunner (int warmup, int iterations) {
+		this.warmup = warmup;
+		this.iterations = iterations;
+	}
+
+	/**
+	 * Runs the operation once, a failure to schedule or to read is a measured result
+	 * @param bench
+	 * @return true if the operation failed
+	 */
+	private static boolean runOnce (PerfBenchmark bench) {
+		try {
+			sink += bench.run();
+			return false;
+		} catch (SchedulingException se) {
+			return true;
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Measures a benchmark on an input
+	 * @param bench
+	 * @param input
+	 * @return the CSV line of the results, null if the benchmark does not apply to the input
+	 */
+	public String measure (PerfBenchmark bench, PerfInput input) {
+		if (!bench.applies(input) || !bench.setup(input))
+			return null;
+
+		for (int i = 0; i < warmup; i++)
+			runOnce(bench);
+
+		long times[] = new long[iterations];
+		int failures = 0;
+
+		for (int i = 0; i < iterations; i++) {
+			long start = System.nanoTime();
+
+			if (runOnce(bench))
+				failures++;
+			times[i] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(times);
+		double mean = 0;
+		for (long t : times)
+			mean += t;
+		mean /= iterations;
+
+		double var = 0;
+		for (long t : times)
+			var += (t - mean) * (t - mean);
+		double stdDev = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+
+		return bench.getName()+"; "+input.getName()+"; "+input.getNbLevels()+"; "+input.getNbCores()+"; "
+				+iterations+"; "+failures+"; "+us(mean)+"; "+us(stdDev)+"; "+us(times[0])+"; "
+				+us(times[iterations / 2])+"; "+us(times[iterations - 1]);
+	}
+
+	private static double us (double ns) {
+		return Math.round(ns / 10) / 100.0;
+	}
+
+	public int getWarmup() {
+		return warmup;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+}
@@ -26,6 +26,8 @@ public class GeneratorThread implements Runnable{
 	private MCParser mcp;
 	private boolean graphBool;
 	private boolean debug;
+	// Systems written in the binary format
+	private boolean binary;
 	
 	public GeneratorThread (double maxU, int nbTasks, double eProb, int levels,
 			int pDegree, int nbDags, double rfactor, String outFile, boolean graphBool, boolean debug) {
@@ -45,13 +47,16 @@ public class GeneratorThread implements Runnable{
 		// Write the file
 		try {
 			mcp.setNbLevels(ug.getNbLevels());
-			mcp.writeGennedDAG();
+			if (isBinary())
+				mcp.writeGennedBinary();
+			else
+				mcp.writeGennedDAG();
 			if (isGraphBool()) {
 				mcp.setOutDotFile(mcp.getOutGenFile().concat(".dot"));
 				mcp.writeDot();
 			}
 		} catch (IOException e) {
-			System.err.println("[ERROR] Failed to write the XML file in the generator " + e.getMessage());
+			System.err.println("[ERROR] Failed to write the file in the generator " + e.getMessage());
 			System.exit(1);
 			return;
 		}
@@ -91,4 +96,12 @@ public class GeneratorThread implements Runnable{
 	public void setGraphBool(boolean graphBool) {
 		this.graphBool = graphBool;
 	}
+
+	public boolean isBinary() {
+		return binary;
+	}
+
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
 }
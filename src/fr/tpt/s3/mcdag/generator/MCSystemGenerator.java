@@ -17,7 +17,7 @@
 package fr.tpt.s3.mcdag.generator;
 
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -29,7 +29,7 @@ import fr.tpt.s3.mcdag.util.RandomNumberGenerator;
 
 public class MCSystemGenerator {
 
-	// Set of generated graphs
+	// Set of generated graphs, in generation order
 	protected Set<McDAG> gennedDAGs;
 	protected int nbDAGs;
 	
@@ -59,7 +59,7 @@ public class MCSystemGenerator {
 		setDebug(debug);
 		setRfactor(rfactor);
 		rng = new RandomNumberGenerator();
-		gennedDAGs = new HashSet<>();
+		gennedDAGs = new LinkedHashSet<>();
 	}
 	
 	/**
@@ -151,7 +151,8 @@ public class MCSystemGenerator {
 	protected void GenerateGraph(double utilization) {
 		int id = 0;
 		McDAG d = new McDAG();
-		Set<Vertex> nodes = new HashSet<Vertex>();
+		// Vertices are iterated by id so that a seed always draws the same graph
+		Set<Vertex> nodes = new LinkedHashSet<Vertex>();
 		int rank;
 		int prevRank;
 		
@@ -216,14 +217,14 @@ public class MCSystemGenerator {
 					
 					// Transform uSet to budget
 					if ((tasks[i] - tasksToGen) < tasks[i])
-						n.getWcets()[i] = (int) Math.ceil((rDead * uSet[tasks[i] - tasksToGen]));
+						n.setWcet(i, (int) Math.ceil((rDead * uSet[tasks[i] - tasksToGen])));
 					else
-						n.getWcets()[i] = budgets[i];
+						n.setWcet(i, budgets[i]);
 		
 					if (budgets[i] - n.getWcet(i) > 0) {
 						budgets[i] -= n.getWcet(i);
 					} else {
-						n.getWcets()[i] = budgets[i];
+						n.setWcet(i, budgets[i]);
 						budgets[i] = 0;
 					}
 					
@@ -255,7 +256,7 @@ public class MCSystemGenerator {
 					// Set the Ci for inferior levels
 					if (i >= 1) {
 						for (int x = i - 1; x >= 0; x--)
-							n.getWcets()[x] = n.getWcet(i);
+							n.setWcet(x, n.getWcet(i));
 					}
 					nodes.add(n);
 					tasksToGen--;
@@ -282,9 +283,9 @@ public class MCSystemGenerator {
 					int idx = getRng().randomUnifInt(0, nodes.size() - 1);
 					VertexScheduling n = (VertexScheduling) randomObjectIdxSet(nodes, idx);
 						
-					n.getWcets()[i - 1] = rng.randomUnifInt(1, n.getWcet(i));
+					n.setWcet(i - 1, rng.randomUnifInt(1, n.getWcet(i)));
 					for (int x = i - 1; x >= 0; x--)
-						n.getWcets()[x] = n.getWcets()[i - 1];
+						n.setWcet(x, n.getWcets()[i - 1]);
 								
 					actualBudget -= n.getWcet(i - 1);
 					if (actualBudget < 0)
@@ -414,13 +415,7 @@ public class MCSystemGenerator {
 			while (ita.hasNext()) {
 				Vertex a = ita.next();
 				if (nilValuesInAllModes(a)) {
-					for (Edge e : a.getRcvEdges())
-						e.getSrc().getSndEdges().remove(e);
-					for (Edge e : a.getSndEdges())
-						e.getDest().getRcvEdges().remove(e);
-						
-					a.getRcvEdges().clear();
-					a.getSndEdges().clear();
+					a.removeEdges();
 					ita.remove();
 				}
 			}
@@ -1,6 +1,6 @@
 package fr.tpt.s3.mcdag.generator;
 
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -25,7 +25,8 @@ public class MCSystemGeneratorDev extends MCSystemGenerator{
 		protected void GenerateGraph(double utilization) {
 			int id = 0;
 			McDAG d = new McDAG();
-			Set<Vertex> nodes = new HashSet<Vertex>();
+			// Vertices are iterated by id so that a seed always draws the same graph
+			Set<Vertex> nodes = new LinkedHashSet<Vertex>();
 			int rank;
 			int prevRank;
 			
@@ -81,7 +82,7 @@ public class MCSystemGeneratorDev extends MCSystemGenerator{
 						VertexScheduling n = new VertexScheduling(id, Integer.toString(id), nbLevels);
 						
 						// Transform uSet to budget
-						n.getWcets()[i] = taskBudets[tasksToGen - 1];						
+						n.setWcet(i, taskBudets[tasksToGen - 1]);						
 						n.setRank(rank);
 						// Not a source node
 						if (rank != 0) {
@@ -110,7 +111,7 @@ public class MCSystemGeneratorDev extends MCSystemGenerator{
 						// Set the Ci for inferior levels
 						if (i >= 1) {
 							for (int x = i - 1; x >= 0; x--)
-								n.getWcets()[x] = n.getWcet(i);
+								n.setWcet(x, n.getWcet(i));
 						}
 						nodes.add(n);
 						tasksToGen--;
@@ -138,9 +139,9 @@ public class MCSystemGeneratorDev extends MCSystemGenerator{
 						int idx = getRng().randomUnifInt(0, nodes.size() - 1);
 						VertexScheduling n = (VertexScheduling) randomObjectIdxSet(nodes, idx);
 							
-						n.getWcets()[i - 1] = rng.randomUnifInt(1, n.getWcet(i));
+						n.setWcet(i - 1, rng.randomUnifInt(1, n.getWcet(i)));
 						for (int x = i - 1; x >= 0; x--)
-							n.getWcets()[x] = n.getWcets()[i - 1];
+							n.setWcet(x, n.getWcets()[i - 1]);
 									
 						actualBudget -= n.getWcet(i - 1);
 						if (actualBudget < 0)
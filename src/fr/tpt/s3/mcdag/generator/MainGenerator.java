@@ -18,6 +18,8 @@ package fr.tpt.s3.mcdag.generator;
 
 import org.apache.commons.cli.*;
 
+import fr.tpt.s3.mcdag.parser.MCSystemBinary;
+
 /**
  * Main for the Graph generator interface
  * @author Roberto Medina
@@ -83,6 +85,10 @@ public class MainGenerator {
 		jobsOpt.setRequired(false);
 		options.addOption(jobsOpt);
 		
+		Option binaryOpt = new Option("b", "binary", false, "Write the systems in the binary format");
+		binaryOpt.setRequired(false);
+		options.addOption(binaryOpt);
+		
 		CommandLineParser parser = new DefaultParser();
 		HelpFormatter formatter = new HelpFormatter();
 		CommandLine cmd;
@@ -107,6 +113,8 @@ public class MainGenerator {
 		boolean graph = cmd.hasOption("graphviz");	
 		boolean debug = cmd.hasOption("debug");	
 		String output = cmd.getOptionValue("output");
+		boolean binary = cmd.hasOption("binary");
+		String extension = binary ? MCSystemBinary.EXTENSION : ".xml";
 		int nbJobs = 1;
 		if (cmd.hasOption("jobs"))
 			nbJobs = Integer.parseInt(cmd.getOptionValue("jobs"));
@@ -131,9 +139,10 @@ public class MainGenerator {
 			int launched = 0;
 			
 			for (int i = 0; i < nbJobs && count < nbFiles; i++) {
-				String outFile = output.substring(0, output.lastIndexOf('.')).concat("-"+count+".xml");
+				String outFile = output.substring(0, output.lastIndexOf('.')).concat("-"+count+extension);
 				GeneratorThread gt = new GeneratorThread(maxU, nbTasks, edgeProb,
 									levels, para, nbDags, rfactor, outFile, graph, debug);
+				gt.setBinary(binary);
 				threads[i] = new Thread(gt);
 				threads[i].setName("GeneratorThread-"+i);
 				launched++;
@@ -37,6 +37,8 @@ public class Edge {
 		this.setDest(d);
 		s.getSndEdges().add(this);
 		d.getRcvEdges().add(this);
+		s.modified();
+		d.modified();
 	}
 
 	/*
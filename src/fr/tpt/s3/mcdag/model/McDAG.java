@@ -16,6 +16,7 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.model;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -28,17 +29,25 @@ import java.util.Set;
 public class McDAG {
 	
 	private int id;
-	private Set<Vertex> nodes;
-	private Set<Vertex> nodesHI;
+	// Vertices indexed by id and name
+	private VertexSet nodes;
+	private VertexSet nodesHI;
 	private Set<Vertex> loOuts;
 	private Set<Vertex> Outs;
 	private int critPath;
 	private int deadline;
 	private int levels;
 	
+	// Results cached until WCETs, edges or vertices change,
+	// shared read-only by the schedulers analysing the DAG
+	private Vertex topologicalOrder[];
+	private int lfts[][];
+	private long cacheStamp;
+	private int cacheSize;
+	
 	public McDAG() {
-		nodes = new HashSet<Vertex>();
-		nodesHI = new HashSet<Vertex>();
+		nodes = new VertexSet();
+		nodesHI = new VertexSet();
 		setLoOuts(new HashSet<Vertex>());
 	}
 	
@@ -59,6 +68,126 @@ public class McDAG {
 		return cp;
 	}
 	
+	/**
+	 * Checks that the cached results were computed on the current DAG,
+	 * clears them otherwise
+	 */
+	private void checkCache () {
+		boolean valid = nodes.size() == cacheSize;
+		
+		for (Vertex v : nodes) {
+			if (!valid)
+				break;
+			valid = v.getVersion() <= cacheStamp;
+		}
+		
+		if (!valid) {
+			topologicalOrder = null;
+			lfts = null;
+			cacheStamp = Vertex.lastModification();
+			cacheSize = nodes.size();
+		}
+	}
+	
+	/**
+	 * Size of the arrays indexed by vertex ids
+	 * @return
+	 */
+	private int idRange () {
+		int ret = 0;
+		
+		for (Vertex v : nodes) {
+			if (v.getId() + 1 > ret)
+				ret = v.getId() + 1;
+		}
+		return ret;
+	}
+	
+	/**
+	 * Returns the vertices of the DAG in a topological order
+	 * @return
+	 */
+	public synchronized Vertex[] getTopologicalOrder () {
+		checkCache();
+		
+		if (topologicalOrder == null) {
+			int inDegree[] = new int[idRange()];
+			Vertex order[] = new Vertex[nodes.size()];
+			int head = 0, tail = 0;
+			
+			for (Vertex v : nodes) {
+				inDegree[v.getId()] = v.getRcvEdges().size();
+				if (inDegree[v.getId()] == 0)
+					order[tail++] = v;
+			}
+			
+			while (head < tail) {
+				Vertex v = order[head++];
+				
+				for (Edge e : v.getSndEdges()) {
+					if (--inDegree[e.getDest().getId()] == 0)
+						order[tail++] = e.getDest();
+				}
+			}
+			// Vertices in a cycle are left out
+			topologicalOrder = tail == order.length ? order : Arrays.copyOf(order, tail);
+		}
+		return topologicalOrder;
+	}
+	
+	/**
+	 * Returns the latest finish times of the vertices in all levels, indexed by level and
+	 * vertex id. In the lower criticality mode they are computed on the DAG, in HI modes on
+	 * its dual. Vertices not executed in a level keep Integer.MAX_VALUE.
+	 * @param nbLevels
+	 * @return
+	 */
+	public synchronized int[][] getLFTs (int nbLevels) {
+		Vertex order[] = getTopologicalOrder();
+		
+		if (lfts != null && lfts.length == nbLevels)
+			return lfts;
+		
+		int ret[][] = new int[nbLevels][idRange()];
+		for (int i = 0; i < nbLevels; i++)
+			Arrays.fill(ret[i], Integer.MAX_VALUE);
+		
+		// Successors have their value before their predecessors
+		for (int j = order.length - 1; j >= 0; j--) {
+			Vertex v = order[j];
+			
+			if (v.isSinkinL(0)) {
+				ret[0][v.getId()] = deadline;
+			} else {
+				for (Edge e : v.getSndEdges()) {
+					int test = ret[0][e.getDest().getId()] - e.getDest().getWcet(0);
+					if (test < ret[0][v.getId()])
+						ret[0][v.getId()] = test;
+				}
+			}
+		}
+		
+		// Predecessors have their value before their successors on the dual
+		for (int i = 1; i < nbLevels; i++) {
+			for (Vertex v : order) {
+				if (v.getWcet(i) == 0)
+					continue;
+				
+				if (v.isSourceinL(i)) {
+					ret[i][v.getId()] = deadline;
+				} else {
+					for (Edge e : v.getRcvEdges()) {
+						int test = ret[i][e.getSrc().getId()] - e.getSrc().getWcet(i);
+						if (test < ret[i][v.getId()])
+							ret[i][v.getId()] = test;
+					}
+				}
+			}
+		}
+		lfts = ret;
+		return lfts;
+	}
+	
 	/**
 	 * Sets HI nodes in the corresponding set
 	 */
@@ -178,28 +307,21 @@ public class McDAG {
 	public Set<Vertex> getVertices() {
 		return nodes;
 	}
+	/**
+	 * Sets the vertices of the DAG, they are copied in the indexed set
+	 * @param Nodes
+	 */
 	public void setNodes(Set<Vertex> Nodes) {
-		nodes = Nodes;
+		nodes = new VertexSet(Nodes);
+		cacheSize = -1;
 	}
 	
 	public Vertex getNodebyID(int id){
-		Iterator<Vertex> it = nodes.iterator();
-		while(it.hasNext()){
-			Vertex n = it.next();
-			if (n.getId() == id)
-				return n; 
-		}
-		return null;
+		return nodes.getById(id);
 	}
 
 	public Vertex getNodebyName(String name){
-		Iterator<Vertex> it = nodes.iterator();
-		while(it.hasNext()){
-			Vertex n = it.next();
-			if (n.getName().equalsIgnoreCase(name))
-				return n; 
-		}
-		return null;
+		return nodes.getByName(name);
 	}
 
 	
@@ -208,17 +330,11 @@ public class McDAG {
 	}
 
 	public void setNodes_HI(Set<Vertex> nodes_HI) {
-		nodesHI = nodes_HI;
+		nodesHI = new VertexSet(nodes_HI);
 	}
 	
 	public Vertex getNodeHIbyID(int id){
-		Iterator<Vertex> it = nodesHI.iterator();
-		while(it.hasNext()){
-			Vertex n = it.next();
-			if (n.getId() == id)
-				return n; 
-		}
-		return null;
+		return nodesHI.getById(id);
 	}
 
 	public int getCritPath() {
@@ -243,6 +359,7 @@ public class McDAG {
 
 	public void setDeadline(int deadline) {
 		this.deadline = deadline;
+		lfts = null;
 	}
 	
 	public int getId() {
@@ -16,11 +16,60 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.model;
 
+import java.util.Set;
+
 /**
- * This class contains the specification of a MC system
+ * This class contains the specification of a MC system: its DAGs, the cores
+ * and the levels of the architecture, and the name of the file it comes from
  * @author Roberto Medina
  *
  */
 public class McSystem {
 
+	private String name;
+	private Set<McDAG> dags;
+	private int nbCores;
+	private int nbLevels;
+
+	public McSystem (String name, Set<McDAG> dags, int nbCores, int nbLevels) {
+		setName(name);
+		setDags(dags);
+		setNbCores(nbCores);
+		setNbLevels(nbLevels);
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Set<McDAG> getDags() {
+		return dags;
+	}
+
+	public void setDags(Set<McDAG> dags) {
+		this.dags = dags;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public void setNbCores(int nbCores) {
+		this.nbCores = nbCores;
+	}
+
+	public int getNbLevels() {
+		return nbLevels;
+	}
+
+	public void setNbLevels(int nbLevels) {
+		this.nbLevels = nbLevels;
+	}
 }
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.model;
+
+import java.util.Arrays;
+
+/**
+ * Run-length form of the scheduling tables. For each level and core the
+ * table is a sorted list of segments (task, start, length), idle slots are
+ * not stored. Each level also indexes the segments of every task by start.
+ * Segments are appended slot by slot in increasing or decreasing order
+ * and the level is sealed once it is complete.
+ * @author Roberto Medina
+ *
+ */
+public class SchedulingSegments {
+
+	private static final int INIT_CAPACITY = 8;
+
+	private SchedulingTable table;
+	private int levels;
+	private int nbCores;
+
+	// Level, core -> segments sorted by start
+	private int tasks[][][];
+	private int starts[][][];
+	private int lengths[][][];
+	private int counts[][];
+
+	// Level, task -> segments of the task sorted by start (index * nbCores + core)
+	private int taskSegments[][][];
+
+	/**
+	 * Constructor of empty segments for the tables
+	 * @param table
+	 */
+	public SchedulingSegments (SchedulingTable table) {
+		this.table = table;
+		this.levels = table.getLevels();
+		this.nbCores = table.getNbCores();
+
+		tasks = new int[levels][nbCores][INIT_CAPACITY];
+		starts = new int[levels][nbCores][INIT_CAPACITY];
+		lengths = new int[levels][nbCores][INIT_CAPACITY];
+		counts = new int[levels][nbCores];
+		taskSegments = new int[levels][][];
+	}
+
+	/**
+	 * Adds a slot allocated to a task. The slot extends the last segment
+	 * of the core when it is adjacent and has the same task.
+	 * @param level
+	 * @param core
+	 * @param task
+	 * @param slot
+	 */
+	public void append (int level, int core, int task, int slot) {
+		int n = counts[level][core];
+
+		if (n > 0 && tasks[level][core][n - 1] == task) {
+			int last = n - 1;
+
+			if (slot == starts[level][core][last] + lengths[level][core][last]) {
+				lengths[level][core][last]++;
+				return;
+			} else if (slot == starts[level][core][last] - 1) {
+				starts[level][core][last]--;
+				lengths[level][core][last]++;
+				return;
+			}
+		}
+
+		if (n == tasks[level][core].length) {
+			tasks[level][core] = Arrays.copyOf(tasks[level][core], 2 * n);
+			starts[level][core] = Arrays.copyOf(starts[level][core], 2 * n);
+			lengths[level][core] = Arrays.copyOf(lengths[level][core], 2 * n);
+		}
+		tasks[level][core][n] = task;
+		starts[level][core][n] = slot;
+		lengths[level][core][n] = 1;
+		counts[level][core]++;
+	}
+
+	/**
+	 * Sorts the segments of a level appended backwards and builds the index of the tasks
+	 * @param level
+	 */
+	public void seal (int level) {
+		for (int c = 0; c < nbCores; c++) {
+			int n = counts[level][c];
+
+			if (n > 1 && starts[level][c][0] > starts[level][c][n - 1]) {
+				reverse(tasks[level][c], n);
+				reverse(starts[level][c], n);
+				reverse(lengths[level][c], n);
+			}
+		}
+
+		// Number of segments of each task
+		int sizes[] = new int[table.getNbTasks()];
+		for (int c = 0; c < nbCores; c++) {
+			for (int i = 0; i < counts[level][c]; i++)
+				sizes[tasks[level][c][i]]++;
+		}
+		int index[][] = new int[table.getNbTasks()][];
+		for (int t = 0; t < index.length; t++)
+			index[t] = new int[sizes[t]];
+
+		// Merge the cores by start to keep the segments of a task sorted
+		int next[] = new int[nbCores];
+		int filled[] = new int[table.getNbTasks()];
+		while (true) {
+			int core = -1;
+
+			for (int c = 0; c < nbCores; c++) {
+				if (next[c] < counts[level][c]
+						&& (core == -1 || starts[level][c][next[c]] < starts[level][core][next[core]]))
+					core = c;
+			}
+			if (core == -1)
+				break;
+
+			int task = tasks[level][core][next[core]];
+			index[task][filled[task]++] = next[core] * nbCores + core;
+			next[core]++;
+		}
+		taskSegments[level] = index;
+	}
+
+	/**
+	 * Bytes taken by the segments and the index of the tasks, capacities included
+	 * @return
+	 */
+	public long getBytes () {
+		long ret = 0;
+
+		for (int l = 0; l < levels; l++) {
+			for (int c = 0; c < nbCores; c++)
+				ret += 4L * (tasks[l][c].length + starts[l][c].length + lengths[l][c].length);
+			if (taskSegments[l] != null) {
+				for (int index[] : taskSegments[l])
+					ret += 4L * index.length;
+			}
+		}
+		return ret;
+	}
+
+	private static void reverse (int array[], int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * Reads a level of the tables and seals it
+	 * @param level
+	 */
+	public void load (int level) {
+		for (int c = 0; c < nbCores; c++) {
+			for (int s = 0; s < table.getSlots(); s++) {
+				int task = table.get(level, s, c);
+
+				if (task != SchedulingTable.IDLE)
+					append(level, c, task, s);
+			}
+		}
+		seal(level);
+	}
+
+	/**
+	 * Returns the task allocated to a slot, found by a binary search on the segments of the core
+	 * @param level
+	 * @param slot
+	 * @param core
+	 * @return
+	 */
+	public int get (int level, int slot, int core) {
+		int low = 0;
+		int high = counts[level][core] - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (starts[level][core][mid] > slot)
+				high = mid - 1;
+			else if (starts[level][core][mid] + lengths[level][core][mid] <= slot)
+				low = mid + 1;
+			else
+				return tasks[level][core][mid];
+		}
+		return SchedulingTable.IDLE;
+	}
+
+	/**
+	 * Returns the last slot before a bound in which a task is running
+	 * @param level
+	 * @param task
+	 * @param bound
+	 * @return -1 if the task is not running before the bound
+	 */
+	public int lastSlot (int level, int task, int bound) {
+		int low = 0;
+		int high = getNbTaskSegments(level, task) - 1;
+
+		// Last segment starting before the bound
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+
+			if (getTaskStart(level, task, mid) < bound)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		if (high < 0)
+			return -1;
+
+		// A task never runs on two cores in the same slot: the last segment ends last
+		return Math.min(getTaskStart(level, task, high) + getTaskLength(level, task, high), bound) - 1;
+	}
+
+	/*
+	 * Segments of a core
+	 */
+	public int getNbSegments (int level, int core) {
+		return counts[level][core];
+	}
+
+	public int getTask (int level, int core, int i) {
+		return tasks[level][core][i];
+	}
+
+	public int getStart (int level, int core, int i) {
+		return starts[level][core][i];
+	}
+
+	public int getLength (int level, int core, int i) {
+		return lengths[level][core][i];
+	}
+
+	/*
+	 * Segments of a task
+	 */
+	public int getNbTaskSegments (int level, int task) {
+		return taskSegments[level][task].length;
+	}
+
+	public int getTaskCore (int level, int task, int i) {
+		return taskSegments[level][task][i] % nbCores;
+	}
+
+	public int getTaskStart (int level, int task, int i) {
+		int ref = taskSegments[level][task][i];
+
+		return starts[level][ref % nbCores][ref / nbCores];
+	}
+
+	public int getTaskLength (int level, int task, int i) {
+		int ref = taskSegments[level][task][i];
+
+		return lengths[level][ref % nbCores][ref / nbCores];
+	}
+
+	/*
+	 * Getters
+	 */
+	public SchedulingTable getTable() {
+		return table;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Scheduling tables for all the criticality levels of a system.
+ * Slots are stored as int task ids in a flat array, the id of a task
+ * is given by the id of its DAG and its own id. Names are only kept
+ * in a dictionary. The run-length form of the tables is built on demand
+ * or given by the scheduler that filled them.
+ * @author Roberto Medina
+ *
+ */
+public class SchedulingTable {
+
+	public static final int IDLE = -1;
+	public static final String IDLE_NAME = "-";
+
+	// Dimensions of the tables
+	private int levels;
+	private int slots;
+	private int nbCores;
+
+	// Level, slot, core -> task id
+	private int cells[];
+
+	// Dictionary: first task id of each DAG + tasks by id
+	private int offsets[];
+	private VertexScheduling tasks[];
+
+	// Run-length and String forms, dropped when a slot changes
+	private SchedulingSegments segments;
+	private String strings[][][];
+
+	/**
+	 * Constructor for the tables of a set of MC-DAGs
+	 * @param dags
+	 * @param levels
+	 * @param slots
+	 * @param nbCores
+	 */
+	public SchedulingTable (Set<McDAG> dags, int levels, int slots, int nbCores) {
+		this(allVertices(dags), levels, slots, nbCores);
+	}
+
+	/**
+	 * Constructor for the tables of a set of tasks
+	 * @param vertices
+	 * @param levels
+	 * @param slots
+	 * @param nbCores
+	 */
+	public SchedulingTable (Collection<? extends Vertex> vertices, int levels, int slots, int nbCores) {
+		this.levels = levels;
+		this.slots = slots;
+		this.nbCores = nbCores;
+
+		// Number of ids needed by each graph
+		int maxGraph = 0;
+		for (Vertex v : vertices) {
+			if (((VertexScheduling) v).getGraphId() > maxGraph)
+				maxGraph = ((VertexScheduling) v).getGraphId();
+		}
+		int sizes[] = new int[maxGraph + 1];
+		for (Vertex v : vertices) {
+			int g = ((VertexScheduling) v).getGraphId();
+			if (v.getId() + 1 > sizes[g])
+				sizes[g] = v.getId() + 1;
+		}
+
+		offsets = new int[maxGraph + 1];
+		int nbTasks = 0;
+		for (int g = 0; g <= maxGraph; g++) {
+			offsets[g] = nbTasks;
+			nbTasks += sizes[g];
+		}
+
+		tasks = new VertexScheduling[nbTasks];
+		for (Vertex v : vertices)
+			tasks[getTaskId((VertexScheduling) v)] = (VertexScheduling) v;
+
+		cells = new int[levels * slots * nbCores];
+		clear();
+	}
+
+	private static List<Vertex> allVertices (Set<McDAG> dags) {
+		List<Vertex> ret = new ArrayList<Vertex>();
+
+		for (McDAG d : dags)
+			ret.addAll(d.getVertices());
+		return ret;
+	}
+
+	/**
+	 * Sets all the slots of the tables to idle
+	 */
+	public void clear () {
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = IDLE;
+		segments = null;
+		strings = null;
+	}
+
+	private int index (int level, int slot, int core) {
+		return (level * slots + slot) * nbCores + core;
+	}
+
+	/**
+	 * Returns the id of a task in the tables
+	 * @param v
+	 * @return
+	 */
+	public int getTaskId (VertexScheduling v) {
+		return offsets[v.getGraphId()] + v.getId();
+	}
+
+	/**
+	 * Returns the first task id of a DAG, ids of a DAG are contiguous
+	 * @param graphId
+	 * @return
+	 */
+	public int getFirstTaskId (int graphId) {
+		return offsets[graphId];
+	}
+	
+	/**
+	 * Returns the task id following the last task of a DAG
+	 * @param graphId
+	 * @return
+	 */
+	public int getEndTaskId (int graphId) {
+		return graphId + 1 < offsets.length ? offsets[graphId + 1] : tasks.length;
+	}
+	
+	/**
+	 * Returns the task corresponding to an id
+	 * @param task
+	 * @return
+	 */
+	public VertexScheduling getTask (int task) {
+		return tasks[task];
+	}
+
+	/**
+	 * Returns the name of a task, "-" for idle slots
+	 * @param task
+	 * @return
+	 */
+	public String getTaskName (int task) {
+		if (task == IDLE)
+			return IDLE_NAME;
+		return tasks[task].getName();
+	}
+
+	/**
+	 * Returns the id of the task allocated to a slot
+	 * @param level
+	 * @param slot
+	 * @param core
+	 * @return
+	 */
+	public int get (int level, int slot, int core) {
+		return cells[index(level, slot, core)];
+	}
+
+	public void set (int level, int slot, int core, int task) {
+		cells[index(level, slot, core)] = task;
+		if (segments != null)
+			segments = null;
+		if (strings != null)
+			strings = null;
+	}
+
+	public void set (int level, int slot, int core, VertexScheduling v) {
+		set(level, slot, core, getTaskId(v));
+	}
+
+	/**
+	 * Returns the name of the task allocated to a slot
+	 * @param level
+	 * @param slot
+	 * @param core
+	 * @return
+	 */
+	public String getName (int level, int slot, int core) {
+		return getTaskName(get(level, slot, core));
+	}
+
+	/**
+	 * Returns a copy of the tables in the String form: level, slot, core. The names
+	 * are built once and kept until a slot changes, callers may modify the copy
+	 * @return
+	 */
+	public String[][][] toStringTable () {
+		String names[][][] = names();
+		String ret[][][] = new String[levels][slots][];
+
+		for (int l = 0; l < levels; l++) {
+			for (int s = 0; s < slots; s++)
+				ret[l][s] = names[l][s].clone();
+		}
+		return ret;
+	}
+
+	/**
+	 * Names of the tasks of the slots, shared and never modified
+	 * @return
+	 */
+	private synchronized String[][][] names () {
+		if (strings == null) {
+			String ret[][][] = new String[levels][slots][nbCores];
+
+			for (int l = 0; l < levels; l++) {
+				for (int s = 0; s < slots; s++) {
+					for (int c = 0; c < nbCores; c++)
+						ret[l][s][c] = getName(l, s, c);
+				}
+			}
+			strings = ret;
+		}
+		return strings;
+	}
+
+	/**
+	 * Returns the segments of the tables, they are read from the slots
+	 * if the scheduler did not give them
+	 * @return
+	 */
+	public synchronized SchedulingSegments getSegments () {
+		if (segments == null) {
+			SchedulingSegments ret = new SchedulingSegments(this);
+
+			for (int l = 0; l < levels; l++)
+				ret.load(l);
+			segments = ret;
+		}
+		return segments;
+	}
+
+	/**
+	 * Gives the segments built while filling the tables
+	 * @param segments
+	 */
+	public synchronized void setSegments (SchedulingSegments segments) {
+		this.segments = segments;
+	}
+
+	/**
+	 * Bytes taken by the cells and the dictionary of the tables, references count 4 bytes
+	 * @return
+	 */
+	public long getBytes () {
+		return 4L * (cells.length + offsets.length + tasks.length);
+	}
+
+	/*
+	 * Getters
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public int getNbTasks() {
+		return tasks.length;
+	}
+}
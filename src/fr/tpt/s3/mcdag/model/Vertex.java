@@ -19,11 +19,15 @@ package fr.tpt.s3.mcdag.model;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class Vertex {
 	
 	public static final short LO = 0;
 	public static final short HI = 1;
+	
+	// Stamps given to the vertices each time their WCETs or edges change
+	private static final AtomicLong modifications = new AtomicLong();
 
 	private int id;
 	private String name;
@@ -34,7 +38,8 @@ public abstract class Vertex {
 	
 	private Set<Edge> rcvEdges;
 	private Set<Edge> sndEdges;
-
+	
+	private long version;
 	
 	public Vertex (int id, String name, int nbLevels) {
 		this.setId(id);
@@ -45,6 +50,38 @@ public abstract class Vertex {
 		cpFromNode = new int[nbLevels];
 	}
 	
+	/**
+	 * Marks the vertex as modified, results computed on its DAG are invalidated
+	 */
+	void modified () {
+		version = modifications.incrementAndGet();
+	}
+	
+	/**
+	 * Gives the last stamp given to any vertex
+	 * @return
+	 */
+	static long lastModification () {
+		return modifications.get();
+	}
+	
+	/**
+	 * Removes all the edges of the vertex from its neighbours
+	 */
+	public void removeEdges () {
+		for (Edge e : getRcvEdges()) {
+			e.getSrc().getSndEdges().remove(e);
+			e.getSrc().modified();
+		}
+		for (Edge e : getSndEdges()) {
+			e.getDest().getRcvEdges().remove(e);
+			e.getDest().modified();
+		}
+		getRcvEdges().clear();
+		getSndEdges().clear();
+		modified();
+	}
+	
 	/**
 	 * Returns the jth Ci(J)
 	 * @param j
@@ -217,6 +254,7 @@ public abstract class Vertex {
 
 	public void setId(int id) {
 		this.id = id;
+		modified();
 	}
 
 	public String getName() {
@@ -233,6 +271,12 @@ public abstract class Vertex {
 	
 	public void setWcets(int[] cIs) {
 		this.wcets = cIs;
+		modified();
+	}
+	
+	public void setWcet(int level, int wcet) {
+		this.wcets[level] = wcet;
+		modified();
 	}
 	
 	public Set<Edge> getRcvEdges() {
@@ -241,6 +285,7 @@ public abstract class Vertex {
 	
 	public void setRcvEdges(Set<Edge> rcvEdges) {
 		this.rcvEdges = rcvEdges;
+		modified();
 	}
 	
 	public Set<Edge> getSndEdges() {
@@ -249,6 +294,7 @@ public abstract class Vertex {
 	
 	public void setSndEdges(Set<Edge> sndEdges) {
 		this.sndEdges = sndEdges;
+		modified();
 	}
 
 	public int[] getCpFromNode() {
@@ -258,4 +304,8 @@ public abstract class Vertex {
 	public void setCpFromNode(int cpFromNode[]) {
 		this.cpFromNode = cpFromNode;
 	}
+
+	public long getVersion() {
+		return version;
+	}
 }
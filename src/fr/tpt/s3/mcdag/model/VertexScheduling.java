@@ -16,9 +16,15 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.model;
 
+/**
+ * Vertex of the MC-DAGs to schedule. Schedulers keep the state of a run in a
+ * SchedulingContext, the per-run fields below are only used by the old schedulers.
+ * @author Roberto Medina
+ *
+ */
 public class VertexScheduling extends Vertex {
 	
-	// Used for singleDAG scheduling
+	// Used for singleDAG scheduling (old schedulers)
 	private int[] hlfet;
 	
 	// Used for DAG generation
@@ -27,7 +33,7 @@ public class VertexScheduling extends Vertex {
 	// Used for multiDAG scheduling N level
 	private int graphDead;
 	
-	// Used for N levels scheduling
+	// Used for N levels scheduling (old schedulers except the graph id)
 	private int deadlines[];
 	private int weights[];
 	private boolean visitedL[];
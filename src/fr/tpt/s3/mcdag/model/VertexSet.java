@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Set of the vertices of a DAG indexed by id and by name. Ids index a dense array,
+ * names are compared ignoring case. The indexes follow the vertices added and removed
+ * through the set and its iterators, ids and names must not change afterwards.
+ * When several vertices share an id or a name the first one added is found.
+ * @author Roberto Medina
+ *
+ */
+class VertexSet extends AbstractSet<Vertex> {
+
+	private HashSet<Vertex> vertices;
+	private Vertex byId[];
+	private HashMap<String, Vertex> byName;
+
+	// Vertices that are not in an index because another one has their id or name
+	private int shadowed;
+
+	VertexSet () {
+		vertices = new HashSet<Vertex>();
+		byId = new Vertex[16];
+		byName = new HashMap<String, Vertex>();
+	}
+
+	VertexSet (Collection<? extends Vertex> c) {
+		this();
+		addAll(c);
+	}
+
+	private static String key (String name) {
+		return name == null ? null : name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Indexes a vertex
+	 * @param v
+	 */
+	private void index (Vertex v) {
+		int id = v.getId();
+
+		if (id >= 0) {
+			if (id >= byId.length)
+				byId = Arrays.copyOf(byId, Math.max(2 * byId.length, id + 1));
+			if (byId[id] == null)
+				byId[id] = v;
+			else
+				shadowed++;
+		}
+
+		if (!byName.containsKey(key(v.getName())))
+			byName.put(key(v.getName()), v);
+		else
+			shadowed++;
+	}
+
+	/**
+	 * Removes a vertex from the indexes, a vertex it shadowed takes its place
+	 * @param v
+	 */
+	private void unindex (Vertex v) {
+		int id = v.getId();
+		boolean freed = false;
+
+		if (id >= 0 && id < byId.length) {
+			if (byId[id] == v) {
+				byId[id] = null;
+				freed = true;
+			} else {
+				shadowed--;
+			}
+		}
+
+		if (byName.get(key(v.getName())) == v) {
+			byName.remove(key(v.getName()));
+			freed = true;
+		} else {
+			shadowed--;
+		}
+
+		if (freed && shadowed > 0)
+			reindex();
+	}
+
+	/**
+	 * Builds the indexes again from the vertices of the set
+	 */
+	private void reindex () {
+		Arrays.fill(byId, null);
+		byName.clear();
+		shadowed = 0;
+		for (Vertex v : vertices)
+			index(v);
+	}
+
+	@Override
+	public boolean add (Vertex v) {
+		if (!vertices.add(v))
+			return false;
+		index(v);
+		return true;
+	}
+
+	@Override
+	public boolean remove (Object o) {
+		if (!vertices.remove(o))
+			return false;
+		unindex((Vertex) o);
+		return true;
+	}
+
+	@Override
+	public boolean contains (Object o) {
+		return vertices.contains(o);
+	}
+
+	@Override
+	public void clear () {
+		vertices.clear();
+		Arrays.fill(byId, null);
+		byName.clear();
+		shadowed = 0;
+	}
+
+	@Override
+	public int size () {
+		return vertices.size();
+	}
+
+	@Override
+	public Iterator<Vertex> iterator () {
+		final Iterator<Vertex> it = vertices.iterator();
+
+		return new Iterator<Vertex>() {
+			private Vertex last;
+
+			@Override
+			public boolean hasNext () {
+				return it.hasNext();
+			}
+
+			@Override
+			public Vertex next () {
+				last = it.next();
+				return last;
+			}
+
+			@Override
+			public void remove () {
+				it.remove();
+				unindex(last);
+			}
+		};
+	}
+
+	/**
+	 * Returns the vertex with an id, null if there is none
+	 * @param id
+	 * @return
+	 */
+	Vertex getById (int id) {
+		return id >= 0 && id < byId.length ? byId[id] : null;
+	}
+
+	/**
+	 * Returns the vertex with a name ignoring case, null if there is none
+	 * @param name
+	 * @return
+	 */
+	Vertex getByName (String name) {
+		return byName.get(key(name));
+	}
+}
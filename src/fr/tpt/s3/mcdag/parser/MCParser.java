@@ -20,11 +20,16 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
@@ -33,8 +38,6 @@ import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.Node;
 import org.w3c.dom.Element;
 
 import fr.tpt.s3.mcdag.avail.AutoBoolean;
@@ -44,6 +47,7 @@ import fr.tpt.s3.mcdag.avail.Formula;
 import fr.tpt.s3.mcdag.avail.State;
 import fr.tpt.s3.mcdag.avail.Transition;
 import fr.tpt.s3.mcdag.generator.MCSystemGenerator;
+import fr.tpt.s3.mcdag.model.SchedulingTable;
 import fr.tpt.s3.mcdag.model.Vertex;
 import fr.tpt.s3.mcdag.model.VertexAvailability;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
@@ -54,6 +58,7 @@ public class MCParser {
 
 	private String inputFile;
 	private String outSchedFile;
+	private String outBinSchedFile;
 	private String outPrismFile;
 	private String outGenFile;
 	private String outDotFile;
@@ -65,10 +70,12 @@ public class MCParser {
 	private MCSystemGenerator ug;
 	
 	// Writing scheduling tables
-	private String[][][] sched;
+	private SchedulingTable sched;
 	private int hPeriod;
 	private int nbCores;
 	private int nbLevels;
+	// Slots of the tables written as runs
+	private boolean compactSched;
 	
 	public MCParser (String iFile, String oSFile,Set<McDAG> dags, boolean bop) {
 		setInputFile(iFile);
@@ -84,183 +91,77 @@ public class MCParser {
 	}
 	
 	/**
-	 * Reads the XML file for a N level MC System
+	 * Reads the XML file for a N level MC System, the file is streamed.
+	 * Binary MC systems are recognized and read as well.
+	 * @throws IOException if the file can not be read or is not a valid MC system
 	 */
-	public void readXML() {
+	public void readXML() throws IOException {
+		if (MCSystemBinary.isBinary(inputFile)) {
+			readBinary();
+			return;
+		}
+		MCSystemReader reader = new MCSystemReader(inputFile, dags, isbOutPrism());
+		
+		reader.setNbCores(getNbCores());
+		reader.setNbLevels(getNbLevels());
 		try {
-			File iFile = new File(inputFile);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			reader.read();
+		} catch (XMLStreamException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		setNbCores(reader.getNbCores());
+		setNbLevels(reader.getNbLevels());
+	}
+	
+	/**
+	 * Reads a binary file for a N level MC System
+	 * @throws IOException if the file can not be read or is not a valid MC system
+	 */
+	public void readBinary() throws IOException {
+		MCSystemBinary bin = new MCSystemBinary(inputFile);
 		
-			// 	Root element
-			Document doc = dBuilder.parse(iFile);
-			doc.getDocumentElement().normalize();
-			
-			// Extract number of cores
-			NodeList cList = doc.getElementsByTagName("cores");
-			Element c = (Element) cList.item(0);
-			setNbCores(Integer.parseInt(c.getAttribute("number")));
-			
-			// Extract number of levels
-			NodeList lList = doc.getElementsByTagName("levels");
-			Element l = (Element) lList.item(0);
-			setNbLevels(Integer.parseInt(l.getAttribute("number")));
-			
-			// Extract DAGs that constitute the system
-			NodeList eList = doc.getElementsByTagName("mcdag");
-			int count = 0;
-			
-			for (int d = 0; d < eList.getLength(); d++) {
-				Element eDag = (Element) eList.item(d);
-				McDAG dag	= new McDAG();
-				dag.setId(count);
-				dag.setDeadline(Integer.parseInt(eDag.getAttribute("deadline")));
-				dag.setLevels(getNbLevels());
-				// Instantiate the DAG
-				int nb_actors = 0;
-				
-				// List of actors in the DAG
-				NodeList nList = eDag.getElementsByTagName("actor");
-				for (int i = 0; i < nList.getLength(); i++) {
-					Node n = nList.item(i);
-					if (n.getNodeType() == Node.ELEMENT_NODE) {
-						Element e = (Element) n;
-						Vertex a;
-						int[] wcets = new int[getNbLevels()];
-						
-						// Initialize all the WCET of a node
-						NodeList wList = e.getElementsByTagName("wcet");
-						for (int j = 0; j < getNbLevels(); j++) {
-							Node w = wList.item(j);
-							if (w.getNodeType() == Node.ELEMENT_NODE) {
-								Element we = (Element) w;
-								
-								wcets[Integer.parseInt(we.getAttribute("number"))] = Integer.parseInt(we.getTextContent());
-							}
-						}
-						
-						if (!isbOutPrism()) {
-							a = new VertexScheduling(nb_actors++, e.getAttribute("name"),getNbLevels());
-							a.setWcets(wcets);
-						} else {
-							a = new VertexAvailability(nb_actors++, e.getAttribute("name"), wcets);
-							((VertexScheduling) a).setfProb(Double.parseDouble(e.getElementsByTagName("fprob").item(0).getTextContent()));
-						}
-							
-						((VertexScheduling) a).setGraphID(count);
-						((VertexScheduling) a).setGraphDead(dag.getDeadline());
-						dag.getVertices().add(a);
-					}
-				}
-					
-				// List of fault tolerance mechanisms
-				NodeList ftList = eDag.getElementsByTagName("ftm");
-				for (int i = 0; i < ftList.getLength(); i++) {
-					Node n = ftList.item(i);
-					if (n.getNodeType() == Node.ELEMENT_NODE) {
-						Element e = (Element) n;
-						
-						if (e.getAttribute("type").contains("voter")) {
-							// Initialize all the WCET of a node							
-							NodeList wList = e.getElementsByTagName("wcet");
-							int[] wcets = new int[getNbLevels()];
-
-							for (int j = 0; j < getNbLevels(); j++) {
-								Node w = wList.item(j);
-								if (w.getNodeType() == Node.ELEMENT_NODE) {
-									Element we = (Element) w;
-									
-									wcets[Integer.parseInt(we.getAttribute("number"))] = Integer.parseInt(we.getTextContent());
-								}
-							}
-							VertexAvailability a = new VertexAvailability(nb_actors++, e.getAttribute("name"), wcets);
-							a.setfMechanism(true);
-							a.setfMechType(VertexAvailability.VOTER);
-							a.setVotTask(e.getElementsByTagName("vtask").item(0).getTextContent());
-							((VertexAvailability) dag.getNodebyName(e.getElementsByTagName("vtask").item(0).getTextContent())).setVoted(true);
-							a.setNbReplicas(Integer.parseInt(e.getElementsByTagName("replicas").item(0).getTextContent()));
-							dag.getVertices().add(a);
-						} else if (e.getAttribute("type").contains("mkfirm")) {
-							VertexAvailability a = (VertexAvailability) dag.getNodebyName(e.getAttribute("name"));
-							a.setfMechanism(true);
-							a.setfMechType(VertexAvailability.MKFIRM);
-							a.setM(Integer.parseInt(e.getElementsByTagName("m").item(0).getTextContent()));
-							a.setK(Integer.parseInt(e.getElementsByTagName("k").item(0).getTextContent()));
-							a.setVoted(true);
-						} else {
-							System.err.println("[WARNING] Uknown fault tolerant mechanism.");
-						}
-					}
-				}
-				
-				// List of connections
-				NodeList ports = eDag.getElementsByTagName("ports");
-				NodeList pList = ports.item(0).getChildNodes();
-				for (int i = 0; i < pList.getLength(); i++) {
-					Node n = pList.item(i);
-					if (n.getNodeType() == Node.ELEMENT_NODE) {
-						Element e = (Element) n;
-						// Creating the edge adds it to the corresponding nodes
-						@SuppressWarnings("unused")
-						Edge ed = new Edge(dag.getNodebyName(e.getAttribute("srcActor")),
-								dag.getNodebyName(e.getAttribute("dstActor")));
-					}
-				}
-				// dag.sanityChecks();
-				dags.add(dag);
-				count++;
-			}
-			
-		} catch (Exception e) {
-			e.printStackTrace();
+		bin.setNbCores(getNbCores());
+		bin.setNbLevels(getNbLevels());
+		bin.read(dags, isbOutPrism());
+		setNbCores(bin.getNbCores());
+		setNbLevels(bin.getNbLevels());
+	}
+	
+	/**
+	 * Writes the DAGs of the system to a file, binary if the file has the
+	 * binary extension and XML otherwise
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeSystem (String file) throws IOException {
+		if (file.endsWith(MCSystemBinary.EXTENSION)) {
+			MCSystemBinary bin = new MCSystemBinary(file);
+			
+			bin.setNbCores(getNbCores());
+			bin.setNbLevels(getNbLevels());
+			bin.write(dags);
+		} else {
+			new MCSystemWriter(dags, getNbCores(), getNbLevels()).write(file);
 		}
 	}
 	
 	/**
-	 * Writes the scheduling tables
+	 * Writes the scheduling tables, the file is streamed
 	 */
 	public void writeSched () throws IOException {
-		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-			Document doc = dBuilder.newDocument();
-			
-			// Root element
-			Element rootElement = doc.createElement("sched");
-			doc.appendChild(rootElement);
-			
-			
-			for (int i = 0; i < this.getNbLevels(); i++) {
-				Element table = doc.createElement("Mode-"+i);
-				rootElement.appendChild(table);
-				for (int c = 0; c < this.getNbCores(); c++) {
-					Element core = doc.createElement("core");
-					Attr attrCoreNb = doc.createAttribute("number");
-					attrCoreNb.setNodeValue(String.valueOf(i));
-					core.setAttributeNode(attrCoreNb);
-					for (int s = 0; s < this.gethPeriod(); s++) {
-						Element slot = doc.createElement("slot");
-						Attr slotNb = doc.createAttribute("slot");
-						slotNb.setNodeValue(String.valueOf(s));
-						slot.setAttributeNodeNS(slotNb);
-						slot.appendChild(doc.createTextNode(this.getSched()[i][s][c]));
-						core.appendChild(slot);
-					}
-					table.appendChild(core);
-				}
-			}
-			
-			// Write the content
-			TransformerFactory tFactory = TransformerFactory.newInstance();
-			Transformer trans = tFactory.newTransformer();
-			DOMSource dSource = new DOMSource(doc);
-			StreamResult sResult = new StreamResult(new File(outSchedFile));
-			trans.setOutputProperty(OutputKeys.INDENT, "yes");
-			trans.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-			trans.transform(dSource, sResult);
-		} catch (Exception ie) {
-			ie.printStackTrace();
-		}
+		SchedulingTableWriter writer = new SchedulingTableWriter(sched, getNbLevels(), getNbCores(), gethPeriod());
+		
+		writer.setCompact(isCompactSched());
+		writer.write(outSchedFile);
+	}
+	
+	/**
+	 * Writes the scheduling tables into a binary file that can be mapped in memory
+	 */
+	public void writeSchedBinary () throws IOException {
+		SchedulingTableWriter writer = new SchedulingTableWriter(sched, getNbLevels(), getNbCores(), gethPeriod());
+		
+		writer.writeBinary(outBinSchedFile);
 	}
 	
 	/**
@@ -573,8 +474,15 @@ public class MCParser {
 				mcdag.setAttributeNodeNS(dagName);
 				mcdag.setAttributeNode(dagDead);
 				rootElement.appendChild(mcdag);
-				// Actors
-				for (Vertex a : d.getVertices()) {
+				// Actors, written by id for the file to only depend on the seed
+				List<Vertex> vertices = new ArrayList<Vertex>(d.getVertices());
+				Collections.sort(vertices, new Comparator<Vertex>() {
+					@Override
+					public int compare (Vertex a, Vertex b) {
+						return Integer.compare(a.getId(), b.getId());
+					}
+				});
+				for (Vertex a : vertices) {
 					Element actor = doc.createElement("actor");
 					Attr actorNb = doc.createAttribute("name");
 					actorNb.setNodeValue("D"+d.getId()+"N"+a.getId());
@@ -598,9 +506,16 @@ public class MCParser {
 				// Ports
 				Element edges = doc.createElement("ports");
 				int counter = 0;
-				for (Vertex a : d.getVertices()) {
+				for (Vertex a : vertices) {
 					if (a.getSndEdges().size() != 0)  {
-						for (Edge e : a.getSndEdges()) {
+						List<Edge> succs = new ArrayList<Edge>(a.getSndEdges());
+						Collections.sort(succs, new Comparator<Edge>() {
+							@Override
+							public int compare (Edge a, Edge b) {
+								return Integer.compare(a.getDest().getId(), b.getDest().getId());
+							}
+						});
+						for (Edge e : succs) {
 							Element edge = doc.createElement("port");
 							Attr portName = doc.createAttribute("name");
 							portName.setValue("p"+counter);
@@ -644,6 +559,19 @@ public class MCParser {
 		}
 	}
 	
+	/**
+	 * Writes the generated DAG to a binary file, vertices are named as in the XML
+	 * @throws IOException
+	 */
+	public void writeGennedBinary () throws IOException {
+		MCSystemBinary bin = new MCSystemBinary(outGenFile);
+		
+		bin.setNbCores(minCoresNlevels(ug.getGennedDAGs(), nbLevels));
+		bin.setNbLevels(nbLevels);
+		bin.setDagNames(true);
+		bin.write(ug.getGennedDAGs());
+	}
+	
 	/**
 	 * Private function to calculate the minimum number of cores needed to schedule a multi-DAG
 	 * multi-level system
@@ -750,6 +678,14 @@ public class MCParser {
 		this.outSchedFile = outSchedFile;
 	}
 
+	public String getOutBinSchedFile() {
+		return outBinSchedFile;
+	}
+
+	public void setOutBinSchedFile(String outBinSchedFile) {
+		this.outBinSchedFile = outBinSchedFile;
+	}
+
 	public String getOutGenFile() {
 		return outGenFile;
 	}
@@ -822,11 +758,19 @@ public class MCParser {
 		this.bOutPrism = bOutPrism;
 	}
 
-	public String[][][] getSched() {
+	public SchedulingTable getSchedTable() {
 		return sched;
 	}
 
-	public void setSched(String[][][] sched) {
+	public void setSchedTable(SchedulingTable sched) {
 		this.sched = sched;
 	}
+
+	public boolean isCompactSched() {
+		return compactSched;
+	}
+
+	public void setCompactSched(boolean compactSched) {
+		this.compactSched = compactSched;
+	}
 }
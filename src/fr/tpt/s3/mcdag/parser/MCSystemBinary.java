@@ -0,0 +1,328 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fr.tpt.s3.mcdag.model.Edge;
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.VertexAvailability;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Binary encoding of the MC systems, read and written through NIO buffers.
+ * After a header with the cores, the levels and the number of DAGs, each DAG is
+ * stored as columns: its deadline, the names of its vertices, their WCETs level by
+ * level, their failure probabilities, then the successors of the vertices in
+ * compressed sparse rows. Vertices are numbered by their position, as when the XML
+ * is read. Systems with fault tolerance mechanisms are refused.
+ * @author Roberto Medina
+ *
+ */
+public class MCSystemBinary {
+
+	public static final int MAGIC = 0x4d435359;
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".mcb";
+
+	private String file;
+	private int nbCores;
+	private int nbLevels;
+	// Vertices named D<dag>N<name> as in the generated XML files
+	private boolean dagNames;
+
+	public MCSystemBinary (String file) {
+		setFile(file);
+	}
+
+	/**
+	 * Tells if the content of a file is a binary MC system
+	 * @param content
+	 * @return
+	 */
+	public static boolean isBinary (byte content[]) {
+		return content.length >= 4 && ByteBuffer.wrap(content).getInt() == MAGIC;
+	}
+
+	/**
+	 * Tells if a file starts as a binary MC system
+	 * @param file
+	 * @return
+	 */
+	public static boolean isBinary (String file) {
+		try (FileInputStream in = new FileInputStream(file)) {
+			byte magic[] = new byte[4];
+
+			return in.read(magic) == 4 && ByteBuffer.wrap(magic).getInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static String readName (ByteBuffer buffer) {
+		byte name[] = new byte[buffer.getInt()];
+
+		buffer.get(name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the file and adds its DAGs to the set
+	 * @param dags
+	 * @param availability true to read the vertices with their failure probabilities
+	 * @throws IOException
+	 */
+	public void read (Set<McDAG> dags, boolean availability) throws IOException {
+		ByteBuffer buffer;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+		read(buffer, dags, availability);
+	}
+
+	/**
+	 * Reads a system from a buffer and adds its DAGs to the set
+	 * @param buffer
+	 * @param dags
+	 * @param availability true to read the vertices with their failure probabilities
+	 * @throws IOException
+	 */
+	public void read (ByteBuffer buffer, Set<McDAG> dags, boolean availability) throws IOException {
+		if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			throw new IOException("Not a binary MC system: "+file);
+
+		setNbCores(buffer.getInt());
+		setNbLevels(buffer.getInt());
+		int nbDAGs = buffer.getInt();
+
+		for (int count = 0; count < nbDAGs; count++) {
+			McDAG dag = new McDAG();
+			dag.setId(count);
+			dag.setDeadline(buffer.getInt());
+			dag.setLevels(getNbLevels());
+
+			int n = buffer.getInt();
+			int m = buffer.getInt();
+			String names[] = new String[n];
+			for (int v = 0; v < n; v++)
+				names[v] = readName(buffer);
+
+			int wcets[][] = new int[n][getNbLevels()];
+			for (int i = 0; i < getNbLevels(); i++) {
+				for (int v = 0; v < n; v++)
+					wcets[v][i] = buffer.getInt();
+			}
+
+			Vertex vertices[] = new Vertex[n];
+			for (int v = 0; v < n; v++) {
+				double fProb = buffer.getDouble();
+
+				if (!availability) {
+					vertices[v] = new VertexScheduling(v, names[v], getNbLevels());
+					vertices[v].setWcets(wcets[v]);
+				} else {
+					vertices[v] = new VertexAvailability(v, names[v], wcets[v]);
+					((VertexScheduling) vertices[v]).setfProb(fProb);
+				}
+				((VertexScheduling) vertices[v]).setGraphID(count);
+				((VertexScheduling) vertices[v]).setGraphDead(dag.getDeadline());
+				dag.getVertices().add(vertices[v]);
+			}
+
+			// Successors in compressed rows, creating the edge adds it to the nodes
+			int rows[] = new int[n + 1];
+			for (int v = 0; v <= n; v++)
+				rows[v] = buffer.getInt();
+			for (int v = 0; v < n; v++) {
+				for (int e = rows[v]; e < rows[v + 1]; e++)
+					new Edge(vertices[v], vertices[buffer.getInt()]);
+			}
+			if (rows[n] != m)
+				throw new IOException("Corrupted DAG "+count+" in "+file);
+
+			dags.add(dag);
+		}
+	}
+
+	/**
+	 * Name written for a vertex
+	 * @param d
+	 * @param v
+	 * @return
+	 */
+	private String name (McDAG d, Vertex v) {
+		return dagNames ? "D"+d.getId()+"N"+v.getName() : v.getName();
+	}
+
+	/**
+	 * Writes DAGs into the file, DAGs are written by id and vertices by id
+	 * @param dags
+	 * @throws IOException
+	 */
+	public void write (Collection<McDAG> dags) throws IOException {
+		List<McDAG> sorted = new ArrayList<McDAG>(dags);
+		Comparator<McDAG> byId = new Comparator<McDAG>() {
+			@Override
+			public int compare (McDAG a, McDAG b) {
+				return Integer.compare(a.getId(), b.getId());
+			}
+		};
+		Collections.sort(sorted, byId);
+
+		// Vertices in the order of the file and size of the buffer
+		List<List<Vertex>> vertices = new ArrayList<List<Vertex>>();
+		List<byte[][]> names = new ArrayList<byte[][]>();
+		long size = 20;
+
+		for (McDAG d : sorted) {
+			List<Vertex> vs = new ArrayList<Vertex>(d.getVertices());
+			Collections.sort(vs, new Comparator<Vertex>() {
+				@Override
+				public int compare (Vertex a, Vertex b) {
+					return Integer.compare(a.getId(), b.getId());
+				}
+			});
+
+			byte ns[][] = new byte[vs.size()][];
+			int m = 0;
+			for (int v = 0; v < vs.size(); v++) {
+				Vertex a = vs.get(v);
+
+				if (a instanceof VertexAvailability
+						&& (((VertexAvailability) a).isfMechanism() || ((VertexAvailability) a).isVoted()))
+					throw new IOException("Fault tolerance mechanisms can not be written in a binary MC system: "+file);
+				ns[v] = name(d, a).getBytes(StandardCharsets.UTF_8);
+				size += 4 + ns[v].length;
+				m += a.getSndEdges().size();
+			}
+			size += 12 + 4L * getNbLevels() * vs.size() + 8L * vs.size() + 4L * (vs.size() + 1) + 4L * m;
+			vertices.add(vs);
+			names.add(ns);
+		}
+		if (size > Integer.MAX_VALUE)
+			throw new IOException("MC system too large for a binary file: "+file);
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(getNbCores());
+		buffer.putInt(getNbLevels());
+		buffer.putInt(sorted.size());
+
+		for (int i = 0; i < sorted.size(); i++) {
+			List<Vertex> vs = vertices.get(i);
+			Map<Vertex, Integer> position = new HashMap<Vertex, Integer>();
+			int m = 0;
+
+			for (int v = 0; v < vs.size(); v++) {
+				position.put(vs.get(v), v);
+				m += vs.get(v).getSndEdges().size();
+			}
+
+			buffer.putInt(sorted.get(i).getDeadline());
+			buffer.putInt(vs.size());
+			buffer.putInt(m);
+			for (byte name[] : names.get(i)) {
+				buffer.putInt(name.length);
+				buffer.put(name);
+			}
+			for (int l = 0; l < getNbLevels(); l++) {
+				for (Vertex v : vs)
+					buffer.putInt(l < v.getWcets().length ? v.getWcet(l) : 0);
+			}
+			for (Vertex v : vs)
+				buffer.putDouble(((VertexScheduling) v).getfProb());
+
+			int row = 0;
+			for (Vertex v : vs) {
+				buffer.putInt(row);
+				row += v.getSndEdges().size();
+			}
+			buffer.putInt(row);
+			for (Vertex v : vs) {
+				for (Edge e : v.getSndEdges())
+					buffer.putInt(position.get(e.getDest()));
+			}
+		}
+
+		buffer.flip();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel channel = out.getChannel();
+
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+		} finally {
+			out.close();
+		}
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	public void setFile(String file) {
+		this.file = file;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public void setNbCores(int nbCores) {
+		this.nbCores = nbCores;
+	}
+
+	public int getNbLevels() {
+		return nbLevels;
+	}
+
+	public void setNbLevels(int nbLevels) {
+		this.nbLevels = nbLevels;
+	}
+
+	public boolean isDagNames() {
+		return dagNames;
+	}
+
+	public void setDagNames(boolean dagNames) {
+		this.dagNames = dagNames;
+	}
+}
@@ -0,0 +1,432 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import fr.tpt.s3.mcdag.model.Edge;
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.VertexAvailability;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Streaming reader of the MC systems: the XML file is read in one forward pass,
+ * no tree of the document is built. Actors, fault tolerance mechanisms and ports
+ * of a DAG are kept as names and numbers until the end of the DAG, the DAG is then
+ * built and its description dropped. The vertices need the number of levels, which
+ * is usually given after the DAGs: DAGs read before it wait for it.
+ * Files missing the cores, the levels, the ports of a DAG or the WCET of an actor
+ * in a level are rejected, as when the whole document was built. Actors without
+ * a failure probability are read with a probability of 0, as the framework writes them.
+ * @author Roberto Medina
+ *
+ */
+public class MCSystemReader {
+
+	// Factories are not thread safe, each thread keeps its own for all the files it reads
+	private static final ThreadLocal<XMLInputFactory> FACTORY = new ThreadLocal<XMLInputFactory>() {
+		@Override
+		protected XMLInputFactory initialValue () {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+			return factory;
+		}
+	};
+
+	private String inputFile;
+	private Set<McDAG> dags;
+	// Vertices read with their failure probabilities
+	private boolean availability;
+
+	private int nbCores;
+	private int nbLevels;
+	private boolean coresRead;
+	private boolean levelsRead;
+
+	// DAGs read before the number of levels
+	private List<DAGDescription> pending;
+	private int count;
+
+	// Elements being read
+	private DAGDescription dag;
+	private ActorDescription actor;
+	private boolean inPorts;
+
+	/**
+	 * Actor or fault tolerance mechanism of a DAG
+	 */
+	private static class ActorDescription {
+		private String name;
+		private String type;
+		private int wcets[] = new int[0];
+		private boolean given[] = new boolean[0];
+		private double fProb;
+		private String vTask;
+		// Not given when negative
+		private int replicas = -1;
+		private int m = -1;
+		private int k = -1;
+
+		private ActorDescription (String name, String type) {
+			this.name = name;
+			this.type = type == null ? "" : type;
+		}
+
+		private void setWcet (int level, int wcet) {
+			if (level >= wcets.length) {
+				wcets = Arrays.copyOf(wcets, level + 1);
+				given = Arrays.copyOf(given, level + 1);
+			}
+			wcets[level] = wcet;
+			given[level] = true;
+		}
+
+		/**
+		 * First level without a WCET
+		 * @param levels
+		 * @return the level or -1 if all the levels have a WCET
+		 */
+		private int missingWcet (int levels) {
+			for (int i = 0; i < levels; i++) {
+				if (i >= given.length || !given[i])
+					return i;
+			}
+			return -1;
+		}
+
+		/**
+		 * WCETs of the first levels
+		 * @param levels
+		 * @return
+		 */
+		private int[] getWcets (int levels) {
+			return Arrays.copyOf(wcets, levels);
+		}
+	}
+
+	/**
+	 * DAG read and not built yet
+	 */
+	private static class DAGDescription {
+		private int deadline;
+		private List<ActorDescription> actors = new ArrayList<ActorDescription>();
+		private List<ActorDescription> ftms = new ArrayList<ActorDescription>();
+		private List<String> ports = new ArrayList<String>();
+		private boolean portsRead;
+
+		private DAGDescription (int deadline) {
+			this.deadline = deadline;
+		}
+	}
+
+	/**
+	 * Constructor of the reader
+	 * @param inputFile
+	 * @param dags set where the DAGs are added
+	 * @param availability true to read the vertices with their failure probabilities
+	 */
+	public MCSystemReader (String inputFile, Set<McDAG> dags, boolean availability) {
+		setInputFile(inputFile);
+		setDags(dags);
+		this.availability = availability;
+		setNbLevels(2);
+		pending = new ArrayList<DAGDescription>();
+	}
+
+	/**
+	 * Reads the file and adds its DAGs to the set
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void read () throws IOException, XMLStreamException {
+		InputStream in = new BufferedInputStream(new FileInputStream(inputFile));
+
+		try {
+			read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a system from a stream and adds its DAGs to the set, the stream is not closed
+	 * @param in
+	 * @throws XMLStreamException if the file is not a valid MC system
+	 */
+	public void read (InputStream in) throws XMLStreamException {
+		XMLStreamReader reader = null;
+
+		try {
+			reader = FACTORY.get().createXMLStreamReader(in);
+			while (reader.hasNext()) {
+				int event = reader.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT)
+					startElement(reader);
+				else if (event == XMLStreamConstants.END_ELEMENT)
+					endElement(reader.getLocalName());
+			}
+			if (!coresRead)
+				throw missing("<cores>");
+			if (!levelsRead)
+				throw missing("<levels>");
+		} catch (NumberFormatException e) {
+			throw new XMLStreamException("Invalid number in "+inputFile+": "+e.getMessage());
+		} finally {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	/**
+	 * Error for an element missing from the file
+	 * @param element
+	 * @return
+	 */
+	private XMLStreamException missing (String element) {
+		return new XMLStreamException("Missing "+element+" in "+inputFile);
+	}
+
+	/**
+	 * Reads the opening tag of an element, elements with a text are read entirely
+	 * @param reader
+	 * @throws XMLStreamException
+	 */
+	private void startElement (XMLStreamReader reader) throws XMLStreamException {
+		String name = reader.getLocalName();
+
+		if (name.equals("cores")) {
+			setNbCores(Integer.parseInt(reader.getAttributeValue(null, "number")));
+			coresRead = true;
+		} else if (name.equals("levels")) {
+			setNbLevels(Integer.parseInt(reader.getAttributeValue(null, "number")));
+			levelsRead = true;
+			buildPending();
+		} else if (name.equals("mcdag")) {
+			dag = new DAGDescription(Integer.parseInt(reader.getAttributeValue(null, "deadline")));
+		} else if (dag == null) {
+			return;
+		} else if (inPorts) {
+			dag.ports.add(reader.getAttributeValue(null, "srcActor"));
+			dag.ports.add(reader.getAttributeValue(null, "dstActor"));
+		} else if (name.equals("ports")) {
+			inPorts = true;
+			dag.portsRead = true;
+		} else if (name.equals("actor") || name.equals("ftm")) {
+			actor = new ActorDescription(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "type"));
+		} else if (actor == null) {
+			return;
+		} else if (name.equals("wcet")) {
+			int level = Integer.parseInt(reader.getAttributeValue(null, "number"));
+
+			actor.setWcet(level, Integer.parseInt(reader.getElementText().trim()));
+		} else if (name.equals("fprob")) {
+			actor.fProb = Double.parseDouble(reader.getElementText().trim());
+		} else if (name.equals("vtask")) {
+			actor.vTask = reader.getElementText().trim();
+		} else if (name.equals("replicas")) {
+			actor.replicas = Integer.parseInt(reader.getElementText().trim());
+		} else if (name.equals("m")) {
+			actor.m = Integer.parseInt(reader.getElementText().trim());
+		} else if (name.equals("k")) {
+			actor.k = Integer.parseInt(reader.getElementText().trim());
+		}
+	}
+
+	/**
+	 * Reads the closing tag of an element
+	 * @param name
+	 * @throws XMLStreamException
+	 */
+	private void endElement (String name) throws XMLStreamException {
+		if (dag == null)
+			return;
+
+		if (name.equals("actor")) {
+			dag.actors.add(actor);
+			actor = null;
+		} else if (name.equals("ftm")) {
+			dag.ftms.add(actor);
+			actor = null;
+		} else if (name.equals("ports")) {
+			inPorts = false;
+		} else if (name.equals("mcdag")) {
+			if (levelsRead)
+				build(dag);
+			else
+				pending.add(dag);
+			dag = null;
+		}
+	}
+
+	/**
+	 * Builds the DAGs that were waiting for the number of levels
+	 * @throws XMLStreamException
+	 */
+	private void buildPending () throws XMLStreamException {
+		for (DAGDescription d : pending)
+			build(d);
+		pending.clear();
+	}
+
+	/**
+	 * Builds a DAG from its description, vertices are numbered as in the file
+	 * and voters after the actors
+	 * @param d
+	 * @throws XMLStreamException if an element of the DAG is missing
+	 */
+	private void build (DAGDescription d) throws XMLStreamException {
+		McDAG ret = new McDAG();
+		int nbActors = 0;
+
+		if (!d.portsRead)
+			throw missing("<ports> of DAG "+count);
+		for (ActorDescription a : d.actors)
+			checkWcets(a);
+
+		ret.setId(count);
+		ret.setDeadline(d.deadline);
+		ret.setLevels(getNbLevels());
+
+		for (ActorDescription a : d.actors) {
+			Vertex v;
+
+			if (!availability) {
+				v = new VertexScheduling(nbActors++, a.name, getNbLevels());
+				v.setWcets(a.getWcets(getNbLevels()));
+			} else {
+				v = new VertexAvailability(nbActors++, a.name, a.getWcets(getNbLevels()));
+				((VertexScheduling) v).setfProb(a.fProb);
+			}
+			((VertexScheduling) v).setGraphID(count);
+			((VertexScheduling) v).setGraphDead(ret.getDeadline());
+			ret.getVertices().add(v);
+		}
+
+		for (ActorDescription f : d.ftms) {
+			if (!availability)
+				throw new XMLStreamException("Fault tolerance mechanism "+f.name+" read without the failure probabilities in "+inputFile);
+			if (f.type.contains("voter")) {
+				checkWcets(f);
+				if (f.vTask == null)
+					throw missing("<vtask> of <ftm> "+f.name);
+				if (f.replicas < 0)
+					throw missing("<replicas> of <ftm> "+f.name);
+				if (ret.getNodebyName(f.vTask) == null)
+					throw missing("actor "+f.vTask+" voted by <ftm> "+f.name);
+
+				VertexAvailability a = new VertexAvailability(nbActors++, f.name, f.getWcets(getNbLevels()));
+
+				a.setfMechanism(true);
+				a.setfMechType(VertexAvailability.VOTER);
+				a.setVotTask(f.vTask);
+				((VertexAvailability) ret.getNodebyName(f.vTask)).setVoted(true);
+				a.setNbReplicas(f.replicas);
+				ret.getVertices().add(a);
+			} else if (f.type.contains("mkfirm")) {
+				if (f.m < 0 || f.k < 0)
+					throw missing("<m> or <k> of <ftm> "+f.name);
+				if (ret.getNodebyName(f.name) == null)
+					throw missing("actor "+f.name+" of <ftm> "+f.name);
+
+				VertexAvailability a = (VertexAvailability) ret.getNodebyName(f.name);
+
+				a.setfMechanism(true);
+				a.setfMechType(VertexAvailability.MKFIRM);
+				a.setM(f.m);
+				a.setK(f.k);
+				a.setVoted(true);
+			} else {
+				System.err.println("[WARNING] Uknown fault tolerant mechanism.");
+			}
+		}
+
+		// Creating the edge adds it to the corresponding nodes
+		for (int i = 0; i < d.ports.size(); i += 2) {
+			Vertex src = ret.getNodebyName(d.ports.get(i));
+			Vertex dst = ret.getNodebyName(d.ports.get(i + 1));
+
+			if (src == null || dst == null)
+				throw missing("actor "+(src == null ? d.ports.get(i) : d.ports.get(i + 1))+" of a port of DAG "+count);
+			new Edge(src, dst);
+		}
+
+		dags.add(ret);
+		count++;
+	}
+
+	/**
+	 * Checks that an actor has a WCET in all the levels
+	 * @param a
+	 * @throws XMLStreamException
+	 */
+	private void checkWcets (ActorDescription a) throws XMLStreamException {
+		int level = a.missingWcet(getNbLevels());
+
+		if (level >= 0)
+			throw missing("<wcet number=\""+level+"\"> of actor "+a.name);
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public String getInputFile() {
+		return inputFile;
+	}
+
+	public void setInputFile(String inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	public Set<McDAG> getDags() {
+		return dags;
+	}
+
+	public void setDags(Set<McDAG> dags) {
+		this.dags = dags;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public void setNbCores(int nbCores) {
+		this.nbCores = nbCores;
+	}
+
+	public int getNbLevels() {
+		return nbLevels;
+	}
+
+	public void setNbLevels(int nbLevels) {
+		this.nbLevels = nbLevels;
+	}
+}
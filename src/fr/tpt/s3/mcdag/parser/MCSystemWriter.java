@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import fr.tpt.s3.mcdag.model.Edge;
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.VertexAvailability;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Streaming writer of the MC systems in the XML schema read by {@link MCSystemReader}:
+ * DAGs with their actors and ports, then the cores and the levels. DAGs and vertices
+ * are written by id so that they are numbered the same way when the file is read.
+ * Systems with fault tolerance mechanisms are refused.
+ * @author Roberto Medina
+ *
+ */
+public class MCSystemWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String INDENT = "    ";
+
+	private Collection<McDAG> dags;
+	private int nbCores;
+	private int nbLevels;
+
+	/**
+	 * Constructor of the writer
+	 * @param dags
+	 * @param nbCores
+	 * @param nbLevels
+	 */
+	public MCSystemWriter (Collection<McDAG> dags, int nbCores, int nbLevels) {
+		this.dags = dags;
+		this.nbCores = nbCores;
+		this.nbLevels = nbLevels;
+	}
+
+	/**
+	 * Writes the system into a file
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write (String file) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the system, the writer is not closed
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write (Writer out) throws IOException {
+		List<McDAG> sorted = new ArrayList<McDAG>(dags);
+		Collections.sort(sorted, new Comparator<McDAG>() {
+			@Override
+			public int compare (McDAG a, McDAG b) {
+				return Integer.compare(a.getId(), b.getId());
+			}
+		});
+
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		out.write("<mcsystem>\n");
+		for (McDAG d : sorted) {
+			List<Vertex> vs = new ArrayList<Vertex>(d.getVertices());
+			Collections.sort(vs, new Comparator<Vertex>() {
+				@Override
+				public int compare (Vertex a, Vertex b) {
+					return Integer.compare(a.getId(), b.getId());
+				}
+			});
+
+			out.write(INDENT+"<mcdag name=\"D"+d.getId()+"\" deadline=\""+d.getDeadline()+"\">\n");
+			for (Vertex v : vs) {
+				if (v instanceof VertexAvailability
+						&& (((VertexAvailability) v).isfMechanism() || ((VertexAvailability) v).isVoted()))
+					throw new IOException("Fault tolerance mechanisms can not be written by the system writer");
+				out.write(INDENT+INDENT+"<actor name=\""+SchedulingTableWriter.escape(v.getName())+"\">\n");
+				for (int i = 0; i < nbLevels; i++) {
+					int wcet = i < v.getWcets().length ? v.getWcet(i) : 0;
+
+					out.write(INDENT+INDENT+INDENT+"<wcet number=\""+i+"\">"+wcet+"</wcet>\n");
+				}
+				out.write(INDENT+INDENT+INDENT+"<fprob>"+((VertexScheduling) v).getfProb()+"</fprob>\n");
+				out.write(INDENT+INDENT+"</actor>\n");
+			}
+
+			out.write(INDENT+INDENT+"<ports>\n");
+			int counter = 0;
+			for (Vertex v : vs) {
+				for (Edge e : v.getSndEdges()) {
+					out.write(INDENT+INDENT+INDENT+"<port name=\"p"+counter+"\" srcActor=\""
+							+SchedulingTableWriter.escape(e.getSrc().getName())+"\" dstActor=\""
+							+SchedulingTableWriter.escape(e.getDest().getName())+"\"/>\n");
+					counter++;
+				}
+			}
+			out.write(INDENT+INDENT+"</ports>\n");
+			out.write(INDENT+"</mcdag>\n");
+		}
+		out.write(INDENT+"<cores number=\""+nbCores+"\"/>\n");
+		out.write(INDENT+"<levels number=\""+nbLevels+"\"/>\n");
+		out.write("</mcsystem>\n");
+	}
+}
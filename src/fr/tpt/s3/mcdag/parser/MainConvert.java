@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+
+/**
+ * Converts MC systems between the XML schema and the binary format: XML files
+ * are written next to the input with the binary extension and binary files as XML.
+ * Existing files are never overwritten.
+ * @author Roberto Medina
+ *
+ */
+public class MainConvert {
+
+	public static void main (String[] args) {
+		Options options = new Options();
+
+		Option input = new Option("i", "input", true, "MC-DAG XML or binary models");
+		input.setRequired(true);
+		input.setArgs(Option.UNLIMITED_VALUES);
+		options.addOption(input);
+
+		Option debugOpt = new Option("d", "debug", false, "Enabling debug.");
+		debugOpt.setRequired(false);
+		options.addOption(debugOpt);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd;
+
+		try {
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			formatter.printHelp("MC-DAG converter", options);
+
+			System.exit(1);
+			return;
+		}
+
+		boolean debug = cmd.hasOption("debug");
+		int errors = 0;
+
+		for (String file : cmd.getOptionValues("input")) {
+			boolean binary = MCSystemBinary.isBinary(file);
+			String base = file.lastIndexOf('.') > 0 ? file.substring(0, file.lastIndexOf('.')) : file;
+			String outFile = base.concat(binary ? ".xml" : MCSystemBinary.EXTENSION);
+			
+			// The system converted back is not written over its source
+			if (new File(outFile).exists()) {
+				System.err.println("[ERROR] Failed to convert "+file+": "+outFile+" already exists");
+				errors++;
+				continue;
+			}
+			Set<McDAG> dags = new HashSet<McDAG>();
+			// Vertices are read with their failure probabilities to keep them
+			MCParser mcp = new MCParser(file, null, dags, true);
+
+			try {
+				mcp.readXML();
+				mcp.writeSystem(outFile);
+				if (debug)
+					System.out.println("[DEBUG] "+file+" -> "+outFile+": "+dags.size()+" DAG(s).");
+			} catch (IOException e) {
+				System.err.println("[ERROR] Failed to convert "+file+": "+e.getMessage());
+				errors++;
+			}
+		}
+
+		if (errors > 0)
+			System.exit(1);
+	}
+}
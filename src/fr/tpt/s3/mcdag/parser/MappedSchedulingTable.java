@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+
+/**
+ * Scheduling tables read from a binary file written by {@link SchedulingTableWriter}.
+ * The file is mapped in memory and only the names of the tasks are decoded: the task
+ * running on a core at a slot is searched among the segments of the core in the file.
+ * Lookups only read the mapping and can be done from several threads.
+ * @author Roberto Medina
+ *
+ */
+public class MappedSchedulingTable {
+
+	public static final int MAGIC = 0x4d435354;
+	public static final int VERSION = 1;
+
+	// Bytes of a segment: start, length and task
+	private static final int SEGMENT_BYTES = 12;
+
+	private ByteBuffer buffer;
+	private int levels;
+	private int nbCores;
+	private int slots;
+	private String names[];
+
+	// Positions of the index of the cores and of the segments
+	private int index;
+	private int segments;
+
+	/**
+	 * Maps a binary file of scheduling tables
+	 * @param file
+	 * @throws IOException
+	 */
+	public MappedSchedulingTable (String file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			// The mapping stays valid once the channel is closed
+			FileChannel channel = raf.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+
+		if (buffer.remaining() < 24 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException("Not a binary scheduling table: "+file);
+
+		levels = buffer.getInt(8);
+		nbCores = buffer.getInt(12);
+		slots = buffer.getInt(16);
+		names = new String[buffer.getInt(20)];
+
+		int pos = 24;
+		for (int t = 0; t < names.length; t++) {
+			byte name[] = new byte[buffer.getInt(pos)];
+			ByteBuffer b = buffer.duplicate();
+
+			b.position(pos + 4);
+			b.get(name);
+			names[t] = new String(name, StandardCharsets.UTF_8);
+			pos += 4 + name.length;
+		}
+		index = pos;
+		segments = index + 8 * levels * nbCores;
+	}
+
+	/**
+	 * Checks a level and a core against the header
+	 * @param level
+	 * @param core
+	 * @throws IndexOutOfBoundsException
+	 */
+	private void checkCore (int level, int core) {
+		if (level < 0 || level >= levels)
+			throw new IndexOutOfBoundsException("Level "+level+" out of [0, "+levels+")");
+		if (core < 0 || core >= nbCores)
+			throw new IndexOutOfBoundsException("Core "+core+" out of [0, "+nbCores+")");
+	}
+
+	/**
+	 * Position of a segment of a core, checked against the header and the index
+	 * @param level
+	 * @param core
+	 * @param i
+	 * @return
+	 * @throws IndexOutOfBoundsException
+	 */
+	private int segment (int level, int core, int i) {
+		int nb = getNbSegments(level, core);
+
+		if (i < 0 || i >= nb)
+			throw new IndexOutOfBoundsException("Segment "+i+" out of [0, "+nb+")");
+		return first(level, core) + SEGMENT_BYTES * i;
+	}
+
+	/**
+	 * Position of the first segment of a core
+	 * @param level
+	 * @param core
+	 * @return
+	 */
+	private int first (int level, int core) {
+		return segments + SEGMENT_BYTES * buffer.getInt(index + 8 * (level * nbCores + core));
+	}
+
+	/**
+	 * Number of segments of a core
+	 * @param level
+	 * @param core
+	 * @return
+	 * @throws IndexOutOfBoundsException if the level or the core is out of the header
+	 */
+	public int getNbSegments (int level, int core) {
+		checkCore(level, core);
+		return buffer.getInt(index + 8 * (level * nbCores + core) + 4);
+	}
+
+	public int getStart (int level, int core, int i) {
+		return buffer.getInt(segment(level, core, i));
+	}
+
+	public int getLength (int level, int core, int i) {
+		return buffer.getInt(segment(level, core, i) + 4);
+	}
+
+	public int getTask (int level, int core, int i) {
+		return buffer.getInt(segment(level, core, i) + 8);
+	}
+
+	/**
+	 * Returns the task running on a core at a slot, the segments of the core
+	 * are sorted by their start
+	 * @param level
+	 * @param slot
+	 * @param core
+	 * @return the task id, SchedulingTable.IDLE if the core is idle
+	 * @throws IndexOutOfBoundsException if the level, the slot or the core is out of the header
+	 */
+	public int get (int level, int slot, int core) {
+		if (slot < 0 || slot >= slots)
+			throw new IndexOutOfBoundsException("Slot "+slot+" out of [0, "+slots+")");
+
+		int hi = getNbSegments(level, core) - 1;
+		int pos = first(level, core);
+		int lo = 0;
+
+		// Last segment starting at or before the slot
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+
+			if (buffer.getInt(pos + SEGMENT_BYTES * mid) <= slot)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		if (hi < 0)
+			return SchedulingTable.IDLE;
+
+		int seg = pos + SEGMENT_BYTES * hi;
+		if (slot < buffer.getInt(seg) + buffer.getInt(seg + 4))
+			return buffer.getInt(seg + 8);
+		return SchedulingTable.IDLE;
+	}
+
+	/**
+	 * Returns the name of the task running on a core at a slot
+	 * @param level
+	 * @param slot
+	 * @param core
+	 * @return
+	 */
+	public String getName (int level, int slot, int core) {
+		return getTaskName(get(level, slot, core));
+	}
+
+	public String getTaskName (int task) {
+		if (task == SchedulingTable.IDLE)
+			return SchedulingTable.IDLE_NAME;
+		return names[task];
+	}
+
+	/*
+	 * Getters
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	public int getNbTasks() {
+		return names.length;
+	}
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import fr.tpt.s3.mcdag.model.SchedulingSegments;
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+
+/**
+ * Streaming writer of the scheduling tables: the XML is written segment by segment
+ * of the tables, nothing but the buffer of the file is kept in memory.
+ * The tables are written as sched/Mode-i/core/slot, one slot element per slot.
+ * In the compact form each core holds run elements: a task running from a slot
+ * for a number of slots, the slots outside of the runs are idle.
+ * The binary form is read by {@link MappedSchedulingTable}: a header with the levels,
+ * cores, slots and the names of the tasks, then the first segment and the number
+ * of segments of each level and core, then the segments as (start, length, task).
+ * @author Roberto Medina
+ *
+ */
+public class SchedulingTableWriter {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String INDENT = "    ";
+
+	private SchedulingTable sched;
+	private int nbLevels;
+	private int nbCores;
+	private int hPeriod;
+	private boolean compact;
+
+	/**
+	 * Constructor of the writer
+	 * @param sched
+	 * @param nbLevels
+	 * @param nbCores
+	 * @param hPeriod slots written for each core
+	 */
+	public SchedulingTableWriter (SchedulingTable sched, int nbLevels, int nbCores, int hPeriod) {
+		this.sched = sched;
+		this.nbLevels = nbLevels;
+		this.nbCores = nbCores;
+		this.hPeriod = hPeriod;
+	}
+
+	/**
+	 * Writes the tables into a file
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write (String file) throws IOException {
+		checkTable();
+		
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the tables, the writer is not closed
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write (Writer out) throws IOException {
+		checkTable();
+		
+		SchedulingSegments segments = sched.getSegments();
+		String names[] = new String[sched.getNbTasks()];
+
+		for (int t = 0; t < names.length; t++)
+			names[t] = escape(sched.getTaskName(t));
+
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+		if (compact)
+			out.write("<sched slots=\""+hPeriod+"\">\n");
+		else
+			out.write("<sched>\n");
+
+		for (int i = 0; i < nbLevels; i++) {
+			out.write(INDENT+"<Mode-"+i+">\n");
+			for (int c = 0; c < nbCores; c++) {
+				out.write(INDENT+INDENT+"<core number=\""+c+"\">\n");
+
+				// Slots are written segment by segment, gaps are idle
+				int s = 0;
+				for (int j = 0; j < segments.getNbSegments(i, c) && s < hPeriod; j++) {
+					int start = Math.min(segments.getStart(i, c, j), hPeriod);
+					int end = Math.min(segments.getStart(i, c, j) + segments.getLength(i, c, j), hPeriod);
+					String name = names[segments.getTask(i, c, j)];
+
+					if (compact) {
+						if (end > start)
+							writeRun(out, start, end - start, name);
+						s = end;
+					} else {
+						for (; s < start; s++)
+							writeSlot(out, s, SchedulingTable.IDLE_NAME);
+						for (; s < end; s++)
+							writeSlot(out, s, name);
+					}
+				}
+				if (!compact) {
+					for (; s < hPeriod; s++)
+						writeSlot(out, s, SchedulingTable.IDLE_NAME);
+				}
+				out.write(INDENT+INDENT+"</core>\n");
+			}
+			out.write(INDENT+"</Mode-"+i+">\n");
+		}
+		out.write("</sched>\n");
+	}
+
+	/**
+	 * Checks that there are tables to write, before anything is opened
+	 * @throws IOException
+	 */
+	private void checkTable () throws IOException {
+		if (sched == null)
+			throw new IOException("No scheduling tables to write");
+	}
+
+	/**
+	 * Number of segments of a core written, the ones starting after the last slot are left out
+	 * @param segments
+	 * @param level
+	 * @param core
+	 * @return
+	 */
+	private int nbSegments (SchedulingSegments segments, int level, int core) {
+		int ret = 0;
+
+		while (ret < segments.getNbSegments(level, core) && segments.getStart(level, core, ret) < hPeriod)
+			ret++;
+		return ret;
+	}
+
+	/**
+	 * Writes the tables into a binary file
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeBinary (String file) throws IOException {
+		checkTable();
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		SchedulingSegments segments = sched.getSegments();
+
+		try {
+			out.writeInt(MappedSchedulingTable.MAGIC);
+			out.writeInt(MappedSchedulingTable.VERSION);
+			out.writeInt(nbLevels);
+			out.writeInt(nbCores);
+			out.writeInt(hPeriod);
+			out.writeInt(sched.getNbTasks());
+			for (int t = 0; t < sched.getNbTasks(); t++) {
+				byte name[] = sched.getTaskName(t).getBytes(StandardCharsets.UTF_8);
+
+				out.writeInt(name.length);
+				out.write(name);
+			}
+
+			int first = 0;
+			for (int i = 0; i < nbLevels; i++) {
+				for (int c = 0; c < nbCores; c++) {
+					int n = nbSegments(segments, i, c);
+
+					out.writeInt(first);
+					out.writeInt(n);
+					first += n;
+				}
+			}
+
+			for (int i = 0; i < nbLevels; i++) {
+				for (int c = 0; c < nbCores; c++) {
+					int n = nbSegments(segments, i, c);
+
+					for (int j = 0; j < n; j++) {
+						int start = segments.getStart(i, c, j);
+
+						out.writeInt(start);
+						out.writeInt(Math.min(segments.getLength(i, c, j), hPeriod - start));
+						out.writeInt(segments.getTask(i, c, j));
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeSlot (Writer out, int s, String name) throws IOException {
+		out.write(INDENT+INDENT+INDENT+"<slot slot=\"");
+		out.write(Integer.toString(s));
+		out.write("\">");
+		out.write(name);
+		out.write("</slot>\n");
+	}
+
+	private static void writeRun (Writer out, int start, int length, String name) throws IOException {
+		out.write(INDENT+INDENT+INDENT+"<run start=\"");
+		out.write(Integer.toString(start));
+		out.write("\" length=\"");
+		out.write(Integer.toString(length));
+		out.write("\">");
+		out.write(name);
+		out.write("</run>\n");
+	}
+
+	/**
+	 * Escapes the characters of a text that are not allowed in XML
+	 * @param text
+	 * @return
+	 */
+	static String escape (String text) {
+		StringBuilder ret = null;
+
+		for (int i = 0; i < text.length(); i++) {
+			char ch = text.charAt(i);
+			String rep = ch == '&' ? "&amp;" : ch == '<' ? "&lt;" : ch == '>' ? "&gt;" : ch == '"' ? "&quot;" : null;
+
+			if (rep != null && ret == null)
+				ret = new StringBuilder(text.substring(0, i));
+			if (ret != null)
+				ret.append(rep != null ? rep : String.valueOf(ch));
+		}
+		return ret == null ? text : ret.toString();
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public boolean isCompact() {
+		return compact;
+	}
+
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+}
@@ -0,0 +1,481 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.McSystem;
+
+/**
+ * Bulk loader of MC systems. Sources are files, directories, globs or zip and tar
+ * archives of XML and binary systems. A thread lists the sources and hands the files
+ * to a pool of parsers, parsed systems are taken by the consumers from a queue.
+ * At most the number of parsers plus the capacity of systems are read ahead of the
+ * consumers: the listing waits for the consumers, whatever the number of files.
+ * Scheduling tables and traces written by the framework are not listed from
+ * directories and archives. Systems of an archive are named after the archive and
+ * their path in it, as if they were next to the archive: a.zip!dir/s.xml is
+ * a-dir-s.xml. Systems come in the order they are parsed.
+ * @author Roberto Medina
+ *
+ */
+public class SystemLoader {
+
+	private static final int TAR_BLOCK = 512;
+
+	// Files the framework writes next to the systems, they are not listed as systems
+	private static final String OUTPUT_SUFFIXES[] = {"-sched.xml", "-sched.bin", "-trace.bin"};
+
+	// Marks the end of the systems in the queue
+	private static final McSystem END = new McSystem(null, null, 0, 0);
+
+	private List<String> sources;
+	private int nbJobs;
+	private int capacity;
+	// Vertices read with their failure probabilities
+	private boolean availability;
+
+	private Thread lister;
+	private ExecutorService parsers;
+	private Semaphore permits;
+	private BlockingQueue<McSystem> loaded;
+	private boolean done;
+	private AtomicInteger nbFailed;
+
+	/**
+	 * Constructor of the loader
+	 * @param sources files, directories, globs or archives
+	 * @param nbJobs number of parsers
+	 * @param capacity systems parsed ahead of the consumers
+	 * @param availability true to read the vertices with their failure probabilities
+	 */
+	public SystemLoader (String sources[], int nbJobs, int capacity, boolean availability) {
+		this.sources = Arrays.asList(sources);
+		this.nbJobs = Math.max(1, nbJobs);
+		this.capacity = Math.max(0, capacity);
+		this.availability = availability;
+		nbFailed = new AtomicInteger();
+	}
+
+	/**
+	 * Pool for the consumers of the systems: once all the workers are busy and as many
+	 * tasks wait, the thread submitting a task runs it. Systems taken from the loader
+	 * are then limited by the pool.
+	 * @param nbJobs
+	 * @return
+	 */
+	public static ExecutorService newBoundedPool (int nbJobs) {
+		return new ThreadPoolExecutor(nbJobs, nbJobs, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(nbJobs), new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Starts listing and parsing the sources
+	 */
+	public void start () {
+		permits = new Semaphore(nbJobs + capacity);
+		// A permit is held by each system until it is taken, the end always fits
+		loaded = new ArrayBlockingQueue<McSystem>(nbJobs + capacity + 1);
+		parsers = Executors.newFixedThreadPool(nbJobs);
+
+		lister = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (String source : sources)
+						list(source);
+				} catch (InterruptedException e) {
+					parsers.shutdownNow();
+				} finally {
+					parsers.shutdown();
+					try {
+						parsers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+					} catch (InterruptedException e) {
+						parsers.shutdownNow();
+					}
+					loaded.offer(END);
+				}
+			}
+		}, "SystemLoader");
+		lister.start();
+	}
+
+	/**
+	 * Returns the next parsed system, waiting for it to be parsed
+	 * @return the system, null once all the sources are loaded
+	 * @throws InterruptedException
+	 */
+	public McSystem take () throws InterruptedException {
+		if (done)
+			return null;
+
+		McSystem ret = loaded.take();
+		if (ret == END) {
+			done = true;
+			return null;
+		}
+		permits.release();
+		return ret;
+	}
+
+	/**
+	 * Stops listing and parsing the sources
+	 */
+	public void close () {
+		if (lister != null)
+			lister.interrupt();
+	}
+
+	/*
+	 * Listing of the sources
+	 */
+	private static boolean isSystem (String name) {
+		String n = name.toLowerCase(Locale.ROOT);
+
+		for (String suffix : OUTPUT_SUFFIXES) {
+			if (n.endsWith(suffix))
+				return false;
+		}
+		return n.endsWith(".xml") || n.endsWith(MCSystemBinary.EXTENSION);
+	}
+
+	private static boolean isArchive (String name) {
+		String n = name.toLowerCase(Locale.ROOT);
+
+		return n.endsWith(".zip") || n.endsWith(".tar") || n.endsWith(".tar.gz") || n.endsWith(".tgz");
+	}
+
+	private static boolean isGlob (String source) {
+		for (char c : "*?[{".toCharArray()) {
+			if (source.indexOf(c) >= 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Lists a source, errors are reported and the source is skipped
+	 * @param source
+	 * @throws InterruptedException
+	 */
+	private void list (String source) throws InterruptedException {
+		File f = new File(source);
+
+		try {
+			if (f.isDirectory())
+				listDirectory(f);
+			else if (!f.exists() && isGlob(source))
+				listGlob(source);
+			else
+				listFile(f);
+		} catch (IOException e) {
+			System.err.println("[ERROR] Unable to list the systems of "+source+": "+e.getMessage());
+			nbFailed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Lists the systems and archives of a directory and its subdirectories by name
+	 * @param dir
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void listDirectory (File dir) throws IOException, InterruptedException {
+		File files[] = dir.listFiles();
+
+		if (files == null)
+			throw new IOException("Unable to read the directory "+dir);
+		Arrays.sort(files);
+		for (File f : files) {
+			if (f.isDirectory())
+				listDirectory(f);
+			else if (isSystem(f.getName()) || isArchive(f.getName()))
+				listFile(f);
+		}
+	}
+
+	/**
+	 * Lists the files matching a glob, the walk starts from the directories before
+	 * the first wildcard
+	 * @param glob
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void listGlob (String glob) throws IOException, InterruptedException {
+		int wildcard = glob.length();
+		for (char c : "*?[{".toCharArray()) {
+			if (glob.indexOf(c) >= 0)
+				wildcard = Math.min(wildcard, glob.indexOf(c));
+		}
+		int sep = glob.lastIndexOf(File.separatorChar, wildcard);
+
+		// Paths of the walk start as the glob
+		final Path base = Paths.get(sep < 0 ? "." : glob.substring(0, sep + 1));
+		final boolean relative = sep < 0;
+		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:"+glob);
+		final List<Path> matched = new ArrayList<Path>();
+
+		Files.walkFileTree(base, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile (Path file, BasicFileAttributes attrs) {
+				Path p = relative ? base.relativize(file) : file;
+
+				if (attrs.isRegularFile() && matcher.matches(p))
+					matched.add(p);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(matched);
+		for (Path p : matched)
+			listFile(p.toFile());
+	}
+
+	/**
+	 * Lists a file, archives are opened and their systems listed
+	 * @param f
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void listFile (File f) throws IOException, InterruptedException {
+		String n = f.getName().toLowerCase(Locale.ROOT);
+
+		if (n.endsWith(".zip"))
+			listZip(f);
+		else if (n.endsWith(".tar"))
+			listTar(f, new BufferedInputStream(new FileInputStream(f)));
+		else if (n.endsWith(".tar.gz") || n.endsWith(".tgz"))
+			listTar(f, new GZIPInputStream(new BufferedInputStream(new FileInputStream(f))));
+		else
+			submit(f.getPath(), null);
+	}
+
+	/**
+	 * Name of a system of an archive
+	 * @param archive
+	 * @param entry
+	 * @return
+	 */
+	private static String entryName (File archive, String entry) {
+		String path = archive.getPath();
+		String n = path.toLowerCase(Locale.ROOT);
+		int ext = n.endsWith(".tar.gz") ? 7 : n.endsWith(".tgz") ? 4 : n.endsWith(".zip") || n.endsWith(".tar") ? 4 : 0;
+
+		return path.substring(0, path.length() - ext)+"-"+entry.replace('/', '-');
+	}
+
+	private static byte[] readEntry (InputStream in, long size) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size > 0 ? (int) size : 8192);
+		byte buf[] = new byte[8192];
+		long left = size < 0 ? Long.MAX_VALUE : size;
+
+		while (left > 0) {
+			int r = in.read(buf, 0, (int) Math.min(buf.length, left));
+
+			if (r < 0) {
+				if (size >= 0)
+					throw new EOFException("Truncated archive entry");
+				break;
+			}
+			out.write(buf, 0, r);
+			left -= r;
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Lists the systems of a zip archive, entries are read one after the other
+	 * @param f
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void listZip (File f) throws IOException, InterruptedException {
+		ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(f)));
+
+		try {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				if (!entry.isDirectory() && isSystem(entry.getName())) {
+					// Read once there is room for it
+					permits.acquire();
+					submitHeld(entryName(f, entry.getName()), readEntry(in, entry.getSize()));
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Lists the systems of a tar archive, ustar names and regular files only
+	 * @param f
+	 * @param in
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private void listTar (File f, InputStream in) throws IOException, InterruptedException {
+		try {
+			while (true) {
+				byte header[] = readEntry(in, TAR_BLOCK);
+
+				// An empty block ends the archive
+				if (header[0] == 0)
+					break;
+
+				String name = tarString(header, 0, 100);
+				String prefix = tarString(header, 345, 155);
+				String octal = tarString(header, 124, 12).trim();
+				long size = octal.isEmpty() ? 0 : Long.parseLong(octal, 8);
+				byte type = header[156];
+				long padded = (size + TAR_BLOCK - 1) / TAR_BLOCK * TAR_BLOCK;
+
+				if (!prefix.isEmpty())
+					name = prefix+"/"+name;
+				if ((type == '0' || type == 0) && isSystem(name)) {
+					permits.acquire();
+					submitHeld(entryName(f, name), readEntry(in, size));
+					skip(in, padded - size);
+				} else {
+					skip(in, padded);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String tarString (byte header[], int offset, int length) {
+		int end = offset;
+
+		while (end < offset + length && header[end] != 0)
+			end++;
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	private static void skip (InputStream in, long n) throws IOException {
+		while (n > 0) {
+			long s = in.skip(n);
+
+			if (s <= 0) {
+				if (in.read() < 0)
+					throw new EOFException("Truncated tar archive");
+				s = 1;
+			}
+			n -= s;
+		}
+	}
+
+	/*
+	 * Parsing of the systems
+	 */
+	private void submit (String name, byte content[]) throws InterruptedException {
+		permits.acquire();
+		submitHeld(name, content);
+	}
+
+	/**
+	 * Parses a file or the content of an archive entry in the pool, the permit
+	 * of the system is already held
+	 * @param name
+	 * @param content null to read the file
+	 */
+	private void submitHeld (final String name, final byte content[]) {
+		parsers.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					loaded.put(parse(name, content));
+				} catch (Exception e) {
+					System.err.println("[ERROR] Unable to read the system "+name+": "+e);
+					nbFailed.incrementAndGet();
+					permits.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Parses a system with the parsers of the thread
+	 * @param name
+	 * @param content
+	 * @return
+	 * @throws Exception
+	 */
+	private McSystem parse (String name, byte content[]) throws Exception {
+		Set<McDAG> dags = new HashSet<McDAG>();
+		boolean binary = content != null ? MCSystemBinary.isBinary(content) : MCSystemBinary.isBinary(name);
+
+		if (binary) {
+			MCSystemBinary bin = new MCSystemBinary(name);
+
+			if (content != null)
+				bin.read(ByteBuffer.wrap(content), dags, availability);
+			else
+				bin.read(dags, availability);
+			return new McSystem(name, dags, bin.getNbCores(), bin.getNbLevels());
+		}
+
+		MCSystemReader reader = new MCSystemReader(name, dags, availability);
+		if (content != null)
+			reader.read(new ByteArrayInputStream(content));
+		else
+			reader.read();
+		return new McSystem(name, dags, reader.getNbCores(), reader.getNbLevels());
+	}
+
+	/*
+	 * Getters
+	 */
+	public int getNbFailed() {
+		return nbFailed.get();
+	}
+}
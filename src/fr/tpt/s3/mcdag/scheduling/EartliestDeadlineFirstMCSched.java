@@ -16,10 +16,7 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.scheduling;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Hashtable;
-import java.util.List;
 import java.util.Set;
 
 import fr.tpt.s3.mcdag.model.McDAG;
@@ -39,17 +36,17 @@ public class EartliestDeadlineFirstMCSched extends GlobalGenericMCScheduler {
 		setCountPreempt(preemption);
 		setDebug(debug);
 		
-		for (McDAG d : getMcDAGs()) {
-			calcDedlines(d);
-			if (isDebug()) printDeadlines(d);
-		}
-		
 		if (isCountPreempt())
 			setPreemptions(new Hashtable<VertexScheduling, Integer>());
 	}
 
 	@Override
-	protected boolean verifyConstraints(List<VertexScheduling> ready, int slot, int level) {
+	protected GlobalGenericMCScheduler newScheduler(Set<McDAG> dags, int cores) {
+		return new EartliestDeadlineFirstMCSched(dags, cores, getLevels(), isDebug(), isCountPreempt());
+	}
+	
+	@Override
+	protected boolean verifyConstraints(ReadyQueue ready, int slot, int level) {
 		int sumSlotsLeft = 0;
 		
 		for (VertexScheduling v : ready) {
@@ -58,7 +55,7 @@ public class EartliestDeadlineFirstMCSched extends GlobalGenericMCScheduler {
 			if (level >= 1)
 				relatSlot =  (gethPeriod() - slot - 1) % v.getGraphDead();
 			
-			if (relatSlot > v.getDeadlines()[level]) {
+			if (relatSlot > getDeadline(v, level)) {
 				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): deadline not respected for "+v.getName());
 				return false;
 			}
@@ -81,66 +78,56 @@ public class EartliestDeadlineFirstMCSched extends GlobalGenericMCScheduler {
 	}
 
 	@Override
-	protected void sortHI(List<VertexScheduling> ready, int slot, final int level) {
+	protected int priorityHI(VertexScheduling v, int slot, int level) {
 		// Check if tasks need to be delayed first
-		for (VertexScheduling v : ready) {
-			if (level != getLevels() - 1) {
-				int delta = v.getWcet(level + 1) - v.getWcet(level);
-				
-				if (scheduledUntilTinLreverse(v, slot, level + 1) <= delta) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] sortHI(): Task "+v.getName()+" needs to be delayed at slot @t = "+slot);
-					v.setWeightInL(Integer.MAX_VALUE, level);
-					v.setDelayed(true);
-				} else {
-					v.setWeightInL(v.getDeadlines()[level], level);
-					v.setDelayed(false);
-				}
-			} else {
-				v.setWeightInL(v.getDeadlines()[level], level);
-				v.setDelayed(false);
+		if (level != getLevels() - 1) {
+			int delta = v.getWcet(level + 1) - v.getWcet(level);
+			
+			if (scheduledUntilTinLreverse(v, slot, level + 1) <= delta) {
+				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] priorityHI(): Task "+v.getName()+" needs to be delayed at slot @t = "+slot);
+				setDelayed(v, level, true);
+				return Integer.MAX_VALUE;
 			}
 		}
-		
-		// Order the list accordingly
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getWeights()[level] - o2.getWeights()[level] != 0)
-					return o1.getWeights()[level] - o2.getWeights()[level];
-				else
-					return o1.getId() - o2.getId();
-			}
-		});
+		setDelayed(v, level, false);
+		return getDeadline(v, level);
 	}
 
+	/**
+	 * Deadlines are fixed, the order only changes with promotions and delays
+	 */
 	@Override
-	protected void sortLO(List<VertexScheduling> ready, int slot, int level) {
-		// If it's a HI task verify that mode transition is respected
+	protected int stableSlots(ReadyQueue ready, int slot, int level) {
+		int allocated = 0;
+		int ret = gethPeriod();
+		
 		for (VertexScheduling v : ready) {
-			int dagId = v.getGraphId();
+			boolean running = isRunning(ready, v, level);
 			
-			if (v.getWcet(level + 1) > 0) {
-				// Promotion needed for the task
-				if ((v.getWcet(level) - getRemainingTime()[level][dagId][v.getId()]) - scheduledUntilTinL(v, slot, level + 1) < 0) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] sortLO(): Promotion of task "+v.getName()+" at slot @t = "+slot);
-					v.setWeightInL(0, level);
-				} else {
-					v.setWeightInL(v.getDeadlines()[level], level);
-				}
-			} else {
-				v.setWeightInL(v.getDeadlines()[level], level);
-			}
+			if (running)
+				allocated++;
+			
+			if (level == 0)
+				ret = Math.min(ret, promotionStableSlots(v, running, slot, level));
+			else
+				ret = Math.min(ret, delayStableSlots(v, slot, level, 0));
+			
+			// Deadline has to be respected
+			ret = Math.min(ret, getDeadline(v, level) - slot % v.getGraphDead());
 		}
-		// Sort the ready list
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling arg0, VertexScheduling arg1) {
-				if (arg0.getWeights()[0] - arg1.getWeights()[0] != 0)
-					return arg0.getWeights()[0] - arg1.getWeights()[0];
-				else
-					return arg0.getId() - arg1.getId();
-			}
-		});
+		ret = Math.min(ret, slackStableSlots(allocated, slot, level));
+		
+		return Math.max(ret, 0) + 1;
+	}
+
+	@Override
+	protected int priorityLO(VertexScheduling v, int slot, int level) {
+		// If it's a HI task verify that mode transition is respected
+		if (needsPromotion(v, slot, level)) {
+			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] priorityLO(): Promotion of task "+v.getName()+" at slot @t = "+slot);
+			return 0;
+		}
+		return getDeadline(v, level);
 	}
 
 }
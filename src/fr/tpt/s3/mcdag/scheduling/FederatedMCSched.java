@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 
+import fr.tpt.s3.mcdag.model.SchedulingTable;
 import fr.tpt.s3.mcdag.model.Vertex;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
 import fr.tpt.s3.mcdag.scheduling.old.AbstractMixedCriticalityScheduler;
@@ -51,11 +52,20 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 	private Comparator<VertexScheduling> loComp;
 	private Comparator<VertexScheduling> hiComp;
 	
+	// Working state of the tasks of the table being built
+	private SchedulingContext context;
+	
 	private int activations;
 	private Hashtable<VertexScheduling, Integer> preempts;
 	
 	private boolean debug;
 	
+	// Set by another thread to stop the run at the next slot
+	private volatile boolean cancelled;
+	
+	// Metrics of the construction of the tables, null when disabled
+	private SchedulerMetrics metrics;
+	
 	/**
 	 * Constructor
 	 * @param system
@@ -68,8 +78,8 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		setLoComp(new Comparator<VertexScheduling>() {
 			@Override
 			public int compare (VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getHlfet()[0] - o2.getHlfet()[0] != 0)
-					return o1.getHlfet()[0] - o2.getHlfet()[0];
+				if (context.getHlfet(o1, 0) - context.getHlfet(o2, 0) != 0)
+					return context.getHlfet(o1, 0) - context.getHlfet(o2, 0);
 				else
 					return o1.getId() - o2.getId();
 			}
@@ -77,8 +87,8 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		setHiComp(new Comparator<VertexScheduling>() {
 			@Override
 			public int compare (VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getHlfet()[1] - o2.getHlfet()[1] != 0)
-					return o1.getHlfet()[1] - o2.getHlfet()[1];
+				if (context.getHlfet(o1, 1) - context.getHlfet(o2, 1) != 0)
+					return context.getHlfet(o1, 1) - context.getHlfet(o2, 1);
 				else
 					return o1.getId() - o2.getId();
 			}
@@ -144,12 +154,12 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			for (Edge e : a.getSndEdges()) {
 				VertexScheduling dest = (VertexScheduling) e.getDest();
 				if (dest.getWcet(level) != 0 &&
-						dest.getHlfet()[level] > max) {
-					max = dest.getHlfet()[level];
+						context.getHlfet(dest, level) > max) {
+					max = context.getHlfet(dest, level);
 				}
 			}
-			a.getHlfet()[level] = max + a.getWcet(level);
-			a.getVisitedL()[level] = true;
+			context.setHlfet(a, level, max + a.getWcet(level));
+			context.setVisited(a, level, true);
 
 			for (Edge e : a.getRcvEdges()) {
 				boolean allSuccVisited = true;
@@ -157,7 +167,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 				
 				for (Edge e2 : test.getSndEdges()) {
 					VertexScheduling dest = (VertexScheduling) e2.getDest();
-					if (!dest.getVisitedL()[level] && dest.getWcet(level) != 0) {
+					if (!context.isVisited(dest, level) && dest.getWcet(level) != 0) {
 						allSuccVisited = false;
 						break;
 					}
@@ -177,14 +187,82 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		Collections.sort(prioOrder, new Comparator<VertexScheduling>() {
 			@Override
 			public int compare(VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getHlfet()[level] - o2.getHlfet()[level] != 0)
-					return o1.getHlfet()[level] - o2.getHlfet()[level];
+				if (context.getHlfet(o1, level) - context.getHlfet(o2, level) != 0)
+					return context.getHlfet(o1, level) - context.getHlfet(o2, level);
 				else
 					return o1.getId() - o2.getId();
 			}	
 		});	
 	}
 	
+	/**
+	 * Stops the run from another thread: the tables stop being built at the next slot
+	 */
+	public void cancel () {
+		cancelled = true;
+	}
+	
+	private void checkCancelled (String function, int slot) throws SchedulingException {
+		if (cancelled) {
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] "+function+"(): Cancelled at slot "+slot+".");
+			throw se;
+		}
+	}
+	
+	/**
+	 * Sorts a ready list, sorts and comparisons are counted when the metrics are enabled
+	 * @param list
+	 * @param comp
+	 * @param level
+	 */
+	private void sort (List<VertexScheduling> list, final Comparator<VertexScheduling> comp, final int level) {
+		if (metrics == null) {
+			Collections.sort(list, comp);
+			return;
+		}
+		
+		metrics.sort(level);
+		Collections.sort(list, new Comparator<VertexScheduling>() {
+			@Override
+			public int compare (VertexScheduling o1, VertexScheduling o2) {
+				metrics.comparison(level);
+				return comp.compare(o1, o2);
+			}
+		});
+	}
+	
+	/**
+	 * Counts the slot built in a level with the length of its ready list
+	 * @param level
+	 * @param ready
+	 */
+	private void countSlot (int level, int ready) {
+		if (metrics != null) {
+			metrics.slots(level, 1);
+			metrics.readyLength(level, ready);
+		}
+	}
+	
+	private void countActivation (int level) {
+		if (metrics != null)
+			metrics.activation(level);
+	}
+	
+	private void startLevel (int level) {
+		if (metrics != null)
+			metrics.startLevel(level);
+	}
+	
+	private void endLevel (int level) {
+		if (metrics != null)
+			metrics.endLevel(level);
+	}
+	
+	private void countTable (SchedulingTable sched) {
+		if (metrics != null)
+			metrics.tableBytes(sched.getBytes());
+	}
+	
 	private boolean enoughSlots (List<VertexScheduling> ready, int slot, int deadline, int cores, int remainingTime[]) {
 		int sumReady = 0;
 		int rSlots = ((deadline -1) - slot) * cores;
@@ -198,7 +276,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		return true;
 	}
 	
-	private void checkNewActivations (List<VertexScheduling> scheduled, List<VertexScheduling> ready, int remainingTime[]) {
+	private void checkNewActivations (List<VertexScheduling> scheduled, List<VertexScheduling> ready, int remainingTime[], int level) {
 		// Check from the scheduled tasks the new activations
 		ListIterator<VertexScheduling> lit = scheduled.listIterator();
 		while (lit.hasNext()) {
@@ -219,6 +297,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 				
 				if (add && remainingTime[dest.getId()] != 0) {
 					ready.add(dest);
+					countActivation(level);
 				}
 			}
 			lit.remove();
@@ -226,7 +305,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		}
 	}
 	
-	private void buildHITable (McDAG d, String sched[][][], List<VertexScheduling> prioOrder) throws SchedulingException {
+	private void buildHITable (McDAG d, SchedulingTable sched, List<VertexScheduling> prioOrder) throws SchedulingException {
 		
 		List<VertexScheduling> ready = new LinkedList<VertexScheduling>();
 		List<VertexScheduling> scheduled = new LinkedList<VertexScheduling>();
@@ -239,20 +318,24 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		
 		for (Vertex a : d.getVertices()) {
 			if (a.getRcvEdges().size() == 0 &&
-					a.getWcet(1) != 0)
+					a.getWcet(1) != 0) {
 				ready.add((VertexScheduling)a);
+				countActivation(1);
+			}
 		}
 		
-		Collections.sort(ready, hiComp);
+		sort(ready, hiComp, 1);
 		
 		ListIterator<VertexScheduling> pit = prioOrder.listIterator();
 
 		// Iterate through the number of cores
 		for (int s = 0; s < d.getDeadline(); s++) {
+			checkCancelled("buildHITable", s);
+			countSlot(1, ready.size());
 			if (isDebug()) {
 				System.out.print("[DEBUG "+Thread.currentThread().getName()+"] buildHITable(): @t = "+s+", tasks activated: ");
 				for (VertexScheduling a : ready)
-					System.out.print("H("+a.getName()+") = "+a.getHlfet()[1]+"; ");
+					System.out.print("H("+a.getName()+") = "+context.getHlfet(a, 1)+"; ");
 				System.out.println("");
 			}
 			
@@ -271,12 +354,12 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 				
 				// 	The priority actor is in the ready queue
 				if (ready.contains(a)) {
-					if (a.isRunning()) { // Task was already running previous slot
+					if (context.isRunning(a)) { // Task was already running previous slot
 						coreBudget--;
 						toSched.add(a);
 					} else  { // Check if other tasks were running
 						for (VertexScheduling check : ready) {
-							if (check.isRunning() && !toSched.contains(check)) {
+							if (context.isRunning(check) && !toSched.contains(check)) {
 								coreBudget--;
 								toSched.add(check);
 							}
@@ -285,7 +368,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 					// If no other task was running start scheduling
 					if (coreBudget > 0 && !toSched.contains(a)) {
 						toSched.add(a);
-						a.setRunning(true);
+						context.setRunning(a, true);
 						coreBudget--;
 					}
 				}
@@ -294,7 +377,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			// Allocate
 			int c = 0;
 			for (VertexScheduling a : toSched) {
-				sched[1][s][c] = a.getName();	
+				sched.set(1, s, c, a);	
 				remainingTime[a.getId()] = remainingTime[a.getId()] - 1;
 
 				if (remainingTime[a.getId()] == 0) {
@@ -306,8 +389,8 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			
 			// Check if we have new activations
 			if (taskFinished) {
-				checkNewActivations(scheduled, ready, remainingTime);
-				Collections.sort(ready, hiComp);
+				checkNewActivations(scheduled, ready, remainingTime, 1);
+				sort(ready, hiComp, 1);
 				taskFinished = false;
 			}
 			pit = prioOrder.listIterator();
@@ -318,7 +401,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		}
 	}
 	
-	private void buildLOTable (McDAG d, String sched[][][], List<VertexScheduling> loPrioOrder, List<VertexScheduling> hiPrioOrder) throws SchedulingException {
+	private void buildLOTable (McDAG d, SchedulingTable sched, List<VertexScheduling> loPrioOrder, List<VertexScheduling> hiPrioOrder) throws SchedulingException {
 		List<VertexScheduling> ready = new LinkedList<VertexScheduling>();
 		List<VertexScheduling> scheduled = new LinkedList<VertexScheduling>();
 		int[] remainingTime = new int[d.getVertices().size()];
@@ -328,20 +411,24 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		initRemainingTimes(d, remainingTime, 0);
 		
 		for (Vertex a : d.getVertices()) {
-			if (a.getRcvEdges().size() == 0)
+			if (a.getRcvEdges().size() == 0) {
 				ready.add((VertexScheduling)a);
+				countActivation(0);
+			}
 		}
 		
-		Collections.sort(ready, loComp);
+		sort(ready, loComp, 0);
 		ListIterator<VertexScheduling> hpit = hiPrioOrder.listIterator();
 		ListIterator<VertexScheduling> lpit = loPrioOrder.listIterator();
 
 		// Iterate through the number of slots
 		for (int s = 0; s < d.getDeadline(); s++) {
+			checkCancelled("buildLOTable", s);
+			countSlot(0, ready.size());
 			if (isDebug()) {
 				System.out.print("[DEBUG "+Thread.currentThread().getName()+"] buildLOTable(): @t = "+s+", tasks activated: ");
 				for (VertexScheduling a : ready)
-					System.out.print("H("+a.getName()+") = "+a.getHlfet()[0]+"; ");
+					System.out.print("H("+a.getName()+") = "+context.getHlfet(a, 0)+"; ");
 				System.out.println("");
 			}
 			
@@ -361,12 +448,12 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 				
 				// Priority task is in the ready queue
 				if (ready.contains(a)) { 
-					if (a.isRunning()) { // Task was already running previous slot
+					if (context.isRunning(a)) { // Task was already running previous slot
 						coreBudget--;
 						toSched.add(a);
 					}  else  { // Check if other HI tasks were running
 						for (VertexScheduling check : ready) {
-							if (check.isRunning() && !toSched.contains(check) 
+							if (context.isRunning(check) && !toSched.contains(check) 
 									&& check.getWcet(1) != 0 && coreBudget > 0) {
 								coreBudget--;
 								toSched.add(check);
@@ -376,7 +463,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 					// In this case HI tasks can preempt LO ones
 					if (coreBudget > 0 && !toSched.contains(a)) {
 						toSched.add(a);
-						a.setRunning(true);
+						context.setRunning(a, true);
 						coreBudget--;
 					}
 				}
@@ -387,24 +474,24 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 				VertexScheduling a = lpit.next();
 				
 				if (ready.contains(a)) { // LO task is ready
-					if (a.isRunning()) {
+					if (context.isRunning(a)) {
 						coreBudget--;
 						toSched.add(a);
 					} else { // Check if other LO tasks were already running
 						for (VertexScheduling check : ready) {
-							if (check.isRunning() && check.getWcet(1) == 0 &&
+							if (context.isRunning(check) && check.getWcet(1) == 0 &&
 									!toSched.contains(check) && coreBudget > 0) {
 								coreBudget--;
 								toSched.add(check);
-							} else if (check.isRunning() && coreBudget <= 0) {
-								check.setRunning(false);
+							} else if (context.isRunning(check) && coreBudget <= 0) {
+								context.setRunning(check, false);
 							}
 						}
 					}
 					// LO task can start being scheduled
 					if (coreBudget > 0 && !toSched.contains(a)) {
 						toSched.add(a);
-						a.setRunning(true);
+						context.setRunning(a, true);
 						coreBudget--;
 					}
 				}
@@ -413,7 +500,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			// Allocate
 			int c = 0;
 			for (VertexScheduling a : toSched) {
-				sched[0][s][c] = a.getName();
+				sched.set(0, s, c, a);
 				remainingTime[a.getId()] = remainingTime[a.getId()] - 1;
 
 				if (remainingTime[a.getId()] == 0) {
@@ -425,8 +512,8 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			
 			// Check if we have new activations
 			if (taskFinished) {
-				checkNewActivations(scheduled, ready, remainingTime);
-				Collections.sort(ready, loComp);
+				checkNewActivations(scheduled, ready, remainingTime, 0);
+				sort(ready, loComp, 0);
 				taskFinished = false;
 			}
 			hpit = hiPrioOrder.listIterator();
@@ -441,66 +528,65 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 	protected void initTables () {}
 	
 	private void checkLightTaskActivation (Set<VertexScheduling> lightTasks,
-										   List<VertexScheduling> ready,
+										   ReadyQueue ready,
+										   Hashtable<VertexScheduling, Integer> jobs,
 										   Hashtable<VertexScheduling, Integer> remainingTime,
 										   int slot, int level) {
 		for (VertexScheduling a : lightTasks) {
-			if (slot % a.getDeadlines()[level] == 0) {
-				ready.add(a);
+			if (slot % context.getDeadline(a, level) == 0) {
+				ready.add(a, ReadyQueue.key(context.getDeadline(a, level), a, false));
+				countActivation(level);
+				jobs.put(a, jobs.get(a) + 1);
 				remainingTime.put(a, a.getWcet(level));
 			}
 		}
 		
 	}
 	
-	private void buildLight (Set<VertexScheduling> lightTasks, String sched[][][], final int level, int hPeriod, int cores)
+	private void buildLight (Set<VertexScheduling> lightTasks, SchedulingTable sched, final int level, int hPeriod, int cores)
 	throws SchedulingException {
-		List<VertexScheduling> ready = new LinkedList<>();
+		ReadyQueue ready = new ReadyQueue(sched);
+		// Jobs of each task in the ready list, tasks stay in the list once activated
+		Hashtable<VertexScheduling, Integer> jobs = new Hashtable<VertexScheduling, Integer>();
 		Hashtable<VertexScheduling, Integer> remainingTime = new Hashtable<VertexScheduling, Integer>();
 		
 		// Init remainingTimes
 		for (VertexScheduling a : lightTasks) {
 			remainingTime.put(a, a.getWcet(level));
-			ready.add(a);
+			ready.add(a, ReadyQueue.key(context.getDeadline(a, level), a, false));
+			countActivation(level);
+			jobs.put(a, 1);
 		}
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getDeadlines()[level] - o2.getDeadlines()[level] != 0)
-					return o1.getDeadlines()[level] - o2.getDeadlines()[level];
-				else
-					return o1.getId() - o2.getId();
-			}
-		});
 		
-		ListIterator<VertexScheduling> lit = ready.listIterator();
 		for (int s = 0; s < hPeriod; s++) {
-			for (int c = 0; c < cores; c++) {
-				if (lit.hasNext()) {
-					VertexScheduling a = lit.next();
+			int c = 0;
+			
+			checkCancelled("buildLight", s);
+			countSlot(level, ready.size());
+			
+			if (metrics != null)
+				metrics.sort(level);
+			ready.pick(cores);
+			for (int i = 0; i < ready.getNbPicked() && c < cores; i++) {
+				VertexScheduling a = ready.getPicked(i);
+				
+				// Each job of the task takes a core
+				for (int j = 0; j < jobs.get(a) && c < cores; j++) {
 					int val = remainingTime.get(a);
 					
-					sched[level][s][c] = a.getName();
+					sched.set(level, s, c, a);
 					val--;
 					
 					remainingTime.put(a, val);
+					c++;
 				}
 			}
 			
 			if (s != hPeriod - 1)
-				checkLightTaskActivation(lightTasks, ready, remainingTime, s + 1, level);
-			
-			Collections.sort(ready, new Comparator<VertexScheduling>() {
-				@Override
-				public int compare(VertexScheduling o1, VertexScheduling o2) {
-					if (o1.getDeadlines()[level] - o2.getDeadlines()[level] != 0)
-						return o1.getDeadlines()[level] - o2.getDeadlines()[level];
-					else
-						return o1.getId() - o2.getId();
-				}
-			});
-			lit = ready.listIterator();
+				checkLightTaskActivation(lightTasks, ready, jobs, remainingTime, s + 1, level);
 		}
+		if (metrics != null)
+			metrics.comparisons(level, ready.getComparisons());
 	}
 	
 	public void buildAllTables () throws SchedulingException {
@@ -510,6 +596,9 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		Set<McDAG> heavyDAGs = new HashSet<McDAG>();
 		Set<McDAG> lightDAGs = new HashSet<McDAG>();
 			
+		if (metrics != null)
+			metrics.init(2);
+		
 		// Separate heavy and light DAGs
 		// Check if we have enough cores in the architecture
 		for (McDAG d : getMcDags()) {
@@ -540,15 +629,9 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			List<VertexScheduling> hiPrioOrder = new LinkedList<>();
 			List<VertexScheduling> loPrioOrder = new LinkedList<>();
 			// Init sched table
-			String sched[][][] = new String[2][d.getDeadline()][getNbCores()];
-			
-			for (int i = 0; i < 2; i++) {
-				for (int j = 0; j < d.getDeadline(); j++) {
-					for (int k = 0; k < d.getMinCores(); k++) {
-						sched[i][j][k] = "-";
-					}
-				}
-			}
+			SchedulingTable sched = new SchedulingTable(d.getVertices(), 2, d.getDeadline(), getNbCores());
+			context = new SchedulingContext(sched, 2);
+			countTable(sched);
 			if (isDebug()) printDAG(d);
 			
 			calcHLFETs(d, 1, hiPrioOrder);
@@ -565,8 +648,18 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			
 			if (isDebug()) printHLFETLevels(d);
 			
-			buildHITable(d, sched, hiPrioOrder);
-			buildLOTable(d, sched, loPrioOrder, hiPrioOrder);
+			startLevel(1);
+			try {
+				buildHITable(d, sched, hiPrioOrder);
+			} finally {
+				endLevel(1);
+			}
+			startLevel(0);
+			try {
+				buildLOTable(d, sched, loPrioOrder, hiPrioOrder);
+			} finally {
+				endLevel(0);
+			}
 			
 			for (Vertex a : d.getVertices()) {
 				VertexScheduling task = (VertexScheduling) a;
@@ -577,7 +670,6 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 
 		// Build tables for light DAGs
 		int coresLight = (int) Math.ceil(uLightDAGs);
-		String sched[][][] = new String[2][gethPeriod()][coresLight];
 		Set<VertexScheduling> lightTasks = new HashSet<VertexScheduling>();
 
 		// Transform DAGs to independent tasks and add them to set
@@ -592,19 +684,31 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 			}
 			int wcets[] = {cilo, cihi};
 			indTask.setWcets(wcets);
+			indTask.setGraphDead(d.getDeadline());
 			 
-			indTask.setDeadlineInL(d.getDeadline(), 0);
-			indTask.setDeadlineInL(d.getDeadline(), 1);
 			lightTasks.add(indTask);
 			preempts.put(indTask, 0);
-			activations += (int) hPeriod / indTask.getDeadlines()[0];
+			activations += (int) hPeriod / d.getDeadline();
 		}
 		
 		// Calculate the hyperperiod of the light DAGs ?????
 		
 		// Build table in LO & HI
-		buildLight(lightTasks, sched, 0, gethPeriod(), coresLight);
-		buildLight(lightTasks, sched, 1, gethPeriod(), coresLight);
+		SchedulingTable sched = new SchedulingTable(lightTasks, 2, gethPeriod(), coresLight);
+		context = new SchedulingContext(sched, 2);
+		countTable(sched);
+		for (VertexScheduling indTask : lightTasks) {
+			context.setDeadline(indTask, 0, indTask.getGraphDead());
+			context.setDeadline(indTask, 1, indTask.getGraphDead());
+		}
+		for (int level = 0; level <= 1; level++) {
+			startLevel(level);
+			try {
+				buildLight(lightTasks, sched, level, gethPeriod(), coresLight);
+			} finally {
+				endLevel(level);
+			}
+		}
 		Counters.countPreemptions(sched, preempts, 2, gethPeriod(), gethPeriod(), coresLight);
 
 		
@@ -616,7 +720,7 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 	 */
 	private void printHLFETLevels (McDAG d) {
 		for (Vertex a : d.getVertices())
-			System.out.println("Node "+a.getName()+" HLEFT(HI) "+((VertexScheduling)a).getHlfet()[1]+" HLFET(LO) "+((VertexScheduling)a).getHlfet()[0]);
+			System.out.println("Node "+a.getName()+" HLEFT(HI) "+context.getHlfet((VertexScheduling) a, 1)+" HLFET(LO) "+context.getHlfet((VertexScheduling) a, 0));
 	}
 	
 	private void printDAG (McDAG d) {
@@ -670,6 +774,10 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 		this.hiComp = hiComp;
 	}
 
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
 	public boolean isDebug() {
 		return debug;
 	}
@@ -701,4 +809,12 @@ public class FederatedMCSched extends AbstractMixedCriticalityScheduler{
 	public void setActivations(int activations) {
 		this.activations = activations;
 	}
+
+	public SchedulerMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(SchedulerMetrics metrics) {
+		this.metrics = metrics;
+	}
 }
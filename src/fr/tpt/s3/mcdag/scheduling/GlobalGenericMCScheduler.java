@@ -17,17 +17,19 @@
 package fr.tpt.s3.mcdag.scheduling;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Set;
 
 import fr.tpt.s3.mcdag.model.Edge;
 import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.SchedulingSegments;
+import fr.tpt.s3.mcdag.model.SchedulingTable;
 import fr.tpt.s3.mcdag.model.Vertex;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
+import fr.tpt.s3.mcdag.trace.TraceRecorder;
 import fr.tpt.s3.mcdag.util.Counters;
 import fr.tpt.s3.mcdag.util.MathMCDAG;
 
@@ -47,14 +49,66 @@ public abstract class GlobalGenericMCScheduler {
 	private int hPeriod;
 	private int levels;
 	
-	// Scheduling tables
-	private String sched[][][];
+	// Scheduling tables + working state of the tasks during the run
+	private SchedulingTable sched;
+	private SchedulingContext context;
+	private SchedulingSegments segments;
+	private ReleaseCalendar releases;
+	
+	// Allocations of each task in the HI tables
+	// Level, task id -> slots allocated to the task in the hyper-period, sorted
+	private int occurrences[][][];
+	// Level, task id -> slots of the task still to be allocated, filled backward
+	private int unallocated[][];
+	private long allocationSlots;
+	
+	// Fill tables up to the next event instead of slot by slot
+	private boolean eventDriven = true;
+	
+	// Build the HI tables on one thread per level
+	private boolean parallel;
+	// Level -> first slot from which the allocations are published, slot awaited
+	// by the level below and first slot it has seen published
+	private int published[];
+	private int awaited[];
+	private int visible[];
+	// Levels below are no longer needed after a failure
+	private int abortedBelow;
+	private final Object progress = new Object();
+	
+	// Set by another thread to stop the run at the next slot
+	private volatile boolean cancelled;
+	
+	// Activation counters of the jobs
+	// Level, task id -> nb of predecessors (successors in HI levels) to finish
+	private int dependencies[][];
+	private int waitingFor[][];
 	
 	// Remaining time to be allocated for each node
 	// Level, DAG id, Vertex Id
 	private int remainingTime[][][];
 	private int sumRemainTimes[];
 
+	// Buffers to update the priorities of the ready list of each level
+	private VertexScheduling readyTasks[][];
+	
+	// Laxity levels: clock of the level + next slot in which the state of each task is checked
+	private int clocks[];
+	private ReadyQueue calendars[];
+	
+	// Picked tasks keep the core of their job when it is free
+	private boolean affinity = true;
+	// Level, task -> core and slot of the last allocation of the current job, -1 when none
+	private int jobCores[][];
+	private int jobSlots[][];
+	
+	// Level, task -> promotion and delay of the current job, only counted when they start
+	private boolean promotedJobs[][];
+	private boolean delayedJobs[][];
+	// Level -> cores given to the picked tasks and cores taken in the slot
+	private int pickedCores[][];
+	private boolean takenCores[][];
+	
 	// Comprator to other vertices
 	private Comparator<VertexScheduling> loComp;
 	
@@ -66,6 +120,12 @@ public abstract class GlobalGenericMCScheduler {
 	// Debugging boolean
 	private boolean debug;
 	
+	// Recorder of the scheduling decisions, null when disabled
+	private TraceRecorder trace;
+	
+	// Metrics of the construction of the tables, null when disabled
+	private SchedulerMetrics metrics;
+	
 	/*
 	 * SCHEDULING FUNCTIONS
 	 */
@@ -75,133 +135,144 @@ public abstract class GlobalGenericMCScheduler {
 	 * Function that verifies if the scheduling should continue
 	 * @return
 	 */
-	protected abstract boolean verifyConstraints (List<VertexScheduling> ready, int slot, int level);
+	protected abstract boolean verifyConstraints (ReadyQueue ready, int slot, int level);
 	
 	/**
-	 * Function to sort the ready list in HI modes (uses the dual graph)
-	 * @param ready
+	 * Function that gives the priority of a ready task in HI modes (uses the dual graph),
+	 * tasks with the lowest value are scheduled first
+	 * @param v
 	 * @param slot
 	 * @param level
+	 * @return
+	 */
+	protected abstract int priorityHI (VertexScheduling v, int slot, int level);
+	
+	/**
+	 * Function that gives the priority of a ready task in the lower criticality mode,
+	 * tasks with the lowest value are scheduled first
+	 * @param v
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	protected abstract int priorityLO (VertexScheduling v, int slot, int level);
+	
+	/**
+	 * Creates a scheduler of the same kind and with the same options
+	 * for another system or architecture
+	 * @param dags
+	 * @param cores
+	 * @return
+	 */
+	protected abstract GlobalGenericMCScheduler newScheduler (Set<McDAG> dags, int cores);
+	
+	/**
+	 * Copies the options that change how the tables are built to another scheduler
+	 * @param to
+	 */
+	protected void copyOptions (GlobalGenericMCScheduler to) {
+		to.setEventDriven(isEventDriven());
+		to.setParallel(isParallel());
+		to.setAffinity(isAffinity());
+	}
+	
+	/**
+	 * Tells if tasks with the same priority are ordered by decreasing ids
+	 * @param level
+	 * @return
 	 */
-	protected abstract void sortHI (List<VertexScheduling> ready, int slot, int level);
+	protected boolean decreasingIds (int level) {
+		return false;
+	}
 	
 	/**
-	 * Function to sort the ready list in the lower criticality mode
+	 * Function that gives the number of slots, starting at slot, during which the
+	 * order of the ready list stays the same. The default keeps slot by slot construction.
 	 * @param ready
 	 * @param slot
 	 * @param level
+	 * @return
 	 */
-	protected abstract void sortLO (List<VertexScheduling> ready, int slot, int level);
+	protected int stableSlots (ReadyQueue ready, int slot, int level) {
+		return 1;
+	}
+	
+	/**
+	 * Tells if the priorities of a level are laxities: the priority of a waiting task
+	 * decreases by one each slot. Laxities are kept relative to the clock of the level,
+	 * only the tasks that ran or whose state changed are updated.
+	 * @param level
+	 * @return
+	 */
+	protected boolean laxityLevel (int level) {
+		return false;
+	}
+	
+	/**
+	 * Number of slots following slot in which the promotion or the delay of a task
+	 * stays the same. Needed by the laxity levels.
+	 * @param v
+	 * @param running
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	protected int stateStableSlots (VertexScheduling v, boolean running, int slot, int level) {
+		return hPeriod;
+	}
 	
 	/*
 	 * Generic scheduling functions
 	 */
 	
 	/**
-	 * Calculates deadline of an actor by considering the dual of the graph
-	 * @param a
-	 * @param level
-	 * @param deadline
+	 * Function that sets deadlines in all criticality modes for DAG,
+	 * the latest finish times are computed once per version of the DAG
+	 * @param d
 	 */
-	protected void calcDeadlineReverse (VertexScheduling a, int level, int deadline) {
-		int ret = Integer.MAX_VALUE;
+	protected void calcDedlines (McDAG d) {
+		int lfts[][] = d.getLFTs(getLevels());
 		
-		if (a.isSourceinL(level)) {
-			ret = deadline;
-		} else {
-			int test = Integer.MAX_VALUE;
-			
-			for (Edge e : a.getRcvEdges()) {
-				test = ((VertexScheduling) e.getSrc()).getDeadlines()[level] - e.getSrc().getWcet(level);
-				if (test < ret)
-					ret = test;
-			}
+		for (Vertex v : d.getVertices()) {
+			for (int i = 0; i < getLevels(); i++)
+				context.setDeadline((VertexScheduling) v, i, lfts[i][v.getId()]);
 		}
-		a.setDeadlineInL(ret, level);
 	}
 	
 	/**
-	 * Calculates the deadline of an actor, successors should be have their value assigned
-	 * first
-	 * @param a
+	 * Returns the deadline of a task in a level
+	 * @param v
 	 * @param level
-	 * @param deadline
+	 * @return
 	 */
-	protected void calcDeadline (VertexScheduling a, int level, int deadline) {
-		int ret = Integer.MAX_VALUE;
-		
-		if (a.isSinkinL(level)) {
-			ret = deadline;
-		} else {
-			int test = Integer.MAX_VALUE;
-			
-			for (Edge e : a.getSndEdges()) {
-				test = ((VertexScheduling) e.getDest()).getDeadlines()[level] - e.getDest().getWcet(level);
-				if (test < ret)
-					ret = test;
-			}
-		}
-		a.setDeadlineInL(ret, level);
+	protected int getDeadline (VertexScheduling v, int level) {
+		return context.getDeadline(v, level);
 	}
 	
 	/**
-	 * Function that calculates deadlines in all criticality modes for DAG
-	 * @param d
+	 * Returns the last priority computed for a task in a level,
+	 * laxities are kept shifted by the clock of the level
+	 * @param v
+	 * @param level
+	 * @return
 	 */
-	protected void calcDedlines (McDAG d) {
-		// Start by calculating deadlines in HI modes
-		for (int i = 1; i < getLevels(); i++) {
-			ArrayList<VertexScheduling> toVisit = new ArrayList<VertexScheduling>();
-			
-			// Calculate sources in i mode
-			for (Vertex v : d.getVertices()) {
-				if (v.isSourceinL(i)) {
-					toVisit.add((VertexScheduling) v);
-				}
-			}
-			
-			// Visit all nodes iteratively
-			while (!toVisit.isEmpty()) {
-				VertexScheduling a = toVisit.get(0);
-				
-				calcDeadlineReverse(a, i, d.getDeadline());
-				a.getVisitedL()[i] = true;
-				
-				for (Edge e: a.getSndEdges()) {
-					if (e.getDest().getWcet(i) != 0 && !((VertexScheduling) e.getDest()).getVisitedL()[i]
-							&& predVisitedInLevel((VertexScheduling) e.getDest(), i)
-							&& !toVisit.contains((VertexScheduling) e.getDest())) {
-						toVisit.add((VertexScheduling) e.getDest());
-					}
-				}
-				toVisit.remove(0);
-			}
-		}
+	protected int getWeight (VertexScheduling v, int level) {
+		int weight = context.getWeight(v, level);
 		
-		// Calculate deadlines in LO mode
-		ArrayList<VertexScheduling> toVisit = new ArrayList<VertexScheduling>();
-		// Calculate sources in i mode
-		for (Vertex a : d.getVertices()) {
-			if (a.isSinkinL(0))
-				toVisit.add((VertexScheduling) a);
-		}
-					
-		// Visit all nodes iteratively
-		while (!toVisit.isEmpty()) {
-			VertexScheduling a = toVisit.get(0);
-						
-			calcDeadline(a, 0, d.getDeadline());
-			a.getVisitedL()[0] = true;
-						
-			for (Edge e: a.getRcvEdges()) {
-				if (!((VertexScheduling) e.getSrc()).getVisitedL()[0]
-						&& succVisitedInLevel((VertexScheduling) e.getSrc(), 0)
-						&& !toVisit.contains((VertexScheduling) e.getSrc())) {
-					toVisit.add((VertexScheduling) e.getSrc());
-				}
-			}
-			toVisit.remove(0);
-		}
+		if (laxityLevel(level) && weight != Integer.MAX_VALUE)
+			return weight - clocks[level];
+		return weight;
+	}
+	
+	/**
+	 * Counts the ready tasks with a priority lower or equal to zero
+	 * @param ready
+	 * @param level
+	 * @param limit the count stops at limit
+	 * @return
+	 */
+	protected int countNonPositive (ReadyQueue ready, int level, int limit) {
+		return ready.countAtMost(laxityLevel(level) ? clocks[level] : 0, limit);
 	}
 	
 	/**
@@ -212,19 +283,10 @@ public abstract class GlobalGenericMCScheduler {
 	 * @return
 	 */
 	protected int scheduledUntilTinL (VertexScheduling a, int t, int l) {
-		int ret = 0;
 		int start = (int)(t / a.getGraphDead()) * a.getGraphDead();
+		int task = sched.getTaskId(a);
 		
-		for (int i = start; i <= t; i++) {
-			for (int c = 0; c < getNbCores(); c++) {
-				if (getSched()[l][i][c] !=  null) {
-					if (getSched()[l][i][c].contentEquals(a.getName()))
-						ret++;
-				}
-			}
-		}
-		
-		return ret;
+		return allocatedBefore(l, task, t + 1) - allocatedBefore(l, task, start);
 	}
 
 	/**
@@ -236,7 +298,6 @@ public abstract class GlobalGenericMCScheduler {
 	 * @return
 	 */
 	protected int scheduledUntilTinLreverse (VertexScheduling a, int t, int l) {
-		int ret = 0;
 		int end = 0;
 		
 		int realSlot = gethPeriod() - t;
@@ -245,19 +306,382 @@ public abstract class GlobalGenericMCScheduler {
 			return 0;
 
 		end = ((int)(realSlot / a.getGraphDead()) + 1)  * a.getGraphDead() - 1;
+		int task = sched.getTaskId(a);
+		
+		return allocatedBefore(l, task, end + 1) - allocatedBefore(l, task, realSlot);
+	}
+	
+	/**
+	 * Number of slots allocated to a task before a slot in a HI level, searched among
+	 * the sorted slots of the task. Slots not allocated yet are at the start of the array
+	 * and come before the visible slots, they are counted as slots before any visible slot
+	 * @param level
+	 * @param task
+	 * @param slot
+	 * @return
+	 */
+	private int allocatedBefore (int level, int task, int slot) {
+		int occ[] = occurrences[level][task];
+		int lo = 0;
+		int hi = occ.length;
+		
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			
+			if (occ[mid] < slot)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+	
+	/**
+	 * Inits the allocations of the HI levels. Their tables are built from the
+	 * end of the hyper-period so the slots of each task are filled backward, starting
+	 * from the number of slots the task receives in the hyper-period
+	 */
+	private void initAllocations () {
+		published = new int[getLevels()];
+		awaited = new int[getLevels()];
+		visible = new int[getLevels()];
+		abortedBelow = 0;
+		occurrences = new int[getLevels()][][];
+		unallocated = new int[getLevels()][];
+		allocationSlots = 0;
+		
+		for (int i = 1; i < getLevels(); i++) {
+			occurrences[i] = new int[sched.getNbTasks()][0];
+			unallocated[i] = new int[sched.getNbTasks()];
+		}
+		
+		for (McDAG d : getMcDAGs()) {
+			for (Vertex v : d.getVertices()) {
+				int task = sched.getTaskId((VertexScheduling) v);
 				
-		for (int i = end; i >= realSlot; i--) {
-			for (int c = 0; c < getNbCores(); c++) {
-				if (getSched()[l][i][c] !=  null) {
-					if (getSched()[l][i][c].contentEquals(a.getName()))
-						ret++;
+				for (int i = 1; i < getLevels(); i++) {
+					int total = Math.max(v.getWcet(i), 0) * (gethPeriod() / d.getDeadline());
+					
+					unallocated[i][task] = total;
+					occurrences[i][task] = new int[total];
+					allocationSlots += total;
 				}
 			}
 		}
-		// System.out.println("\t\t\t [DEBUG] scheduledUntilTinLreverse(): task "+a.getName()+" end "+end+" slot "+realSlot+" val = "+ret);
+		
+		for (int i = 1; i < getLevels(); i++)
+			published[i] = gethPeriod();
+	}
+	
+	/**
+	 * Records a slot allocated to a task in a HI level
+	 * @param level
+	 * @param task
+	 * @param timeIndex
+	 */
+	private void recordAllocation (int level, int task, int timeIndex) {
+		// Jobs with a negative WCET never finish, their table fails
+		if (--unallocated[level][task] >= 0)
+			occurrences[level][task][unallocated[level][task]] = timeIndex;
+	}
+	
+	/**
+	 * Makes the slots of a HI level built since the last call visible to the level below
+	 * @param level
+	 * @param timeIndex last slot built
+	 */
+	private void publishAllocations (int level, int timeIndex) {
+		synchronized (progress) {
+			published[level] = timeIndex;
+			if (timeIndex <= awaited[level])
+				progress.notifyAll();
+		}
+	}
+	
+	/**
+	 * Waits until the allocations of a level are published from slot:
+	 * the level below does not read earlier slots
+	 * @param level
+	 * @param slot
+	 * @throws SchedulingException if a higher level failed
+	 */
+	private void awaitAllocations (int level, int slot) throws SchedulingException {
+		if (!isParallel() || level >= getLevels())
+			return;
+		
+		synchronized (progress) {
+			awaited[level] = slot;
+			try {
+				while (published[level] > slot && abortedBelow < level)
+					progress.wait();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				abortedBelow = getLevels();
+			}
+			
+			if (abortedBelow >= level) {
+				SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] awaitAllocations("+level+"): Table of a higher level not built.");
+				throw se;
+			}
+			visible[level] = published[level];
+		}
+	}
+	
+	/**
+	 * Stops the levels below a level that could not be built
+	 * @param level
+	 */
+	private void abortBelow (int level) {
+		synchronized (progress) {
+			if (level > abortedBelow)
+				abortedBelow = level;
+			progress.notifyAll();
+		}
+	}
+	
+	/**
+	 * Stops the run from another thread: the tables stop being built at the next slot
+	 */
+	public void cancel () {
+		cancelled = true;
+		abortBelow(getLevels());
+	}
+	
+	/**
+	 * Checks if a HI task has to be promoted in the lower criticality mode
+	 * @param v
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	protected boolean needsPromotion (VertexScheduling v, int slot, int level) {
+		boolean ret = v.getWcet(level + 1) > 0 &&
+				(v.getWcet(level) - remainingTime[level][v.getGraphId()][v.getId()]) - scheduledUntilTinL(v, slot, level + 1) < 0;
+		
+		if (metrics != null) {
+			int task = sched.getTaskId(v);
+			
+			if (ret && !promotedJobs[level][task])
+				metrics.promotion(level);
+			promotedJobs[level][task] = ret;
+		}
 		return ret;
 	}
 	
+	/**
+	 * Number of slots following slot in which the promotion of a task stays the same
+	 * @param v
+	 * @param running
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	protected int promotionStableSlots (VertexScheduling v, boolean running, int slot, int level) {
+		if (v.getWcet(level + 1) == 0)
+			return hPeriod;
+		
+		int task = sched.getTaskId(v);
+		int start = (slot / v.getGraphDead()) * v.getGraphDead();
+		int first = allocatedBefore(level + 1, task, start);
+		int until = allocatedBefore(level + 1, task, slot + 1);
+		int done = v.getWcet(level) - remainingTime[level][v.getGraphId()][v.getId()];
+		int diff = done - (until - first);
+		
+		// A running task catches up with the higher table on slots the
+		// higher table does not give to it
+		if (running) {
+			if (diff >= 0)
+				return hPeriod;
+			
+			int lo = slot + 1;
+			int hi = start + v.getGraphDead() - 1;
+			if (hi < lo || (hi - slot) - (allocatedBefore(level + 1, task, hi + 1) - until) < -diff)
+				return hPeriod;
+			while (lo < hi) {
+				int mid = (lo + hi) / 2;
+				if ((mid - slot) - (allocatedBefore(level + 1, task, mid + 1) - until) >= -diff)
+					hi = mid;
+				else
+					lo = mid + 1;
+			}
+			return lo - slot - 1;
+		}
+		
+		if (diff < 0)
+			return hPeriod;
+		
+		// Waiting task is promoted when the higher table gives it one more slot
+		int next = first + done;
+		if (next < allocatedBefore(level + 1, task, start + v.getGraphDead()))
+			return occurrences[level + 1][task][next] - slot - 1;
+		return hPeriod;
+	}
+	
+	/**
+	 * Number of slots following slot in which the delay of a task stays the same
+	 * @param v
+	 * @param slot
+	 * @param level
+	 * @param offset shift of the slot given to scheduledUntilTinLreverse
+	 * @return
+	 */
+	protected int delayStableSlots (VertexScheduling v, int slot, int level, int offset) {
+		if (level == getLevels() - 1)
+			return hPeriod;
+		
+		int delta = v.getWcet(level + 1) - v.getWcet(level);
+		if (delta < 0)
+			return hPeriod;
+		
+		int t = slot + offset;
+		if (t == 0)
+			return 0;
+		
+		int task = sched.getTaskId(v);
+		int realSlot = gethPeriod() - t;
+		int start = (realSlot / v.getGraphDead()) * v.getGraphDead();
+		int end = start + v.getGraphDead() - 1;
+		// Higher table may still be in construction before the visible slots
+		int first = Math.max(start, visible[level + 1]);
+		// Counted window changes when the real slot leaves the period
+		int ret = realSlot - first;
+		
+		int untilEnd = allocatedBefore(level + 1, task, end + 1);
+		if (untilEnd - allocatedBefore(level + 1, task, realSlot) <= delta) {
+			// Delay stops when the higher table has given delta + 1 slots
+			int next = untilEnd - delta - 1;
+			if (next >= allocatedBefore(level + 1, task, first))
+				ret = Math.min(ret, realSlot - occurrences[level + 1][task][next] - 1);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Number of slots following slot in which the order of the ready list stays the same
+	 * in a laxity level. Laxities of running tasks stay the same, the first waiting task
+	 * is the first to reach a zero laxity or to overtake a running task. It can not be
+	 * promoted: zero laxity tasks are all picked or the constraints are not verified.
+	 * @param ready
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	protected int laxityStableSlots (ReadyQueue ready, int slot, int level) {
+		int allocated = 0;
+		int ret = hPeriod;
+		
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			VertexScheduling v = ready.getPicked(i);
+			boolean running = isRunning(ready, v, level);
+			
+			if (running)
+				allocated++;
+			ret = Math.min(ret, stateStableSlots(v, running, slot, level));
+		}
+		ret = Math.min(ret, slackStableSlots(allocated, slot, level));
+		
+		VertexScheduling first = ready.peekUnpicked();
+		if (first != null && !isDelayed(first, level)) {
+			// Laxity has to stay positive
+			ret = Math.min(ret, getWeight(first, level) - 1);
+			ret = Math.min(ret, overtakeStableSlots(ready, first, level));
+		}
+		
+		// States of the waiting tasks are in the calendar
+		if (!calendars[level].isEmpty())
+			ret = Math.min(ret, calendarSlot(calendars[level].peek(), level) - slot - 1);
+		
+		return Math.max(ret, 0) + 1;
+	}
+	
+	/**
+	 * Checks if a task of the ready list is allocated in the next slots
+	 * @param ready
+	 * @param v
+	 * @param level
+	 * @return
+	 */
+	protected boolean isRunning (ReadyQueue ready, VertexScheduling v, int level) {
+		return ready.isPicked(v) && !isDelayed(v, level);
+	}
+	
+	/**
+	 * Checks if a task leaves its core idle in the next slots
+	 * @param v
+	 * @param level
+	 * @return
+	 */
+	protected boolean isDelayed (VertexScheduling v, int level) {
+		return context.isDelayed(v, level);
+	}
+	
+	protected void setDelayed (VertexScheduling v, int level, boolean delay) {
+		if (metrics != null) {
+			int task = sched.getTaskId(v);
+			
+			if (delay && !delayedJobs[level][task])
+				metrics.delay(level);
+			delayedJobs[level][task] = delay;
+		}
+		context.setDelayed(v, level, delay);
+	}
+	
+	/**
+	 * Number of slots following slot in which a waiting task, whose weight decreases
+	 * by one each slot, does not overtake the last task picked in the ready list
+	 * @param ready
+	 * @param v
+	 * @param level
+	 * @return
+	 */
+	protected int overtakeStableSlots (ReadyQueue ready, VertexScheduling v, int level) {
+		if (ready.getNbPicked() < nbCores)
+			return hPeriod;
+		
+		VertexScheduling last = ready.getPicked(ready.getNbPicked() - 1);
+		int following = getWeight(v, level) - getWeight(last, level);
+		
+		if (!ready.tieBefore(last, v))
+			following--;
+		return following;
+	}
+	
+	/**
+	 * Number of slots following slot in which there are enough slots left
+	 * @param allocated
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	protected int slackStableSlots (int allocated, int slot, int level) {
+		if (allocated >= nbCores)
+			return hPeriod;
+		
+		int slack = (hPeriod - slot) * nbCores - sumRemainTimes[level];
+		return slack / (nbCores - allocated);
+	}
+	
+	/**
+	 * Number of slots that can be allocated until the next event:
+	 * a DAG activation, a job completion or a change in the order of the ready list
+	 * @param ready
+	 * @param slot
+	 * @param level
+	 * @return
+	 */
+	private int slotsToNextEvent (ReadyQueue ready, int slot, int level) {
+		int ret = releases.nextRelease(level, slot) - slot;
+		
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			VertexScheduling v = ready.getPicked(i);
+			
+			if (!isDelayed(v, level) && remainingTime[level][v.getGraphId()][v.getId()] < ret)
+				ret = remainingTime[level][v.getGraphId()][v.getId()];
+		}
+		
+		return Math.max(Math.min(ret, stableSlots(ready, slot, level)), 1);
+	}
+	
 	/**
 	 * Initialize scheduling tables 
 	 */
@@ -270,26 +694,45 @@ public abstract class GlobalGenericMCScheduler {
 			i++;
 		}
 		
-		sethPeriod(MathMCDAG.lcm(input));
+		// The hyper-period can be given by the caller when it is shared by several runs
+		if (gethPeriod() == 0)
+			sethPeriod(MathMCDAG.lcm(input));
 		
 		// Init scheduling tables
-		sched = new String[getLevels()][gethPeriod()][getNbCores()];
-		
-		for (i = 0; i < getLevels(); i++) {
-			for (int j = 0; j < gethPeriod(); j++) {
-				for (int k = 0; k < getNbCores(); k++)
-					sched[i][j][k] = "-";
-			}
-		}
+		sched = new SchedulingTable(getMcDAGs(), getLevels(), gethPeriod(), getNbCores());
+		context = new SchedulingContext(sched, getLevels());
+		segments = new SchedulingSegments(sched);
+		releases = new ReleaseCalendar(getMcDAGs(), gethPeriod(), getLevels());
+		readyTasks = new VertexScheduling[getLevels()][0];
+		clocks = new int[getLevels()];
+		calendars = new ReadyQueue[getLevels()];
+		jobCores = new int[getLevels()][sched.getNbTasks()];
+		jobSlots = new int[getLevels()][sched.getNbTasks()];
+		promotedJobs = new boolean[getLevels()][sched.getNbTasks()];
+		delayedJobs = new boolean[getLevels()][sched.getNbTasks()];
+		pickedCores = new int[getLevels()][getNbCores()];
+		takenCores = new boolean[getLevels()][getNbCores()];
+		if (trace != null)
+			trace.init(sched);
+		initDependencies();
+		initAllocations();
+		if (metrics != null)
+			metrics.tableBytes(sched.getBytes() + 4L * allocationSlots);
 		
 		if (debug) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] initTables(): Sched tables initialized!");
 		
+		// Deadlines of the tasks in all the levels
+		for (McDAG d : getMcDAGs()) {
+			calcDedlines(d);
+			if (isDebug()) printDeadlines(d);
+		}
+		
 		// Calc number of activations
 		if (isCountPreempt()) {
 			for (McDAG d : getMcDAGs()) {
 				for (Vertex a : d.getVertices()) {
 					// Check if task runs in HI mode
-					int nbActivations = (int) (hPeriod / d.getDeadline());
+					int nbActivations = hPeriod / d.getDeadline();
 					if (a.getWcet(1) != 0)
 						activations = activations + nbActivations * d.getLevels();
 					else
@@ -307,83 +750,72 @@ public abstract class GlobalGenericMCScheduler {
 		sumRemainTimes = new int[getLevels()];
 		
 		// Init remaining time for each DAG
-		for (McDAG d : getMcDAGs()) {
-			for (int i = 0; i < getLevels(); i++)
-				remainingTime[i][d.getId()] = new int[d.getVertices().size()];
-		}
-
 		for (int i = 0; i < getLevels(); i++) {
 			for (McDAG d : getMcDAGs()) {
-				for (Vertex a : d.getVertices()) {
-					remainingTime[i][d.getId()][a.getId()] = a.getWcet(i);
-					sumRemainTimes[i] += a.getWcet(i);
-				}
+				remainingTime[i][d.getId()] = releases.getWcets(d, i).clone();
+				sumRemainTimes[i] += releases.getVolume(d, i);
 			}
 		}
 	}
 	
 	/**
-	 * Internal function that checks if all the predecessors of an actor are visited
-	 * @param a
-	 * @param level
-	 * @return
+	 * Counts the jobs each task waits for before being activated: all its
+	 * predecessors in the lower criticality mode, its successors that
+	 * are executed in HI modes
 	 */
-	protected boolean predVisitedInLevel (VertexScheduling a, int level) {
-		for (Edge e : a.getRcvEdges()) {
-			if (e.getSrc().getWcet(level) != 0 && !((VertexScheduling) e.getSrc()).getVisitedL()[level])
-				return false;
+	private void initDependencies () {
+		dependencies = new int[getLevels()][sched.getNbTasks()];
+		waitingFor = new int[getLevels()][sched.getNbTasks()];
+		
+		for (McDAG d : getMcDAGs()) {
+			for (Vertex v : d.getVertices()) {
+				int task = sched.getTaskId((VertexScheduling) v);
+				
+				dependencies[0][task] = v.getRcvEdges().size();
+				for (int i = 1; i < getLevels(); i++) {
+					for (Edge e : v.getSndEdges()) {
+						if (e.getDest().getWcet(i) != 0)
+							dependencies[i][task]++;
+					}
+				}
+			}
 		}
-		return true;
 	}
 	
 	/**
-	 * Internal function that checks if all the sucessors of an actor are visited
-	 * @param a
+	 * Resets the activation counters of the jobs of a DAG
+	 * @param d
 	 * @param level
-	 * @return
 	 */
-	protected boolean succVisitedInLevel (VertexScheduling a, int level) {
-		for (Edge e : a.getSndEdges()) {
-			if (e.getDest().getWcet(level) != 0 && !((VertexScheduling) e.getDest()).getVisitedL()[level])
-				return false;
-		}
-		return true;
+	private void resetDependencies (McDAG d, int level) {
+		int first = sched.getFirstTaskId(d.getId());
+		
+		System.arraycopy(dependencies[level], first, waitingFor[level], first, sched.getEndTaskId(d.getId()) - first);
 	}
 	
-	
 	/**
 	 * Functions that adds new jobs when task have finished their execution
 	 * @param ready
+	 * @param finished jobs that finished since the last call
 	 * @param level
 	 */
-	protected void checkJobActivations (List<VertexScheduling> ready, List<VertexScheduling> scheduled, int level) {
+	protected void checkJobActivations (ReadyQueue ready, List<VertexScheduling> finished, int level) {
 		final boolean forward = level == 0;
 		
-		for (VertexScheduling v : scheduled) {
+		for (VertexScheduling v : finished) {
 			
 			for (Edge e : forward ? v.getSndEdges() : v.getRcvEdges()) {
 				VertexScheduling connectedVertex = (VertexScheduling) (forward ? e.getDest() : e.getSrc());
-				boolean add = true;
-					
-				for (Edge e2 : forward ? connectedVertex.getRcvEdges() : connectedVertex.getSndEdges()) {
-					VertexScheduling checkedVertex = (VertexScheduling) (forward ? e2.getSrc() : e2.getDest());
-						
-					
-					if (forward && !scheduled.contains(checkedVertex)) {
-						add = false;
-						break;
-					} else if (!forward && checkedVertex.getWcet(level) != 0 && !scheduled.contains(checkedVertex)) {
-						add = false;
-						break;
-					}
-				}
-					
-				if (add && !ready.contains(connectedVertex)
+				int task = sched.getTaskId(connectedVertex);
+				
+				waitingFor[level][task]--;
+				if (waitingFor[level][task] == 0 && !ready.contains(connectedVertex)
 						&& remainingTime[level][connectedVertex.getGraphId()][connectedVertex.getId()] != 0) {
-					ready.add(connectedVertex);
+					addReady(ready, connectedVertex, level);
 				}
 			} 
 		}
+		finished.clear();
 	}
 	
 	/**
@@ -392,36 +824,255 @@ public abstract class GlobalGenericMCScheduler {
 	 * @param slot
 	 * @param level
 	 */
-	protected void checkDagActivations (List<VertexScheduling> ready, List<VertexScheduling> scheduled, int slot, int level) {		
-		for (McDAG d : getMcDAGs()) {
+	protected void checkDagActivations (ReadyQueue ready, int slot, int level) {
+		// HI levels are given the time index, their steps count from the end of the hyper-period
+		int step = level == 0 ? slot : hPeriod - slot;
+		
+		for (McDAG d : releases.releasedAt(level, step)) {
+			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] checkDAGActivation(): DAG (id. "+d.getId()+") activation at slot "+slot);
 			
-			if (slot % d.getDeadline() == 0) {
-				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] checkDAGActivation(): DAG (id. "+d.getId()+") activation at slot "+slot);
-				
+			resetDependencies(d, level);
+			for (Vertex v : d.getVertices()) {
+				promotedJobs[level][sched.getTaskId((VertexScheduling) v)] = false;
+				delayedJobs[level][sched.getTaskId((VertexScheduling) v)] = false;
+			}
+			int wcets[] = releases.getWcets(d, level);
+			System.arraycopy(wcets, 0, remainingTime[level][d.getId()], 0, wcets.length);
+			sumRemainTimes[level] += releases.getVolume(d, level);
+			
+			// Jobs of the previous period still ready have a new remaining time
+			if (laxityLevel(level)) {
 				for (Vertex v : d.getVertices()) {
-					// Remove nodes from the scheduled list
-					scheduled.remove(v);
-					
-					remainingTime[level][((VertexScheduling)v).getGraphId()][v.getId()] = v.getWcet(level);
-					sumRemainTimes[level] += v.getWcet(level);
-					
-					if (level >= 1 && v.isSinkinL(level))
-						ready.add((VertexScheduling) v);
-					else if (level == 0 && v.isSourceinL(level))
-						ready.add((VertexScheduling) v);
+					if (ready.contains((VertexScheduling) v))
+						touch((VertexScheduling) v, level);
 				}
 			}
+			
+			for (VertexScheduling v : releases.getStarts(d, level))
+				addReady(ready, v, level);
 		}
 	}
 	
 	/**
 	 * Utility function that resets delays of tasks' jobs
+	 * @param level
 	 */
-	private void resetDelays () {
-		for (McDAG d : getMcDAGs()) {
-			for (Vertex v : d.getVertices())
-				((VertexScheduling) v).setDelayed(false);
+	private void resetDelays (int level) {
+		context.clearDelays(level);
+	}
+	
+	/**
+	 * Adds a task to the ready list, its priority is given by the next update
+	 * @param ready
+	 * @param v
+	 * @param level
+	 */
+	private void addReady (ReadyQueue ready, VertexScheduling v, int level) {
+		if (!ready.contains(v)) {
+			long key = ReadyQueue.key(context.getWeight(v, level), v, decreasingIds(level));
+			
+			ready.add(v, key);
+			if (trace != null)
+				trace.record(level, TraceRecorder.ADD, -1, sched.getTaskId(v), key);
+			if (metrics != null)
+				metrics.activation(level);
+			touch(v, level);
+		}
+	}
+	
+	/**
+	 * Marks a task of a laxity level to be updated by the next update of the priorities
+	 * @param v
+	 * @param level
+	 */
+	private void touch (VertexScheduling v, int level) {
+		if (laxityLevel(level))
+			calendars[level].add(v, ReadyQueue.key(Integer.MIN_VALUE, 0));
+	}
+	
+	/**
+	 * Slot in which the state of a task in the calendar has to be checked
+	 * @param v
+	 * @param level
+	 * @return
+	 */
+	private int calendarSlot (VertexScheduling v, int level) {
+		return (int) (calendars[level].getKey(v) >> 32);
+	}
+	
+	/**
+	 * Computes the priorities of the ready tasks and updates the ones that changed
+	 * @param ready
+	 * @param slot
+	 * @param level
+	 */
+	private void updatePriorities (ReadyQueue ready, int slot, int level) {
+		if (laxityLevel(level)) {
+			updateLaxities(ready, slot, level);
+			return;
+		}
+		
+		final boolean forward = level == 0;
+		int size = ready.size();
+		
+		readyTasks[level] = ready.toArray(readyTasks[level]);
+		for (int i = 0; i < size; i++) {
+			VertexScheduling v = readyTasks[level][i];
+			int weight = forward ? priorityLO(v, slot, level) : priorityHI(v, slot, level);
+			
+			context.setWeight(v, level, weight);
+			updateReady(ready, v, ReadyQueue.key(weight, v, decreasingIds(level)), level);
+		}
+	}
+	
+	/**
+	 * Changes the key of a ready task
+	 * @param ready
+	 * @param v
+	 * @param key
+	 * @param level
+	 */
+	private void updateReady (ReadyQueue ready, VertexScheduling v, long key, int level) {
+		if (trace != null && ready.getKey(v) != key)
+			trace.record(level, TraceRecorder.UPDATE, -1, sched.getTaskId(v), key);
+		ready.update(v, key);
+	}
+	
+	/**
+	 * Computes the laxities of the tasks that ran since the last update and of the tasks
+	 * whose state may have changed. Laxities are shifted by the clock of the level so the
+	 * keys of the other waiting tasks stay the same.
+	 * @param ready
+	 * @param slot
+	 * @param level
+	 */
+	private void updateLaxities (ReadyQueue ready, int slot, int level) {
+		final boolean forward = level == 0;
+		ReadyQueue calendar = calendars[level];
+		
+		clocks[level] = slot;
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			if (ready.contains(ready.getPicked(i)))
+				touch(ready.getPicked(i), level);
+		}
+		
+		while (!calendar.isEmpty() && calendarSlot(calendar.peek(), level) <= slot) {
+			VertexScheduling v = calendar.poll();
+			
+			if (!ready.contains(v))
+				continue;
+			
+			int weight = forward ? priorityLO(v, slot, level) : priorityHI(v, slot, level);
+			if (weight != Integer.MAX_VALUE)
+				weight += slot;
+			context.setWeight(v, level, weight);
+			updateReady(ready, v, ReadyQueue.key(weight, v, decreasingIds(level)), level);
+			
+			int stable = stateStableSlots(v, false, slot, level);
+			if (stable < hPeriod)
+				calendar.add(v, ReadyQueue.key(slot + Math.max(stable, 0) + 1, 0));
+		}
+	}
+	
+	/**
+	 * Gives a core to each task picked in the ready list, jobs stay on the core they ran on.
+	 * A job asks for one core and a core is asked by the jobs that ran on it: handing the cores
+	 * to the jobs running in the previous slot first, then to the jobs resuming after
+	 * a preemption, keeps the most jobs on their core. The other tasks take the free cores
+	 * in the order of the list, delayed tasks get no core.
+	 * @param ready
+	 * @param timeIndex
+	 * @param level
+	 */
+	private void assignCores (ReadyQueue ready, int timeIndex, int level) {
+		final boolean forward = level == 0;
+		final int previous = forward ? timeIndex - 1 : timeIndex + 1;
+		int cores[] = pickedCores[level];
+		boolean taken[] = takenCores[level];
+		
+		Arrays.fill(taken, false);
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			VertexScheduling v = ready.getPicked(i);
+			int c = jobCores[level][sched.getTaskId(v)];
+			
+			cores[i] = -1;
+			if (c >= 0 && jobSlots[level][sched.getTaskId(v)] == previous && !isDelayed(v, level)) {
+				cores[i] = c;
+				taken[c] = true;
+			}
+		}
+		
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			VertexScheduling v = ready.getPicked(i);
+			int c = jobCores[level][sched.getTaskId(v)];
+			
+			if (cores[i] == -1 && c >= 0 && !taken[c] && !isDelayed(v, level)) {
+				cores[i] = c;
+				taken[c] = true;
+			}
+			// The order of the list would have moved the job
+			if (cores[i] != -1 && metrics != null && cores[i] != (forward ? i : nbCores - 1 - i))
+				metrics.migrationAvoided(level);
+		}
+		
+		int free = 0;
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			if (cores[i] != -1 || isDelayed(ready.getPicked(i), level))
+				continue;
+			
+			while (taken[forward ? free : nbCores - 1 - free])
+				free++;
+			cores[i] = forward ? free : nbCores - 1 - free;
+			taken[cores[i]] = true;
+		}
+	}
+	
+	/**
+	 * Allocates a time slot to the tasks picked in the ready list
+	 * @param ready
+	 * @param finished
+	 * @param timeIndex
+	 * @param level
+	 * @return true if a job finished its execution
+	 */
+	private boolean allocateSlot (ReadyQueue ready, List<VertexScheduling> finished, int timeIndex, int level) {
+		boolean jobFinished = false;
+		final boolean forward = level == 0;
+		
+		// Allocate to cores, delayed tasks leave their core idle
+		if (affinity)
+			assignCores(ready, timeIndex, level);
+		for (int i = 0; i < ready.getNbPicked(); i++) {
+			VertexScheduling v = ready.getPicked(i);
+			int coreIndex = affinity ? pickedCores[level][i] : (forward ? i : nbCores - 1 - i);
+			
+			if (!isDelayed(v, level)) {
+				int val = remainingTime[level][v.getGraphId()][v.getId()];
+				
+				jobCores[level][sched.getTaskId(v)] = coreIndex;
+				jobSlots[level][sched.getTaskId(v)] = timeIndex;
+				sched.set(level, timeIndex, coreIndex, v);
+				segments.append(level, coreIndex, sched.getTaskId(v), timeIndex);
+				if (trace != null)
+					trace.record(level, TraceRecorder.RUN, coreIndex, sched.getTaskId(v), ready.getKey(v));
+				if (!forward)
+					recordAllocation(level, sched.getTaskId(v), timeIndex);
+				val--;
+				sumRemainTimes[level]--;
+					
+				// Task has been fully scheduled
+				if (val == 0) {
+					jobCores[level][sched.getTaskId(v)] = -1;
+					finished.add(v);
+					jobFinished = true;
+					ready.remove(v);
+					if (trace != null)
+						trace.record(level, TraceRecorder.REMOVE, -1, sched.getTaskId(v), 0);
+				}
+				remainingTime[level][v.getGraphId()][v.getId()] = val;
+			}
 		}
+		return jobFinished;
 	}
 	
 	/**
@@ -430,98 +1081,189 @@ public abstract class GlobalGenericMCScheduler {
 	 * @throws SchedulingException
 	 */
 	protected void buildTable (final int level) throws SchedulingException {
-		List<VertexScheduling> ready = new LinkedList<VertexScheduling>();
-		List<VertexScheduling> scheduled = new LinkedList<VertexScheduling>();
+		if (metrics == null) {
+			buildLevel(level);
+			return;
+		}
+		
+		metrics.startLevel(level);
+		try {
+			buildLevel(level);
+		} finally {
+			metrics.endLevel(level);
+		}
+	}
+	
+	/**
+	 * Builds the table of a level
+	 * @param level
+	 * @throws SchedulingException
+	 */
+	private void buildLevel (final int level) throws SchedulingException {
+		ReadyQueue ready = new ReadyQueue(sched);
+		List<VertexScheduling> finished = new ArrayList<VertexScheduling>();
 		final boolean forward = level == 0;
 		
-		// Add all sink nodes
+		calendars[level] = new ReadyQueue(sched);
+		Arrays.fill(jobCores[level], -1);
+		if (trace != null)
+			trace.setSlot(level, forward ? 0 : hPeriod - 1);
+		
+		// Add all source nodes (sink nodes in HI levels)
 		for (McDAG d : getMcDAGs()) {
-			for (Vertex v : d.getVertices()) {
-				if (forward) {
-					if (v.isSourceinL(level))
-						ready.add((VertexScheduling) v);
-				} else {
-					if (v.isSinkinL(level)) 
-						ready.add((VertexScheduling) v);
-				}
-			}
+			resetDependencies(d, level);
+			for (VertexScheduling v : releases.getStarts(d, level))
+				addReady(ready, v, level);
 		}
 		
-		if (forward)
-			sortLO(ready, 0, level);
-		else
-			sortHI(ready, 0, level);
+		if (!forward)
+			awaitAllocations(level + 1, hPeriod - 1);
+		updatePriorities(ready, 0, level);
 		
-		// Allocate slot by slot
-		ListIterator<VertexScheduling> lit = ready.listIterator();
+		// Allocate slot by slot or until the next event
 		boolean jobFinished = false;
+		int length = 1;
+		long comparisons = 0;
 		
 		final int increment = forward ? 1 : -1;
-		final int startTimeIndex  = forward ? 0 : hPeriod - 1;
-		final int startCoreIndex = forward ? 0 : nbCores - 1;
 		
-		for (int timeIndex = startTimeIndex; timeIndex < hPeriod && timeIndex >= 0; timeIndex = timeIndex + increment) {
+		for (int slot = 0; slot < hPeriod; slot = slot + length) {
+			int timeIndex = forward ? slot : hPeriod - slot - 1;
+			
+			if (cancelled) {
+				if (trace != null)
+					trace.record(level, TraceRecorder.FAIL, -1, -1, 0);
+				SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] buildTable("+level+"): Cancelled at slot "+timeIndex+".");
+				throw se;
+			}
+			
 			if (isDebug()) {
 				System.out.print("[DEBUG "+Thread.currentThread().getName()+"] buildHiTable("+level+"): @t = "+timeIndex+", tasks activated: ");
 				for (VertexScheduling v : ready)
-					System.out.print("Prio("+v.getName()+") = "+v.getWeights()[level]+"; ");
+					System.out.print("Prio("+v.getName()+") = "+getWeight(v, level)+"; ");
 				System.out.println("");
 			}
 			
 			if (!verifyConstraints(ready, timeIndex, level)) {
+				if (trace != null)
+					trace.record(level, TraceRecorder.FAIL, -1, -1, 0);
 				SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] buildTable("+level+"): Ready list not empty.");
 				throw se;
 			}
 			
-			// Allocate to cores
-			for (int coreIndex = startCoreIndex; coreIndex >= 0 && coreIndex < nbCores; coreIndex = coreIndex + increment) {
-				// Find next ready tasks that is not delayed
-				if (lit.hasNext()) {
-					VertexScheduling v = lit.next();
-					
-					if (!v.isDelayed()) {
-						int val = remainingTime[level][v.getGraphId()][v.getId()];
-						
-						sched[level][timeIndex][coreIndex] = v.getName();
-						val--;
-						sumRemainTimes[level]--;
-							
-						// Task has been fully scheduled
-						if (val == 0) {
-							scheduled.add(v);
-							jobFinished = true;
-							lit.remove();
-						}
-						remainingTime[level][v.getGraphId()][v.getId()] = val;
-					} 
-				}
+			if (metrics != null) {
+				metrics.readyLength(level, ready.size());
+				metrics.sort(level);
+			}
+			ready.pick(nbCores);
+			// Picked tasks are updated after their allocation
+			if (laxityLevel(level)) {
+				for (int i = 0; i < ready.getNbPicked(); i++)
+					calendars[level].remove(ready.getPicked(i));
+			}
+			length = isEventDriven() ? slotsToNextEvent(ready, slot, level) : 1;
+			if (metrics != null) {
+				metrics.slots(level, length);
+				metrics.comparisons(level, ready.getComparisons() + calendars[level].getComparisons() - comparisons);
+				comparisons = ready.getComparisons() + calendars[level].getComparisons();
+			}
+			
+			for (int i = 0; i < length; i++) {
+				if (trace != null)
+					trace.setSlot(level, timeIndex);
+				if (allocateSlot(ready, finished, timeIndex, level))
+					jobFinished = true;
+				if (i != length - 1)
+					timeIndex = timeIndex + increment;
 			}
-			resetDelays();
+			// Next records prepare the following slot
+			if (trace != null)
+				trace.setSlot(level, timeIndex + increment);
+			if (!laxityLevel(level))
+				resetDelays(level);
 			
 			// A job finished its execution -> new tasks can be activated
 			if (jobFinished)
-				checkJobActivations(ready, scheduled, level);
+				checkJobActivations(ready, finished, level);
 			
 			if (forward) {
 				if (timeIndex != hPeriod - 1) {
-					checkDagActivations(ready, scheduled, timeIndex + 1, level);
-					sortLO(ready, timeIndex + 1, level);
+					checkDagActivations(ready, timeIndex + 1, level);
+					updatePriorities(ready, timeIndex + 1, level);
 				}
 			} else {
+				publishAllocations(level, timeIndex);
+				
 				if (timeIndex !=  0) {
-					checkDagActivations(ready, scheduled, timeIndex, level);
-					sortHI(ready, gethPeriod() - timeIndex, level);
+					awaitAllocations(level + 1, timeIndex - 1);
+					checkDagActivations(ready, timeIndex, level);
+					updatePriorities(ready, gethPeriod() - timeIndex, level);
 				}
 			}
 			
 			jobFinished = false;
-			lit = ready.listIterator();	
 		}
 		// Ready list is not empty
 		if (!ready.isEmpty()) {
+			if (trace != null) {
+				trace.setSlot(level, forward ? hPeriod - 1 : 0);
+				trace.record(level, TraceRecorder.FAIL, -1, -1, 0);
+			}
 			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] buildTable("+level+"): Ready list not empty.");
 			throw se;
 		}
+		segments.seal(level);
+	}
+	
+	/**
+	 * Builds the HI tables on one thread per level. Each level advances behind the
+	 * slots published by the level above, the LO table needs the whole table
+	 * of level 1 and is built once the HI tables are complete
+	 * @throws SchedulingException
+	 */
+	private void buildTablesInParallel () throws SchedulingException {
+		final Exception errors[] = new Exception[getLevels()];
+		Thread threads[] = new Thread[getLevels()];
+		
+		for (int i = getLevels() - 1; i >= 1; i--) {
+			final int level = i;
+			
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						buildTable(level);
+					} catch (SchedulingException | RuntimeException e) {
+						errors[level] = e;
+					} finally {
+						if (published[level] != 0)
+							abortBelow(level);
+					}
+				}
+			});
+			threads[i].setName(Thread.currentThread().getName()+"-L"+i);
+			threads[i].start();
+		}
+		
+		for (int i = getLevels() - 1; i >= 1; i--) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				abortBelow(getLevels());
+				SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] buildTablesInParallel(): Interrupted.");
+				throw se;
+			}
+		}
+		
+		// Report the failure of the highest level like the sequential build
+		for (int i = getLevels() - 1; i >= 1; i--) {
+			if (errors[i] instanceof SchedulingException)
+				throw (SchedulingException) errors[i];
+			else if (errors[i] != null)
+				throw (RuntimeException) errors[i];
+		}
+		buildTable(0);
 	}
 	
 	/**
@@ -529,12 +1271,26 @@ public abstract class GlobalGenericMCScheduler {
 	 * @throws SchedulingException
 	 */
 	public void scheduleSystem () throws SchedulingException {
+		// Reject the system before building the tables if it can not be scheduled
+		NecessaryConditions nc = new NecessaryConditions(getMcDAGs(), getNbCores(), getLevels());
+		nc.verify();
+		
+		if (metrics != null)
+			metrics.init(getLevels());
+
 		initTables();
 		initRemainingTimes();
 		
 		// Start by the highest tables first
-		for (int i = getLevels() - 1; i >= 0; i--)
-			buildTable(i);
+		if (isParallel() && getLevels() > 2) {
+			buildTablesInParallel();
+		} else {
+			for (int i = getLevels() - 1; i >= 0; i--)
+				buildTable(i);
+		}
+		sched.setSegments(segments);
+		if (metrics != null)
+			metrics.tableBytes(segments.getBytes());
 		
 		if (isDebug()) printTables();
 		
@@ -564,8 +1320,8 @@ public abstract class GlobalGenericMCScheduler {
 		for (Vertex a : d.getVertices()) {
 			System.out.print("[DEBUG "+Thread.currentThread().getName()+"]\t Actor "+a.getName()+", ");
 			for (int i = 0; i < getLevels(); i++) {
-				if (((VertexScheduling)a).getDeadlines()[i] != Integer.MAX_VALUE)
-					System.out.print(((VertexScheduling)a).getDeadlines()[i]);
+				if (getDeadline((VertexScheduling) a, i) != Integer.MAX_VALUE)
+					System.out.print(getDeadline((VertexScheduling) a, i));
 				System.out.print(" ");
 			}
 			System.out.println("");
@@ -580,10 +1336,7 @@ public abstract class GlobalGenericMCScheduler {
 			System.out.println("Scheduling table in mode "+ i+":");
 			for (int c = 0; c < getNbCores(); c++) {
 				for (int s = 0; s < gethPeriod(); s++) {
-					if (sched[i][s][c] != null)
-						System.out.print(sched[i][s][c]+" | ");
-					else
-						System.out.print("-- | ");
+					System.out.print(sched.getName(i, s, c)+" | ");
 				}
 				System.out.print("\n");
 			}
@@ -614,6 +1367,7 @@ public abstract class GlobalGenericMCScheduler {
 
 	public void setMcDAGs(Set<McDAG> mcDAGs) {
 		this.mcDAGs = mcDAGs;
+		this.hPeriod = 0;
 	}
 
 	public int getNbCores() {
@@ -641,13 +1395,21 @@ public abstract class GlobalGenericMCScheduler {
 	}
 
 	public String[][][] getSched() {
+		return sched.toStringTable();
+	}
+
+	public SchedulingTable getSchedTable() {
 		return sched;
 	}
 
-	public void setSched(String[][][] sched) {
+	public void setSchedTable(SchedulingTable sched) {
 		this.sched = sched;
 	}
 
+	public SchedulingContext getContext() {
+		return context;
+	}
+
 	public int[][][] getRemainingTime() {
 		return remainingTime;
 	}
@@ -696,6 +1458,50 @@ public abstract class GlobalGenericMCScheduler {
 		this.countPreempt = countPreempt;
 	}
 
+	public boolean isEventDriven() {
+		return eventDriven;
+	}
+
+	public void setEventDriven(boolean eventDriven) {
+		this.eventDriven = eventDriven;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	public TraceRecorder getTrace() {
+		return trace;
+	}
+	
+	public void setTrace(TraceRecorder trace) {
+		this.trace = trace;
+	}
+	
+	public SchedulerMetrics getMetrics() {
+		return metrics;
+	}
+	
+	public void setMetrics(SchedulerMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public boolean isAffinity() {
+		return affinity;
+	}
+	
+	public void setAffinity(boolean affinity) {
+		this.affinity = affinity;
+	}
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
 	public int[] getSumRemainTimes() {
 		return sumRemainTimes;
 	}
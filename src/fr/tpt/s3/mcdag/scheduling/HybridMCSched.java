@@ -16,10 +16,7 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.scheduling;
 
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Hashtable;
-import java.util.List;
 import java.util.Set;
 
 import fr.tpt.s3.mcdag.model.McDAG;
@@ -47,45 +44,44 @@ public class HybridMCSched extends GlobalGenericMCScheduler {
 		setCountPreempt(preemption);
 		setDebug(debug);
 		
-		for (McDAG d : getMcDAGs()) {
-			calcDedlines(d);
-			if (isDebug()) printDeadlines(d);
-		}
-		
 		if (isCountPreempt())
 			setPreemptions(new Hashtable<VertexScheduling, Integer>());
 	}
 	
+	@Override
+	protected GlobalGenericMCScheduler newScheduler(Set<McDAG> dags, int cores) {
+		return new HybridMCSched(dags, cores, getLevels(), isDebug(), isCountPreempt());
+	}
+	
 	/**
 	 * Function that verifies if the scheduling tables can still be obtained 
 	 */
 	@Override
-	protected boolean verifyConstraints(List<VertexScheduling> ready, int slot, int level) {
+	protected boolean verifyConstraints(ReadyQueue ready, int slot, int level) {
 		int sumSlotsLeft = 0;
-		int sumZeroLax = 0;
 		
-		for (VertexScheduling v : ready) {
-			if (level >= 1 ) {
+		if (level >= 1) {
+			for (VertexScheduling v : ready) {
 				int relatSlot =  (gethPeriod() - slot - 1) % v.getGraphDead();
-				if (relatSlot > v.getWeights()[level]) {
+				if (relatSlot > getWeight(v, level)) {
 					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): deadline not respected for "+v.getName());
 					return false;
 				}
-			} else {
-				// 	Task has negative laxity -> non schedulable system
-				if (v.getWeights()[level] < 0) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): negative laxity on task "+v.getName());
-					return false;
-				} else if (v.getWeights()[level] == 0) {
-					sumZeroLax += 1;
-				}
 			}
-		}
-		
-		// More than m zero laxity tasks
-		if (sumZeroLax > getNbCores()) {
-			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): more than m zero laxity tasks");
-			return false;
+		} else {
+			VertexScheduling first = ready.peek();
+			
+			// 	Task has negative laxity -> non schedulable system
+			if (first != null && getWeight(first, level) < 0) {
+				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): negative laxity on task "+first.getName());
+				return false;
+			}
+			
+			// More than m zero laxity tasks
+			if (countNonPositive(ready, level, getNbCores() + 1) > getNbCores()) {
+				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): more than m zero laxity tasks");
+				return false;
+			}
 		}
 		
 		// Get the sum of remaining slots
@@ -105,76 +101,89 @@ public class HybridMCSched extends GlobalGenericMCScheduler {
 	}
 
 	/**
-	 * Function that sorts the HI criticality tasks
+	 * Function that gives the priority of HI criticality tasks
 	 * the priority ordering used is the deadline
 	 */
 	@Override
-	protected void sortHI(List<VertexScheduling> ready, int slot, final int level) {
+	protected int priorityHI(VertexScheduling v, int slot, int level) {
 		// Check if tasks need to be delayed first
-		for (VertexScheduling v : ready) {
-			if (level != getLevels() - 1) {
-				int delta = v.getWcet(level + 1) - v.getWcet(level);
-				
-				if (scheduledUntilTinLreverse(v, slot, level + 1) <= delta) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] sortHI(): Task "+v.getName()+" needs to be delayed at slot @t = "+slot);
-					v.setWeightInL(Integer.MAX_VALUE, level);
-					v.setDelayed(true);
-				} else {
-					v.setWeightInL(v.getDeadlines()[level], level);
-					v.setDelayed(false);
-				}
-			} else {
-				v.setWeightInL(v.getDeadlines()[level], level);
-				v.setDelayed(false);
+		if (level != getLevels() - 1) {
+			int delta = v.getWcet(level + 1) - v.getWcet(level);
+			
+			if (scheduledUntilTinLreverse(v, slot, level + 1) <= delta) {
+				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] priorityHI(): Task "+v.getName()+" needs to be delayed at slot @t = "+slot);
+				setDelayed(v, level, true);
+				return Integer.MAX_VALUE;
 			}
 		}
-		
-		// Order the list accordingly
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getWeights()[level] - o2.getWeights()[level] != 0)
-					return o1.getWeights()[level] - o2.getWeights()[level];
-				else
-					return o1.getId() - o2.getId();
-			}
-		});
+		setDelayed(v, level, false);
+		return getDeadline(v, level);
 	}
 
 	/**
-	 * Functions that sorts the ready list in the lower criticality mode
-	 * it uses LLF
+	 * Priorities are laxities in the lower criticality mode
 	 */
 	@Override
-	protected void sortLO(List<VertexScheduling> ready, int slot, int level) {
+	protected boolean laxityLevel(int level) {
+		return level == 0;
+	}
+	
+	/**
+	 * Promotions are checked in the LO level, delays in the HI levels
+	 */
+	@Override
+	protected int stateStableSlots(VertexScheduling v, boolean running, int slot, int level) {
+		if (level == 0)
+			return promotionStableSlots(v, running, slot, level);
+		return delayStableSlots(v, slot, level, 0);
+	}
+	
+	/**
+	 * Deadlines are fixed in HI modes, laxities of waiting tasks decrease
+	 * by one each slot in the lower criticality mode
+	 */
+	@Override
+	protected int stableSlots(ReadyQueue ready, int slot, int level) {
+		if (level == 0)
+			return laxityStableSlots(ready, slot, level);
+		
+		int allocated = 0;
+		int ret = gethPeriod();
+		
 		for (VertexScheduling v : ready) {
-			int dId = v.getGraphId();
-			int relatSlot = slot % v.getGraphDead();
+			if (isRunning(ready, v, level))
+				allocated++;
 			
-			// If it's a HI task
-			if (v.getWcet(level + 1) > 0) {
-				// Promotion needed for the task
-				if ((v.getWcet(level) - getRemainingTime()[level][dId][v.getId()]) - scheduledUntilTinL(v, slot, level + 1) < 0) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] calcLaxity(): Promotion of task "+v.getName()+" at slot @t = "+slot);
-					v.setWeightInL(0, level);
-				} else {
-					v.setWeightInL(v.getDeadlines()[level] - relatSlot - getRemainingTime()[level][dId][v.getId()], level);
-				}
-			} else {
-				v.setWeightInL(v.getDeadlines()[level] - relatSlot - getRemainingTime()[level][dId][v.getId()], level);
-			}
+			// Deadline has to be respected
+			ret = Math.min(ret, getWeight(v, level) - slot % v.getGraphDead());
 		}
-		// Order the list
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare (VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getWeights()[0] - o2.getWeights()[0] != 0)
-					return o1.getWeights()[0] - o2.getWeights()[0];
-				else
-					return o1.getId() - o2.getId();
-			}
-		});
-	
+		ret = Math.min(ret, slackStableSlots(allocated, slot, level));
+		
+		// Delays are only checked if the order holds
+		for (VertexScheduling v : ready) {
+			if (ret <= 0)
+				break;
+			ret = Math.min(ret, stateStableSlots(v, false, slot, level));
+		}
+		
+		return Math.max(ret, 0) + 1;
+	}
+
+	/**
+	 * Functions that gives the priority of tasks in the lower criticality mode
+	 * it uses LLF
+	 */
+	@Override
+	protected int priorityLO(VertexScheduling v, int slot, int level) {
+		int dId = v.getGraphId();
+		int relatSlot = slot % v.getGraphDead();
+		
+		// Promotion needed for the task
+		if (needsPromotion(v, slot, level)) {
+			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] calcLaxity(): Promotion of task "+v.getName()+" at slot @t = "+slot);
+			return 0;
+		}
+		return getDeadline(v, level) - relatSlot - getRemainingTime()[level][dId][v.getId()];
 	}
 
 }
@@ -16,14 +16,7 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.scheduling;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import fr.tpt.s3.mcdag.model.McDAG;
@@ -36,48 +29,38 @@ import fr.tpt.s3.mcdag.model.VertexScheduling;
  */
 public class LeastLaxityFirstMCSched extends GlobalGenericMCScheduler{
 	
-	// Map to implement the modified version of LLF
-	private Map<Integer, List<VertexScheduling>> equalityMap;
-	private int lastEqLax = -1;
-	
-	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public LeastLaxityFirstMCSched (Set<McDAG> DAGs, int cores, int levels, boolean debug, boolean preemption) {
 		setMcDAGs(DAGs);
 		setNbCores(cores);
 		setLevels(levels);
 		setCountPreempt(preemption);
 		setDebug(debug);
-		equalityMap = new HashMap();
-		
-		for (McDAG d : getMcDAGs()) {
-			calcDedlines(d);
-			if (isDebug()) printDeadlines(d);
-		}
 		
 		if (isCountPreempt())
 			setPreemptions(new Hashtable<VertexScheduling, Integer>());
 	}
 	
+	@Override
+	protected GlobalGenericMCScheduler newScheduler(Set<McDAG> dags, int cores) {
+		return new LeastLaxityFirstMCSched(dags, cores, getLevels(), isDebug(), isCountPreempt());
+	}
+	
 	/**
 	 * Function that verifies if the scheduling tables can still be obtained 
 	 */
 	@Override
-	protected boolean verifyConstraints(List<VertexScheduling> ready, int slot, int level) {
+	protected boolean verifyConstraints(ReadyQueue ready, int slot, int level) {
 		int sumSlotsLeft = 0;
-		int sumZeroLax = 0;
+		VertexScheduling first = ready.peek();
 		
-		for (VertexScheduling v : ready) {
-			// Task has negative laxity -> non schedulable system
-			if (v.getWeights()[level] < 0) {
-				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): negative laxity on task "+v.getName());
-				return false;
-			} else if (v.getWeights()[level] == 0) {
-				sumZeroLax += 1;
-			}
+		// Task has negative laxity -> non schedulable system
+		if (first != null && getWeight(first, level) < 0) {
+			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): negative laxity on task "+first.getName());
+			return false;
 		}
 		
 		// More than m zero laxity tasks
-		if (sumZeroLax > getNbCores()) {
+		if (countNonPositive(ready, level, getNbCores() + 1) > getNbCores()) {
 			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] verifyConstraints(): more than m zero laxity tasks");
 			return false;
 		}
@@ -99,159 +82,69 @@ public class LeastLaxityFirstMCSched extends GlobalGenericMCScheduler{
 	}
 
 	@Override
-	protected void sortHI(List<VertexScheduling> ready, int slot, final int level) {
-		for (VertexScheduling v : ready) {
-			int relatSlot = slot % v.getGraphDead();
-			int dId = v.getGraphId();
-			
-			// It's not the highest criticality level -> perform checks
-			if (level != getLevels() - 1 && v.getWcet(level + 1) != 0) {
-				int deltaI = v.getWcet(level + 1) - v.getWcet(level);
-				//Check if in the higher table the Ci(L+1) - Ci(L) has been allocated
-				if (scheduledUntilTinLreverse(v, slot + 1, level + 1) <= deltaI) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] calcLaxity(): Task "+v.getName()+" needs to be delayed at slot @t = "+slot);
-					v.setDelayed(true);
-					v.setWeightInL(Integer.MAX_VALUE, level);
-				} else {
-					v.setWeightInL(v.getDeadlines()[level] - relatSlot - getRemainingTime()[level][dId][v.getId()], level);
-				}
-			} else {
-				v.setWeightInL(v.getDeadlines()[level] - relatSlot - getRemainingTime()[level][dId][v.getId()], level);
+	protected int priorityHI(VertexScheduling v, int slot, int level) {
+		int relatSlot = slot % v.getGraphDead();
+		int dId = v.getGraphId();
+		
+		// It's not the highest criticality level -> perform checks
+		if (level != getLevels() - 1 && v.getWcet(level + 1) != 0) {
+			int deltaI = v.getWcet(level + 1) - v.getWcet(level);
+			//Check if in the higher table the Ci(L+1) - Ci(L) has been allocated
+			if (scheduledUntilTinLreverse(v, slot + 1, level + 1) <= deltaI) {
+				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] calcLaxity(): Task "+v.getName()+" needs to be delayed at slot @t = "+slot);
+				setDelayed(v, level, true);
+				return Integer.MAX_VALUE;
 			}
 		}
-		// Sort the ready list
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getWeights()[level] - o2.getWeights()[level] != 0)
-					return o1.getWeights()[level] - o2.getWeights()[level];
-				else
-					return o2.getId() - o1.getId();
-			}
-		});
-		//checkForEqualities(ready, level);
+		setDelayed(v, level, false);
+		return getDeadline(v, level) - relatSlot - getRemainingTime()[level][dId][v.getId()];
 	}
 
 	@Override
-	protected void sortLO(List<VertexScheduling> ready, int slot, int level) {
-		for (VertexScheduling v : ready) {
-			int relatSlot = slot % v.getGraphDead();
-			int dId = v.getGraphId();
-			
-			// If it's a HI task
-			if (v.getWcet(level + 1) > 0) {
-				// Promotion needed for the task
-				if ((v.getWcet(level) - getRemainingTime()[level][dId][v.getId()]) - scheduledUntilTinL(v, slot, level + 1) < 0) {
-					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] calcLaxity(): Promotion of task "+v.getName()+" at slot @t = "+slot);
-					v.setWeightInL(0, level);
-				} else {
-					v.setWeightInL(v.getDeadlines()[level] - relatSlot - getRemainingTime()[level][dId][v.getId()], level);
-				}
-			} else {
-				v.setWeightInL(v.getDeadlines()[level] - relatSlot - getRemainingTime()[level][dId][v.getId()], level);
-			}
+	protected int priorityLO(VertexScheduling v, int slot, int level) {
+		int relatSlot = slot % v.getGraphDead();
+		int dId = v.getGraphId();
+		
+		// Promotion needed for the task
+		if (needsPromotion(v, slot, level)) {
+			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] calcLaxity(): Promotion of task "+v.getName()+" at slot @t = "+slot);
+			return 0;
 		}
-		// Sort the list
-		Collections.sort(ready, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare (VertexScheduling o1, VertexScheduling o2) {
-				if (o1.getWeights()[0] - o2.getWeights()[0] != 0)
-					return o1.getWeights()[0] - o2.getWeights()[0];
-				else
-					return o1.getId() - o2.getId();
-			}
-		});
-		//checkForEqualities(ready, level);
+		return getDeadline(v, level) - relatSlot - getRemainingTime()[level][dId][v.getId()];
 	}
 	
 	/**
-	 * Method to prevent preemptions when tasks have the same laxity
-	 * the equality is only interesting on the last element m of the list
-	 * where m is the number of available cores
-	 * @param ready
-	 * @param level
+	 * Tasks with the same laxity are ordered by decreasing ids in HI modes
 	 */
-	private void checkForEqualities (List<VertexScheduling> ready, int level) {
-		// There is no current equality
-		if (lastEqLax == -1) {
-			int eqLax = ready.get(getNbCores() - 1).getWeights()[level]; // Check the laxity of the last element
-			boolean eq = (ready.get(getNbCores()).getWeights()[level] == eqLax) ? true : false;
-			int index = getNbCores() - 2;
-
-			// The system is a state were there is an equality on tasks are there are not enough cores
-			// Initialize the map with the first task
-			if (eq) {
-				lastEqLax = eqLax;
-				equalityMap.put(eqLax, new ArrayList<VertexScheduling>());
-				equalityMap.get(eqLax).add(ready.get(getNbCores() - 1));
-				
-				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] \t\t\t\t checkForEqualities: equality with laxity " + eqLax);
-			
-				// Look for the tasks that will be able to be scheduled
-				eq = (ready.get(index).getWeights()[level] == eqLax) ? true : false;
-				while (eq && index >= 0) {
-					// Add the ready task to the beginning of the list in the map
-					equalityMap.get(eqLax).add(0, ready.get(index));
-					index--;
-					
-					if (index > 0)
-						eq = (ready.get(index).getWeights()[level] == eqLax) ? true : false;
-					else
-						eq = false;
-				}
-				
-				// Mark tasks that will be scheduled
-				for (VertexScheduling v : equalityMap.get(eqLax))
-					v.setSticky(true);
-				
-				// Look for tasks that will not be scheduled
-				index = getNbCores();
-				eq = (ready.get(getNbCores()).getWeights()[level] == eqLax) ? true : false;
-				while (eq && index < ready.size()) {
-					// Add the ready task to the beginning of the list in the map
-					equalityMap.get(eqLax).add(0, ready.get(index));
-					index++;
-					
-					if (index < ready.size())
-						eq = (ready.get(index).getWeights()[level] == eqLax) ? true : false;
-					else
-						eq = false;
-				}
-				
-				// Mark tasks that will not be scheduled
-				for (VertexScheduling v : equalityMap.get(eqLax))
-					v.setLaxityDelayed(true);
-			}
-		} else { // The system is an equality state
-			// Grab the list from the Map
-			ArrayList<VertexScheduling> eqList = (ArrayList<VertexScheduling>) equalityMap.get(lastEqLax);
-			
-			// TODO: Update the map by removing or adding new tasks
-			Iterator<VertexScheduling> itL = eqList.iterator();
-			while (itL.hasNext()) {
-				VertexScheduling v = itL.next();
-				
-				if (!ready.contains(v))
-					itL.remove();
-			}
-			
-			if (eqList.size() == 0) {
-				equalityMap.remove(lastEqLax);
-				lastEqLax = -1;
-				if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] \t\t\t\t checkForEqualities: removing list in hashmap");
-				return;
-			}
-				
-			
-			// Reorder the ready list accordingly
-			for (int i = 0; i < ready.size(); i++) {
-				// Look for previous scheduled task
-				if (eqList.contains(ready.get(i)) && ready.get(i).isLaxityDelayed()) {
-					for (int j = i; j < ready.size(); j++) {
-						Collections.swap(ready, i, j); // Swap in the ready list
-					}
-				}
-			}
-		}
+	@Override
+	protected boolean decreasingIds(int level) {
+		return level != 0;
+	}
+	
+	/**
+	 * Priorities are laxities in all the levels
+	 */
+	@Override
+	protected boolean laxityLevel(int level) {
+		return true;
+	}
+	
+	/**
+	 * Promotions are checked in the LO level, delays in the HI levels
+	 */
+	@Override
+	protected int stateStableSlots(VertexScheduling v, boolean running, int slot, int level) {
+		if (level == 0)
+			return promotionStableSlots(v, running, slot, level);
+		return delayStableSlots(v, slot, level, 1);
+	}
+	
+	/**
+	 * Laxities of waiting tasks decrease by one each slot while the laxities of
+	 * running tasks stay the same
+	 */
+	@Override
+	protected int stableSlots(ReadyQueue ready, int slot, int level) {
+		return laxityStableSlots(ready, slot, level);
 	}
-}
\ No newline at end of file
+}
@@ -18,7 +18,6 @@ package fr.tpt.s3.mcdag.scheduling;
 
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
@@ -29,6 +28,9 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import fr.tpt.s3.mcdag.model.McSystem;
+import fr.tpt.s3.mcdag.parser.SystemLoader;
+
 /**
  * Main class to create the MC-DAG Framework. All functionalities should be included
  * @author roberto
@@ -41,7 +43,7 @@ public class Main {
 		/* Command line options */
 		Options options = new Options();
 		
-		Option input = new Option("i", "input", true, "MC-DAG XML Models");
+		Option input = new Option("i", "input", true, "MC-DAG XML or binary models, directories, globs or zip/tar archives of models");
 		input.setRequired(true);
 		input.setArgs(Option.UNLIMITED_VALUES); // Sets maximum number of threads to be launched
 		options.addOption(input);
@@ -50,6 +52,14 @@ public class Main {
 		outSched.setRequired(false);
 		options.addOption(outSched);
 		
+		Option outBinSched = new Option("ob", "out-binary", false, "Write the scheduling tables into a binary file.");
+		outBinSched.setRequired(false);
+		options.addOption(outBinSched);
+		
+		Option compactOpt = new Option("c", "compact-sched", false, "Write the scheduling tables as runs of slots.");
+		compactOpt.setRequired(false);
+		options.addOption(compactOpt);
+		
 		Option outPrism = new Option("op", "out-prism", false, "Write PRISM model into a file.");
 		outPrism.setRequired(false);
 		options.addOption(outPrism);
@@ -66,6 +76,19 @@ public class Main {
 		preemptOpt.setRequired(false);
 		options.addOption(preemptOpt);
 		
+		Option minCoresOpt = new Option("m", "min-cores", false, "Search the minimum number of cores needed to schedule the system.");
+		minCoresOpt.setRequired(false);
+		options.addOption(minCoresOpt);
+		
+		Option portfolioOpt = new Option("pf", "portfolio", true, "Race the schedulers, with a budget in ms the result with the fewest preemptions is kept.");
+		portfolioOpt.setRequired(false);
+		portfolioOpt.setOptionalArg(true);
+		options.addOption(portfolioOpt);
+		
+		Option traceOpt = new Option("t", "trace", false, "Record the scheduling decisions into a binary trace.");
+		traceOpt.setRequired(false);
+		options.addOption(traceOpt);
+		
 		CommandLineParser parser = new DefaultParser();
 		HelpFormatter formatter = new HelpFormatter();
 		CommandLine cmd;
@@ -82,33 +105,51 @@ public class Main {
 		
 		String inputFilePath[] = cmd.getOptionValues("input");
 		boolean bOutSched = cmd.hasOption("out-scheduler");
+		boolean bOutBinSched = cmd.hasOption("out-binary");
 		boolean bOutPrism = cmd.hasOption("out-prism");
 		boolean debug = cmd.hasOption("debug");
 		boolean preempt = cmd.hasOption("preempt");
 		boolean levels = cmd.hasOption("n-levels");
-		int nbFiles = inputFilePath.length;
-		
+		boolean minCores = cmd.hasOption("min-cores");
+		boolean portfolio = cmd.hasOption("portfolio");
+		boolean trace = cmd.hasOption("trace");
+		boolean compact = cmd.hasOption("compact-sched");
+		long budget = 0;
+		if (cmd.getOptionValue("portfolio") != null)
+			budget = Long.parseLong(cmd.getOptionValue("portfolio"));
 		int nbJobs = 1;
 		if (cmd.hasOption("jobs"))
 			nbJobs = Integer.parseInt(cmd.getOptionValue("jobs"));
 		
 		if (debug)
-			System.out.println("[DEBUG] Launching "+inputFilePath.length+" thread(s).");
+			System.out.println("[DEBUG] Launching "+nbJobs+" thread(s).");
 		
-		int i_files = 0;
-		ExecutorService executor = Executors.newFixedThreadPool(nbJobs);
+		int nbFiles = 0;
+		// Systems are parsed while the previous ones are scheduled
+		SystemLoader loader = new SystemLoader(inputFilePath, nbJobs, nbJobs, bOutPrism);
+		ExecutorService executor = SystemLoader.newBoundedPool(nbJobs);
+		McSystem system;
 		
 		/* Launch threads to solve allocation */
-		while (i_files != nbFiles) {
-			SchedulingThread ft = new SchedulingThread(inputFilePath[i_files], bOutSched, bOutPrism, debug, preempt);
+		loader.start();
+		while ((system = loader.take()) != null) {
+			SchedulingThread ft = new SchedulingThread(system, bOutSched, bOutPrism, debug, preempt);
 			
 			ft.setLevels(levels);
+			ft.setMinCores(minCores);
+			ft.setPortfolio(portfolio);
+			ft.setBudget(budget);
+			ft.setTrace(trace);
+			ft.setCompactSched(compact);
+			ft.setOutBinSchedFile(bOutBinSched);
 			executor.execute(ft);
-			i_files++;
+			nbFiles++;
 		}
 		
 		executor.shutdown();
 		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		if (debug)
+			System.out.println("[DEBUG] "+nbFiles+" system(s) scheduled, "+loader.getNbFailed()+" failed to load.");
 		System.out.println("[FRAMEWORK Main] DONE");
 	}
 }
@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.util.MathMCDAG;
+
+/**
+ * Search of the minimum number of cores needed by a scheduler for a system.
+ * The search starts from the utilization bound and probes several numbers of cores
+ * in parallel. The system, the latest finish times of the DAGs and the hyper-period
+ * are shared by all the probes.
+ * @author Roberto Medina
+ *
+ */
+public class MinimumCores {
+
+	// Number of probes run at the same time
+	private int nbJobs;
+
+	// Highest number of cores probed, 0 for the number of vertices of the system
+	private int maxCores;
+
+	// Bisection between the bound and maxCores instead of an upward search
+	private boolean bisection;
+
+	private int nbProbes;
+	private boolean debug;
+
+	/**
+	 * Constructor of the search
+	 * @param nbJobs
+	 * @param debug
+	 */
+	public MinimumCores (int nbJobs, boolean debug) {
+		setNbJobs(nbJobs);
+		setDebug(debug);
+	}
+
+	/**
+	 * Lower bound on the number of cores: the highest utilization of the levels
+	 * @param system
+	 * @param levels
+	 * @return
+	 */
+	public static int utilizationBound (Set<McDAG> system, int levels) {
+		double max = 0;
+
+		for (int i = 0; i < levels; i++) {
+			double sum = 0;
+
+			for (McDAG d : system)
+				sum += d.getUi(i);
+			if (max < sum)
+				max = sum;
+		}
+		return Math.max(1, (int) Math.ceil(max));
+	}
+
+	/**
+	 * Builds the tables of the system on a number of cores
+	 * @param system
+	 * @param scheduler
+	 * @param hPeriod
+	 * @param cores
+	 * @return the scheduler that built the tables, null if the system is not schedulable
+	 */
+	private GlobalGenericMCScheduler probe (Set<McDAG> system, GlobalGenericMCScheduler scheduler, int hPeriod, int cores) {
+		GlobalGenericMCScheduler s = scheduler.newScheduler(system, cores);
+
+		s.sethPeriod(hPeriod);
+		scheduler.copyOptions(s);
+		try {
+			s.scheduleSystem();
+		} catch (SchedulingException e) {
+			if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] probe(): "+cores+" cores: "+e.getMessage());
+			return null;
+		}
+		if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] probe(): "+cores+" cores: schedulable");
+		return s;
+	}
+
+	/**
+	 * Runs the probes of a list of numbers of cores at the same time
+	 * @param executor
+	 * @param system
+	 * @param scheduler
+	 * @param hPeriod
+	 * @param cores
+	 * @return schedulers that built the tables, in the order of the list
+	 * @throws SchedulingException
+	 */
+	private List<GlobalGenericMCScheduler> probeAll (ExecutorService executor, final Set<McDAG> system,
+			final GlobalGenericMCScheduler scheduler, final int hPeriod, List<Integer> cores) throws SchedulingException {
+		List<Future<GlobalGenericMCScheduler>> futures = new ArrayList<Future<GlobalGenericMCScheduler>>();
+		List<GlobalGenericMCScheduler> ret = new ArrayList<GlobalGenericMCScheduler>();
+
+		for (final int c : cores) {
+			futures.add(executor.submit(new Callable<GlobalGenericMCScheduler>() {
+				@Override
+				public GlobalGenericMCScheduler call() {
+					return probe(system, scheduler, hPeriod, c);
+				}
+			}));
+		}
+		nbProbes += cores.size();
+
+		for (Future<GlobalGenericMCScheduler> f : futures) {
+			try {
+				ret.add(f.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] probeAll(): Interrupted.");
+				throw se;
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new RuntimeException(e.getCause());
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Finds the minimum number of cores on which a scheduler builds the tables of a system.
+	 * Numbers of cores that do not respect the necessary conditions are not probed.
+	 * @param system
+	 * @param scheduler gives the algorithm and its options, its number of cores is not used
+	 * @return the scheduler that built the tables: its number of cores is the minimum found
+	 * @throws SchedulingException if no number of cores up to maxCores is enough
+	 */
+	public GlobalGenericMCScheduler findMinimumCores (Set<McDAG> system, GlobalGenericMCScheduler scheduler) throws SchedulingException {
+		int levels = scheduler.getLevels();
+		int input[] = new int[system.size()];
+		int i = 0;
+
+		if (system.isEmpty()) {
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] findMinimumCores(): the system has no DAG.");
+			throw se;
+		}
+
+		// Work independent of the number of cores, done once for all the probes
+		for (McDAG d : system) {
+			input[i++] = d.getDeadline();
+			d.getLFTs(levels);
+		}
+		int hPeriod = MathMCDAG.lcm(input);
+
+		int high = maxCores;
+		if (high == 0) {
+			for (McDAG d : system)
+				high += d.getVertices().size();
+		}
+
+		// Skip the numbers of cores rejected by the necessary conditions
+		int low = utilizationBound(system, levels);
+		NecessaryConditions nc = new NecessaryConditions(system, low, levels);
+		while (low <= high && !nc.check())
+			nc.setNbCores(++low);
+
+		nbProbes = 0;
+		if (low > high) {
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] findMinimumCores(): "
+					+nc.getFailed()+" condition not respected with "+high+" cores.");
+			throw se;
+		}
+
+		if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] findMinimumCores(): searching between "+low+" and "+high+" cores.");
+
+		ExecutorService executor = Executors.newFixedThreadPool(nbJobs);
+		try {
+			if (isBisection())
+				return bisect(executor, system, scheduler, hPeriod, low, high);
+			return searchUpward(executor, system, scheduler, hPeriod, low, high);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Probes nbJobs consecutive numbers of cores at a time from low,
+	 * the first schedulable one is returned
+	 */
+	private GlobalGenericMCScheduler searchUpward (ExecutorService executor, Set<McDAG> system,
+			GlobalGenericMCScheduler scheduler, int hPeriod, int low, int high) throws SchedulingException {
+		for (int first = low; first <= high; first += nbJobs) {
+			List<Integer> cores = new ArrayList<Integer>();
+
+			for (int c = first; c < first + nbJobs && c <= high; c++)
+				cores.add(c);
+
+			for (GlobalGenericMCScheduler s : probeAll(executor, system, scheduler, hPeriod, cores)) {
+				if (s != null)
+					return s;
+			}
+		}
+		SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] findMinimumCores(): not schedulable with "+high+" cores.");
+		throw se;
+	}
+
+	/**
+	 * Splits [low, high] with nbJobs probes at a time until the interval is a single
+	 * number of cores. The schedulability is assumed to hold for more cores.
+	 */
+	private GlobalGenericMCScheduler bisect (ExecutorService executor, Set<McDAG> system,
+			GlobalGenericMCScheduler scheduler, int hPeriod, int low, int high) throws SchedulingException {
+		List<Integer> cores = new ArrayList<Integer>();
+
+		cores.add(high);
+		GlobalGenericMCScheduler best = probeAll(executor, system, scheduler, hPeriod, cores).get(0);
+		if (best == null) {
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] findMinimumCores(): not schedulable with "+high+" cores.");
+			throw se;
+		}
+
+		while (low < high) {
+			int nb = Math.min(nbJobs, high - low);
+
+			cores.clear();
+			for (int k = 0; k < nb; k++)
+				cores.add(low + (int) ((long) (high - low) * (k + 1) / (nb + 1)));
+
+			List<GlobalGenericMCScheduler> results = probeAll(executor, system, scheduler, hPeriod, cores);
+			int k = 0;
+			while (k < nb && results.get(k) == null)
+				k++;
+
+			if (k < nb) {
+				best = results.get(k);
+				high = cores.get(k);
+			}
+			if (k > 0)
+				low = cores.get(k - 1) + 1;
+		}
+		return best;
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public int getNbJobs() {
+		return nbJobs;
+	}
+
+	public void setNbJobs(int nbJobs) {
+		this.nbJobs = Math.max(1, nbJobs);
+	}
+
+	public int getMaxCores() {
+		return maxCores;
+	}
+
+	public void setMaxCores(int maxCores) {
+		this.maxCores = maxCores;
+	}
+
+	public boolean isBisection() {
+		return bisection;
+	}
+
+	public void setBisection(boolean bisection) {
+		this.bisection = bisection;
+	}
+
+	public int getNbProbes() {
+		return nbProbes;
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+}
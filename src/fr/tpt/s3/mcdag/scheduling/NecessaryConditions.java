@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.util.Set;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.util.MathMCDAG;
+
+/**
+ * Necessary conditions for a system to be schedulable, checked in O(V+E) and
+ * in the length of the hyper-period before building any scheduling table
+ * @author Roberto Medina
+ *
+ */
+public class NecessaryConditions {
+
+	public enum Condition {
+		UTILIZATION,
+		CRITICAL_PATH,
+		DEMAND
+	}
+
+	private Set<McDAG> mcDAGs;
+	private int nbCores;
+	private int levels;
+
+	// Failed condition, level and DAG
+	private Condition failed;
+	private int failedLevel;
+	private McDAG failedDAG;
+
+	/**
+	 * Constructor of the checker
+	 * @param mcDAGs
+	 * @param nbCores
+	 * @param levels
+	 */
+	public NecessaryConditions (Set<McDAG> mcDAGs, int nbCores, int levels) {
+		setMcDAGs(mcDAGs);
+		setNbCores(nbCores);
+		setLevels(levels);
+	}
+
+	private boolean fail (Condition c, int level, McDAG d) {
+		failed = c;
+		failedLevel = level;
+		failedDAG = d;
+		return false;
+	}
+
+	/**
+	 * Checks that the utilization of each level does not exceed the number of cores
+	 * @return
+	 */
+	private boolean checkUtilization () {
+		for (int i = 0; i < levels; i++) {
+			double u = 0.0;
+
+			for (McDAG d : mcDAGs)
+				u += d.getUi(i);
+			if (u > nbCores)
+				return fail(Condition.UTILIZATION, i, null);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks that the critical path of each DAG fits in its deadline in all levels.
+	 * A path is too long when a vertex ends after its latest finish time.
+	 * @return
+	 */
+	private boolean checkCriticalPaths () {
+		for (McDAG d : mcDAGs) {
+			int lfts[][] = d.getLFTs(levels);
+
+			// A vertex in a cycle can never be scheduled
+			if (d.getTopologicalOrder().length != d.getVertices().size())
+				return fail(Condition.CRITICAL_PATH, 0, d);
+
+			for (Vertex v : d.getVertices()) {
+				for (int i = 0; i < levels; i++) {
+					if (v.getWcet(i) != 0 && lfts[i][v.getId()] - v.getWcet(i) < 0)
+						return fail(Condition.CRITICAL_PATH, i, d);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Work of a job of a DAG that has to be done by each slot after its release: a vertex
+	 * ends before its latest finish time. In HI levels the latest finish times are taken
+	 * on the dual, the work is then counted from the end of the period.
+	 * @param d
+	 * @param lfts
+	 * @param level
+	 * @return work indexed by the slot where it is due
+	 */
+	private long[] jobDemand (McDAG d, int lfts[][], int level) {
+		long ret[] = new long[d.getDeadline() + 1];
+
+		for (Vertex v : d.getVertices()) {
+			if (v.getWcet(level) > 0)
+				ret[Math.max(0, Math.min(lfts[level][v.getId()], d.getDeadline()))] += v.getWcet(level);
+		}
+		return ret;
+	}
+
+	/**
+	 * Checks the demand bound of the DAGs released together at the start of the
+	 * hyper-period: the work due by each slot fits in the slots of the cores before it.
+	 * Each job is checked on its own first, then all the jobs of the hyper-period.
+	 * @return
+	 */
+	private boolean checkDemand () {
+		int input[] = new int[mcDAGs.size()];
+		int j = 0;
+
+		if (mcDAGs.isEmpty())
+			return true;
+
+		for (McDAG d : mcDAGs)
+			input[j++] = d.getDeadline();
+		int hPeriod = MathMCDAG.lcm(input);
+
+		for (int i = 0; i < levels; i++) {
+			long demand[] = new long[hPeriod + 1];
+
+			for (McDAG d : mcDAGs) {
+				long job[] = jobDemand(d, d.getLFTs(levels), i);
+				long due = 0;
+
+				for (int t = 0; t <= d.getDeadline(); t++) {
+					due += job[t];
+					if (due > (long) nbCores * t)
+						return fail(Condition.DEMAND, i, d);
+				}
+				for (int release = 0; release < hPeriod; release += d.getDeadline()) {
+					for (int t = 0; t <= d.getDeadline(); t++)
+						demand[release + t] += job[t];
+				}
+			}
+
+			long due = 0;
+			for (int t = 0; t <= hPeriod; t++) {
+				due += demand[t];
+				if (due > (long) nbCores * t)
+					return fail(Condition.DEMAND, i, null);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks all the conditions
+	 * @return false if the system is not schedulable
+	 */
+	public boolean check () {
+		failed = null;
+
+		return checkUtilization() && checkCriticalPaths() && checkDemand();
+	}
+
+	/**
+	 * Checks all the conditions and reports the one that failed
+	 * @throws SchedulingException
+	 */
+	public void verify () throws SchedulingException {
+		if (!check()) {
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] NecessaryConditions: "
+					+failed+" condition not respected in level "+failedLevel
+					+(failedDAG != null ? " for DAG "+failedDAG.getId() : ""));
+			throw se;
+		}
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public Set<McDAG> getMcDAGs() {
+		return mcDAGs;
+	}
+
+	public void setMcDAGs(Set<McDAG> mcDAGs) {
+		this.mcDAGs = mcDAGs;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public void setNbCores(int nbCores) {
+		this.nbCores = nbCores;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public void setLevels(int levels) {
+		this.levels = levels;
+	}
+
+	public Condition getFailed() {
+		return failed;
+	}
+
+	public int getFailedLevel() {
+		return failedLevel;
+	}
+
+	public McDAG getFailedDAG() {
+		return failedDAG;
+	}
+}
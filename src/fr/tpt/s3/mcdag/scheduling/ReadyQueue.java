@@ -0,0 +1,401 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Ready list of the schedulers: indexed binary heap on the task ids
+ * of a scheduling table. Tasks with the lowest key are scheduled first,
+ * equal keys are ordered by task id.
+ * @author Roberto Medina
+ *
+ */
+public class ReadyQueue implements Iterable<VertexScheduling> {
+
+	private SchedulingTable table;
+
+	// Heap of tasks + position of each task id in the heap
+	private VertexScheduling heap[];
+	private int size;
+	private int position[];
+	private long keys[];
+
+	// First tasks of the queue picked for the next slots
+	private VertexScheduling picked[];
+	private int nbPicked;
+	private int pickedStamp[];
+	private int stamp;
+
+	// Heap of the positions that can be picked next, stack of countAtMost
+	private int candidates[];
+	private int stack[];
+
+	// Comparisons of keys done by the queue
+	private long comparisons;
+
+	/**
+	 * Constructor of the queue for the tasks of a scheduling table
+	 * @param table
+	 */
+	public ReadyQueue (SchedulingTable table) {
+		this.table = table;
+		heap = new VertexScheduling[table.getNbTasks()];
+		position = new int[table.getNbTasks()];
+		keys = new long[table.getNbTasks()];
+		pickedStamp = new int[table.getNbTasks()];
+		picked = new VertexScheduling[0];
+		candidates = new int[0];
+		stack = new int[0];
+
+		for (int i = 0; i < position.length; i++)
+			position[i] = -1;
+	}
+
+	/**
+	 * Builds the key of a task from its weight, ties are broken with the second value
+	 * @param weight
+	 * @param tie non negative value
+	 * @return
+	 */
+	public static long key (int weight, int tie) {
+		return ((long) weight << 32) | (tie & 0xffffffffL);
+	}
+
+	/**
+	 * Builds the key of a task, ties are broken by increasing or decreasing ids
+	 * @param weight
+	 * @param v
+	 * @param decreasingIds
+	 * @return
+	 */
+	public static long key (int weight, VertexScheduling v, boolean decreasingIds) {
+		return key(weight, decreasingIds ? Integer.MAX_VALUE - v.getId() : v.getId());
+	}
+
+	private boolean less (VertexScheduling a, VertexScheduling b) {
+		int idA = table.getTaskId(a);
+		int idB = table.getTaskId(b);
+
+		comparisons++;
+		if (keys[idA] != keys[idB])
+			return keys[idA] < keys[idB];
+		return idA < idB;
+	}
+
+	/**
+	 * Checks if a task comes before another one when their weights are equal
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public boolean tieBefore (VertexScheduling a, VertexScheduling b) {
+		int idA = table.getTaskId(a);
+		int idB = table.getTaskId(b);
+		long tieA = keys[idA] & 0xffffffffL;
+		long tieB = keys[idB] & 0xffffffffL;
+
+		if (tieA != tieB)
+			return tieA < tieB;
+		return idA < idB;
+	}
+
+	private void place (VertexScheduling v, int i) {
+		heap[i] = v;
+		position[table.getTaskId(v)] = i;
+	}
+
+	private void siftUp (int i) {
+		VertexScheduling v = heap[i];
+
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!less(v, heap[parent]))
+				break;
+			place(heap[parent], i);
+			i = parent;
+		}
+		place(v, i);
+	}
+
+	private void siftDown (int i) {
+		VertexScheduling v = heap[i];
+
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && less(heap[child + 1], heap[child]))
+				child++;
+			if (!less(heap[child], v))
+				break;
+			place(heap[child], i);
+			i = child;
+		}
+		place(v, i);
+	}
+
+	public boolean contains (VertexScheduling v) {
+		return position[table.getTaskId(v)] != -1;
+	}
+
+	/**
+	 * Adds a task to the queue, the key of a task already present is updated
+	 * @param v
+	 * @param key
+	 */
+	public void add (VertexScheduling v, long key) {
+		if (contains(v)) {
+			update(v, key);
+			return;
+		}
+		keys[table.getTaskId(v)] = key;
+		place(v, size);
+		size++;
+		siftUp(size - 1);
+	}
+
+	/**
+	 * Changes the key of a task in the queue
+	 * @param v
+	 * @param key
+	 */
+	public void update (VertexScheduling v, long key) {
+		int id = table.getTaskId(v);
+		long old = keys[id];
+
+		if (old == key)
+			return;
+		keys[id] = key;
+		if (key < old)
+			siftUp(position[id]);
+		else
+			siftDown(position[id]);
+	}
+
+	public void remove (VertexScheduling v) {
+		int id = table.getTaskId(v);
+		int i = position[id];
+
+		if (i == -1)
+			return;
+		position[id] = -1;
+		size--;
+		if (i != size) {
+			place(heap[size], i);
+			siftUp(i);
+			siftDown(position[table.getTaskId(heap[i])]);
+		}
+		heap[size] = null;
+	}
+
+	public VertexScheduling peek () {
+		return size == 0 ? null : heap[0];
+	}
+
+	public VertexScheduling poll () {
+		VertexScheduling v = peek();
+
+		if (v != null)
+			remove(v);
+		return v;
+	}
+
+	public long getKey (VertexScheduling v) {
+		return keys[table.getTaskId(v)];
+	}
+
+	/**
+	 * Picks the first tasks of the queue without removing them
+	 * @param k
+	 * @return number of tasks picked
+	 */
+	public int pick (int k) {
+		if (picked.length < k)
+			picked = new VertexScheduling[k];
+		nbPicked = 0;
+		stamp++;
+
+		// Candidates are the children of the tasks already picked
+		if (candidates.length < 2 * k + 1)
+			candidates = new int[2 * k + 1];
+		int nbCandidates = 0;
+		if (size > 0)
+			candidates[nbCandidates++] = 0;
+
+		while (nbPicked < k && nbCandidates > 0) {
+			int i = candidates[0];
+
+			candidates[0] = candidates[--nbCandidates];
+			siftDownCandidate(0, nbCandidates);
+
+			picked[nbPicked++] = heap[i];
+			pickedStamp[table.getTaskId(heap[i])] = stamp;
+			if (2 * i + 1 < size)
+				addCandidate(2 * i + 1, nbCandidates++);
+			if (2 * i + 2 < size)
+				addCandidate(2 * i + 2, nbCandidates++);
+		}
+		return nbPicked;
+	}
+
+	/**
+	 * Adds a position of the heap to the candidates of pick
+	 * @param pos
+	 * @param n number of candidates before the new one
+	 */
+	private void addCandidate (int pos, int n) {
+		int i = n;
+
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!less(heap[pos], heap[candidates[parent]]))
+				break;
+			candidates[i] = candidates[parent];
+			i = parent;
+		}
+		candidates[i] = pos;
+	}
+
+	private void siftDownCandidate (int i, int n) {
+		int pos = candidates[i];
+
+		while (2 * i + 1 < n) {
+			int child = 2 * i + 1;
+			if (child + 1 < n && less(heap[candidates[child + 1]], heap[candidates[child]]))
+				child++;
+			if (!less(heap[candidates[child]], heap[pos]))
+				break;
+			candidates[i] = candidates[child];
+			i = child;
+		}
+		candidates[i] = pos;
+	}
+
+	/**
+	 * Returns the first task of the queue that was not picked.
+	 * Picked tasks form the top of the heap, the first one left is a child of a picked task.
+	 * @return
+	 */
+	public VertexScheduling peekUnpicked () {
+		VertexScheduling ret = null;
+
+		if (size > 0 && !isPicked(heap[0]))
+			return heap[0];
+
+		for (int i = 0; i < nbPicked; i++) {
+			int p = position[table.getTaskId(picked[i])];
+
+			for (int c = 2 * p + 1; c <= 2 * p + 2 && c < size; c++) {
+				if (!isPicked(heap[c]) && (ret == null || less(heap[c], ret)))
+					ret = heap[c];
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Counts the tasks with a weight lower or equal to a value,
+	 * only the top of the heap is visited
+	 * @param weight
+	 * @param limit the count stops at limit
+	 * @return
+	 */
+	public int countAtMost (int weight, int limit) {
+		int count = 0;
+		int top = 0;
+
+		if (stack.length < 2 * limit + 1)
+			stack = new int[2 * limit + 1];
+
+		if (size > 0)
+			stack[top++] = 0;
+
+		while (top > 0 && count < limit) {
+			int i = stack[--top];
+
+			if ((int) (keys[table.getTaskId(heap[i])] >> 32) > weight)
+				continue;
+			count++;
+			if (2 * i + 1 < size)
+				stack[top++] = 2 * i + 1;
+			if (2 * i + 2 < size)
+				stack[top++] = 2 * i + 2;
+		}
+		return count;
+	}
+
+	public VertexScheduling getPicked (int i) {
+		return picked[i];
+	}
+
+	public int getNbPicked () {
+		return nbPicked;
+	}
+
+	public boolean isPicked (VertexScheduling v) {
+		return pickedStamp[table.getTaskId(v)] == stamp;
+	}
+
+	/**
+	 * Copies the tasks of the queue in heap order
+	 * @param tasks
+	 * @return
+	 */
+	public VertexScheduling[] toArray (VertexScheduling tasks[]) {
+		if (tasks.length < size)
+			tasks = new VertexScheduling[size];
+		System.arraycopy(heap, 0, tasks, 0, size);
+		return tasks;
+	}
+
+	public int size () {
+		return size;
+	}
+
+	public boolean isEmpty () {
+		return size == 0;
+	}
+
+	public long getComparisons () {
+		return comparisons;
+	}
+
+	/**
+	 * Iterates over the queue in heap order
+	 */
+	@Override
+	public Iterator<VertexScheduling> iterator () {
+		return new Iterator<VertexScheduling>() {
+			private int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			@Override
+			public VertexScheduling next() {
+				if (i >= size)
+					throw new NoSuchElementException();
+				return heap[i++];
+			}
+		};
+	}
+}
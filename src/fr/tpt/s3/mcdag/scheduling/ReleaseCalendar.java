@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.Vertex;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Release calendar of the DAGs over the hyper-period. Releases are given
+ * by step of the scheduling loop: the LO level counts steps from the start
+ * of the hyper-period, HI levels from its end. Both directions see the same
+ * releases since the hyper-period is a multiple of all the periods.
+ * The first vertices of the jobs of each DAG are computed once: sources
+ * in the LO level, sinks in the HI levels.
+ * @author Roberto Medina
+ *
+ */
+public class ReleaseCalendar {
+
+	private static final McDAG NONE[] = new McDAG[0];
+
+	private int hPeriod;
+
+	// Release steps in increasing order + DAGs released in each one
+	private int releases[];
+	private McDAG released[][];
+
+	// Next release read by each level
+	private int cursors[];
+
+	// Graph id, level -> first vertices of the jobs, WCETs by vertex id, sum of the WCETs
+	private VertexScheduling starts[][][];
+	private int wcets[][][];
+	private int volumes[][];
+
+	/**
+	 * Constructor of the calendar
+	 * @param dags
+	 * @param hPeriod
+	 * @param levels
+	 */
+	public ReleaseCalendar (Set<McDAG> dags, int hPeriod, int levels) {
+		this.hPeriod = hPeriod;
+		cursors = new int[levels];
+
+		McDAG order[] = dags.toArray(new McDAG[dags.size()]);
+		int maxId = -1;
+		int nbReleases = 0;
+
+		for (McDAG d : order) {
+			maxId = Math.max(maxId, d.getId());
+			nbReleases += hPeriod / d.getDeadline();
+		}
+
+		// Step + position of the DAG, DAGs released together keep the order of the set
+		long events[] = new long[nbReleases];
+		int e = 0;
+		for (int i = 0; i < order.length; i++) {
+			for (int s = 0; s < hPeriod; s += order[i].getDeadline())
+				events[e++] = ((long) s << 32) | i;
+		}
+		Arrays.sort(events);
+
+		int steps[] = new int[events.length];
+		List<List<McDAG>> groups = new ArrayList<List<McDAG>>();
+		int nbSteps = 0;
+		for (long event : events) {
+			int step = (int) (event >>> 32);
+
+			if (nbSteps == 0 || steps[nbSteps - 1] != step) {
+				steps[nbSteps++] = step;
+				groups.add(new ArrayList<McDAG>());
+			}
+			groups.get(nbSteps - 1).add(order[(int) event]);
+		}
+
+		releases = Arrays.copyOf(steps, nbSteps);
+		released = new McDAG[nbSteps][];
+		for (int i = 0; i < nbSteps; i++)
+			released[i] = groups.get(i).toArray(new McDAG[groups.get(i).size()]);
+
+		starts = new VertexScheduling[maxId + 1][levels][];
+		wcets = new int[maxId + 1][levels][];
+		volumes = new int[maxId + 1][levels];
+		for (McDAG d : order)
+			initJobs(d, levels);
+	}
+
+	/**
+	 * Computes the first vertices and the WCETs of the jobs of a DAG
+	 * @param d
+	 * @param levels
+	 */
+	private void initJobs (McDAG d, int levels) {
+		int size = 0;
+
+		for (Vertex v : d.getVertices())
+			size = Math.max(size, v.getId() + 1);
+
+		for (int l = 0; l < levels; l++) {
+			List<VertexScheduling> first = new ArrayList<VertexScheduling>();
+
+			wcets[d.getId()][l] = new int[size];
+			for (Vertex v : d.getVertices()) {
+				wcets[d.getId()][l][v.getId()] = v.getWcet(l);
+				volumes[d.getId()][l] += v.getWcet(l);
+
+				if (l == 0 ? v.isSourceinL(l) : v.isSinkinL(l))
+					first.add((VertexScheduling) v);
+			}
+			starts[d.getId()][l] = first.toArray(new VertexScheduling[first.size()]);
+		}
+	}
+
+	/**
+	 * Returns the DAGs released at a step. Each level has to read its releases in
+	 * increasing steps.
+	 * @param level
+	 * @param step
+	 * @return
+	 */
+	public McDAG[] releasedAt (int level, int step) {
+		while (cursors[level] < releases.length && releases[cursors[level]] < step)
+			cursors[level]++;
+
+		if (cursors[level] < releases.length && releases[cursors[level]] == step)
+			return released[cursors[level]];
+		return NONE;
+	}
+
+	/**
+	 * Returns the first release after a step, the hyper-period if there is none
+	 * @param level
+	 * @param step
+	 * @return
+	 */
+	public int nextRelease (int level, int step) {
+		while (cursors[level] < releases.length && releases[cursors[level]] <= step)
+			cursors[level]++;
+
+		if (cursors[level] < releases.length)
+			return releases[cursors[level]];
+		return hPeriod;
+	}
+
+	/**
+	 * Returns the vertices starting the jobs of a DAG in a level
+	 * @param d
+	 * @param level
+	 * @return
+	 */
+	public VertexScheduling[] getStarts (McDAG d, int level) {
+		return starts[d.getId()][level];
+	}
+
+	/**
+	 * Returns the WCETs of the vertices of a DAG in a level, indexed by vertex id
+	 * @param d
+	 * @param level
+	 * @return
+	 */
+	public int[] getWcets (McDAG d, int level) {
+		return wcets[d.getId()][level];
+	}
+
+	/**
+	 * Returns the sum of the WCETs of a DAG in a level
+	 * @param d
+	 * @param level
+	 * @return
+	 */
+	public int getVolume (McDAG d, int level) {
+		return volumes[d.getId()][level];
+	}
+
+	public int getNbReleases () {
+		return releases.length;
+	}
+}
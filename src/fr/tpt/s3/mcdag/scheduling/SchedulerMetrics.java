@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of the construction of the scheduling tables: time spent in each level,
+ * slots built, sorts and comparisons of the ready lists, activations, delays and
+ * promotions, migrations avoided by the core assignment, lengths of the ready list
+ * and memory taken by the tables.
+ * Each level is counted apart since HI levels can be built on their own thread.
+ * Metrics can be registered as an MBean, values read while a table is built may lag.
+ * @author Roberto Medina
+ *
+ */
+public class SchedulerMetrics implements SchedulerMetricsMBean {
+
+	public static final String DOMAIN = "fr.tpt.s3.mcdag";
+
+	// Buckets of the ready list lengths: 0, then [2^(b-1), 2^b), the last one is open
+	public static final int BUCKETS = 16;
+
+	private String name;
+	private ObjectName objectName;
+
+	// Level -> counters
+	private long levelTimes[];
+	private long starts[];
+	private long slots[];
+	private long sorts[];
+	private long comparisons[];
+	private long activations[];
+	private long delays[];
+	private long promotions[];
+	private long migrationsAvoided[];
+
+	// Level, bucket -> number of samples + sum and max of the lengths
+	private long readyHistogram[][];
+	private long readySums[];
+	private int readyMax[];
+
+	private long tableBytes;
+
+	/**
+	 * Constructor of the metrics
+	 * @param name name of the MBean
+	 */
+	public SchedulerMetrics (String name) {
+		this.name = name;
+		init(0);
+	}
+
+	/**
+	 * Counters of a scheduler are set to zero at the beginning of each run
+	 * @param levels
+	 */
+	public void init (int levels) {
+		levelTimes = new long[levels];
+		starts = new long[levels];
+		slots = new long[levels];
+		sorts = new long[levels];
+		comparisons = new long[levels];
+		activations = new long[levels];
+		delays = new long[levels];
+		promotions = new long[levels];
+		migrationsAvoided = new long[levels];
+		readyHistogram = new long[levels][BUCKETS];
+		readySums = new long[levels];
+		readyMax = new int[levels];
+		tableBytes = 0;
+	}
+
+	/**
+	 * Clears the counters and keeps the number of levels
+	 */
+	public void reset () {
+		init(getLevels());
+	}
+
+	public void startLevel (int level) {
+		starts[level] = System.nanoTime();
+	}
+
+	public void endLevel (int level) {
+		levelTimes[level] += System.nanoTime() - starts[level];
+	}
+
+	public void slots (int level, int n) {
+		slots[level] += n;
+	}
+
+	public void sort (int level) {
+		sorts[level]++;
+	}
+
+	public void comparisons (int level, long n) {
+		comparisons[level] += n;
+	}
+
+	public void comparison (int level) {
+		comparisons[level]++;
+	}
+
+	public void activation (int level) {
+		activations[level]++;
+	}
+
+	public void delay (int level) {
+		delays[level]++;
+	}
+
+	public void promotion (int level) {
+		promotions[level]++;
+	}
+
+	public void migrationAvoided (int level) {
+		migrationsAvoided[level]++;
+	}
+
+	public void tableBytes (long n) {
+		tableBytes += n;
+	}
+
+	/**
+	 * Samples the length of a ready list
+	 * @param level
+	 * @param length
+	 */
+	public void readyLength (int level, int length) {
+		int bucket = Math.min(32 - Integer.numberOfLeadingZeros(length), BUCKETS - 1);
+
+		readyHistogram[level][bucket]++;
+		readySums[level] += length;
+		if (length > readyMax[level])
+			readyMax[level] = length;
+	}
+
+	private static long sum (long values[]) {
+		long ret = 0;
+
+		for (long v : values)
+			ret += v;
+		return ret;
+	}
+
+	/**
+	 * Registers the metrics in the platform MBean server
+	 * @return false if the metrics could not be registered
+	 */
+	public boolean register () {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			objectName = new ObjectName(DOMAIN+":type=SchedulerMetrics,name="+ObjectName.quote(name));
+			server.registerMBean(this, objectName);
+		} catch (JMException e) {
+			System.err.println("[WARNING] Unable to register the metrics "+name+": "+e.getMessage());
+			objectName = null;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server
+	 */
+	public void unregister () {
+		if (objectName == null)
+			return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch (JMException e) {
+			System.err.println("[WARNING] Unable to unregister the metrics "+name+": "+e.getMessage());
+		}
+		objectName = null;
+	}
+
+	/**
+	 * Header of the CSV columns, each column is prefixed
+	 * @param prefix
+	 * @return
+	 */
+	public static String csvHeader (String prefix) {
+		return prefix+"TimeUs; "+prefix+"Slots; "+prefix+"Sorts; "+prefix+"Comparisons; "+prefix+"Activations; "
+				+prefix+"Delays; "+prefix+"Promotions; "+prefix+"MigrationsAvoided; "+prefix+"TableBytes; "+prefix+"MaxReady; "+prefix+"MeanReady";
+	}
+
+	/**
+	 * Values of the CSV columns, in the order of the header
+	 * @return
+	 */
+	public String toCsv () {
+		return (getTime() / 1000)+"; "+getSlots()+"; "+getSorts()+"; "+getComparisons()+"; "+getActivations()+"; "
+				+getDelays()+"; "+getPromotions()+"; "+getMigrationsAvoided()+"; "+getTableBytes()+"; "+getMaxReady()+"; "+Math.round(getMeanReady() * 100) / 100.0;
+	}
+
+	@Override
+	public String toString () {
+		return name+": "+(getTime() / 1000)+" us, "+getSlots()+" slots, "+getSorts()+" sorts, "+getComparisons()+" comparisons, "
+				+getActivations()+" activations, "+getDelays()+" delays, "+getPromotions()+" promotions, "+getMigrationsAvoided()+" migrations avoided, "
+				+getTableBytes()+" bytes of tables, ready list max "+getMaxReady()+" mean "+Math.round(getMeanReady() * 100) / 100.0;
+	}
+
+	/*
+	 * Getters
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public int getLevels() {
+		return levelTimes.length;
+	}
+
+	@Override
+	public long[] getLevelTimes() {
+		return levelTimes.clone();
+	}
+
+	@Override
+	public long getTime() {
+		return sum(levelTimes);
+	}
+
+	@Override
+	public long getSlots() {
+		return sum(slots);
+	}
+
+	@Override
+	public long getSorts() {
+		return sum(sorts);
+	}
+
+	@Override
+	public long getComparisons() {
+		return sum(comparisons);
+	}
+
+	@Override
+	public long getActivations() {
+		return sum(activations);
+	}
+
+	@Override
+	public long getDelays() {
+		return sum(delays);
+	}
+
+	@Override
+	public long getPromotions() {
+		return sum(promotions);
+	}
+
+	@Override
+	public long getMigrationsAvoided() {
+		return sum(migrationsAvoided);
+	}
+
+	@Override
+	public long getTableBytes() {
+		return tableBytes;
+	}
+
+	@Override
+	public long[] getReadyHistogram() {
+		long ret[] = new long[BUCKETS];
+
+		for (long h[] : readyHistogram) {
+			for (int b = 0; b < BUCKETS; b++)
+				ret[b] += h[b];
+		}
+		return ret;
+	}
+
+	@Override
+	public int getMaxReady() {
+		int ret = 0;
+
+		for (int m : readyMax)
+			ret = Math.max(ret, m);
+		return ret;
+	}
+
+	@Override
+	public double getMeanReady() {
+		long samples = sum(getReadyHistogram());
+
+		return samples == 0 ? 0 : (double) sum(readySums) / samples;
+	}
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+/**
+ * Management interface of the scheduler metrics, totals are summed over the levels
+ * @author Roberto Medina
+ *
+ */
+public interface SchedulerMetricsMBean {
+
+	public String getName();
+
+	public int getLevels();
+
+	public long[] getLevelTimes();
+
+	public long getTime();
+
+	public long getSlots();
+
+	public long getSorts();
+
+	public long getComparisons();
+
+	public long getActivations();
+
+	public long getDelays();
+
+	public long getPromotions();
+
+	public long getMigrationsAvoided();
+
+	public long getTableBytes();
+
+	public long[] getReadyHistogram();
+
+	public int getMaxReady();
+
+	public double getMeanReady();
+}
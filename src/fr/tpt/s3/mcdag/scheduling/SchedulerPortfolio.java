@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.util.Hashtable;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Portfolio of schedulers run at the same time on the same system.
+ * Without budget the first scheduler that builds its tables wins, otherwise the
+ * result with the fewest preemptions found within the budget is kept.
+ * The schedulers still running are cancelled at their next slot.
+ * @author Roberto Medina
+ *
+ */
+public class SchedulerPortfolio {
+
+	public enum Algorithm {
+		EDF,
+		LLF,
+		HYBRID,
+		FEDERATED
+	}
+
+	private Set<McDAG> mcDAGs;
+	private int nbCores;
+	private int levels;
+	private boolean debug;
+
+	// Time given to the schedulers in ms, 0 to keep the first result
+	private long budget;
+
+	// The federated scheduler only handles dual-criticality systems and builds one table per heavy DAG
+	private boolean federated = true;
+
+	// Schedulers of the race, by algorithm
+	private GlobalGenericMCScheduler schedulers[];
+	private FederatedMCSched fedScheduler;
+
+	// Result of the race
+	private Algorithm winner;
+	private int nbPreemptions;
+
+	/**
+	 * Constructor of the portfolio
+	 * @param mcDAGs
+	 * @param nbCores
+	 * @param levels
+	 * @param debug
+	 */
+	public SchedulerPortfolio (Set<McDAG> mcDAGs, int nbCores, int levels, boolean debug) {
+		setMcDAGs(mcDAGs);
+		setNbCores(nbCores);
+		setLevels(levels);
+		setDebug(debug);
+	}
+
+	private static int sum (Hashtable<VertexScheduling, Integer> preempts) {
+		int ret = 0;
+
+		for (Integer p : preempts.values())
+			ret += p;
+		return ret;
+	}
+
+	/**
+	 * Runs one scheduler of the portfolio
+	 * @param a
+	 * @return the algorithm once its tables are built
+	 * @throws SchedulingException
+	 */
+	private Algorithm run (Algorithm a) throws SchedulingException {
+		if (a == Algorithm.FEDERATED)
+			fedScheduler.buildAllTables();
+		else
+			schedulers[a.ordinal()].scheduleSystem();
+
+		if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] run(): "+a+" built its tables.");
+		return a;
+	}
+
+	private int preemptions (Algorithm a) {
+		if (a == Algorithm.FEDERATED)
+			return sum(fedScheduler.getPreempts());
+		else if (schedulers[a.ordinal()].isCountPreempt())
+			return sum(schedulers[a.ordinal()].getPreemptions());
+		return 0;
+	}
+
+	private void cancelAll () {
+		for (GlobalGenericMCScheduler s : schedulers) {
+			if (s != null)
+				s.cancel();
+		}
+		if (fedScheduler != null)
+			fedScheduler.cancel();
+	}
+
+	/**
+	 * Races the schedulers of the portfolio
+	 * @throws SchedulingException if no scheduler builds its tables
+	 */
+	public void race () throws SchedulingException {
+		boolean countPreempt = budget > 0;
+
+		schedulers = new GlobalGenericMCScheduler[Algorithm.values().length];
+		schedulers[Algorithm.EDF.ordinal()] = new EartliestDeadlineFirstMCSched(mcDAGs, nbCores, levels, debug, countPreempt);
+		schedulers[Algorithm.LLF.ordinal()] = new LeastLaxityFirstMCSched(mcDAGs, nbCores, levels, debug, countPreempt);
+		schedulers[Algorithm.HYBRID.ordinal()] = new HybridMCSched(mcDAGs, nbCores, levels, debug, countPreempt);
+		fedScheduler = (isFederated() && levels == 2) ? new FederatedMCSched(mcDAGs, nbCores, debug) : null;
+		winner = null;
+
+		ExecutorService executor = Executors.newFixedThreadPool(Algorithm.values().length);
+		ExecutorCompletionService<Algorithm> results = new ExecutorCompletionService<Algorithm>(executor);
+		int pending = 0;
+
+		for (final Algorithm a : Algorithm.values()) {
+			if (a == Algorithm.FEDERATED && fedScheduler == null)
+				continue;
+			results.submit(new Callable<Algorithm>() {
+				@Override
+				public Algorithm call() throws SchedulingException {
+					return run(a);
+				}
+			});
+			pending++;
+		}
+
+		// Errors of a scheduler are only reported when no other one wins
+		RuntimeException error = null;
+		long end = System.currentTimeMillis() + budget;
+		try {
+			while (pending > 0) {
+				Future<Algorithm> f;
+
+				if (budget > 0) {
+					f = results.poll(Math.max(end - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+					if (f == null)
+						break;
+				} else {
+					f = results.take();
+				}
+				pending--;
+
+				try {
+					Algorithm a = f.get();
+					int p = preemptions(a);
+
+					// Equal results are ordered by algorithm to stay deterministic
+					if (winner == null || p < nbPreemptions || (p == nbPreemptions && a.ordinal() < winner.ordinal())) {
+						winner = a;
+						nbPreemptions = p;
+					}
+					if (budget == 0)
+						break;
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof RuntimeException)
+						error = (RuntimeException) e.getCause();
+					else if (!(e.getCause() instanceof SchedulingException))
+						error = new RuntimeException(e.getCause());
+					if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] race(): "+e.getCause().getMessage());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] race(): Interrupted.");
+			throw se;
+		} finally {
+			cancelAll();
+			executor.shutdown();
+		}
+
+		if (winner == null && error != null)
+			throw error;
+		if (winner == null) {
+			SchedulingException se = new SchedulingException("[ERROR "+Thread.currentThread().getName()+"] race(): No scheduler was able to build the tables"
+					+(budget > 0 ? " within "+budget+" ms." : "."));
+			throw se;
+		}
+		if (isDebug()) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] race(): "+winner+" wins with "+nbPreemptions+" preemptions.");
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public Set<McDAG> getMcDAGs() {
+		return mcDAGs;
+	}
+
+	public void setMcDAGs(Set<McDAG> mcDAGs) {
+		this.mcDAGs = mcDAGs;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public void setNbCores(int nbCores) {
+		this.nbCores = nbCores;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public void setLevels(int levels) {
+		this.levels = levels;
+	}
+
+	public boolean isDebug() {
+		return debug;
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	public boolean isFederated() {
+		return federated;
+	}
+
+	public void setFederated(boolean federated) {
+		this.federated = federated;
+	}
+
+	public Algorithm getWinner() {
+		return winner;
+	}
+
+	public int getNbPreemptions() {
+		return nbPreemptions;
+	}
+
+	/**
+	 * Returns the global scheduler that won, null if the federated scheduler won
+	 * @return
+	 */
+	public GlobalGenericMCScheduler getScheduler() {
+		if (winner == null || winner == Algorithm.FEDERATED)
+			return null;
+		return schedulers[winner.ordinal()];
+	}
+
+	public FederatedMCSched getFedScheduler() {
+		return winner == Algorithm.FEDERATED ? fedScheduler : null;
+	}
+}
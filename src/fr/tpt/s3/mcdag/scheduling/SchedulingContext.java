@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.scheduling;
+
+import java.util.Arrays;
+
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Working state of one scheduler run for the tasks of a scheduling table.
+ * Schedulers only read the MC-DAGs and keep what they compute here,
+ * so several runs can share the same system.
+ * @author Roberto Medina
+ *
+ */
+public class SchedulingContext {
+
+	private SchedulingTable table;
+	private int levels;
+
+	// Level, task id -> value
+	private int deadlines[][];
+	private int weights[][];
+	private int hlfets[][];
+	private boolean delayed[][];
+	private boolean visited[][];
+
+	// Task id -> task kept on its core
+	private boolean running[];
+
+	/**
+	 * Constructor of the context for the tasks of a table
+	 * @param table
+	 * @param levels
+	 */
+	public SchedulingContext (SchedulingTable table, int levels) {
+		this.table = table;
+		this.levels = levels;
+
+		deadlines = new int[levels][table.getNbTasks()];
+		weights = new int[levels][table.getNbTasks()];
+		hlfets = new int[levels][table.getNbTasks()];
+		delayed = new boolean[levels][table.getNbTasks()];
+		visited = new boolean[levels][table.getNbTasks()];
+		running = new boolean[table.getNbTasks()];
+
+		for (int i = 0; i < levels; i++) {
+			Arrays.fill(deadlines[i], Integer.MAX_VALUE);
+			Arrays.fill(weights[i], Integer.MAX_VALUE);
+		}
+	}
+
+	private int id (VertexScheduling v) {
+		return table.getTaskId(v);
+	}
+
+	/**
+	 * Sets all the delays of a level to false
+	 * @param level
+	 */
+	public void clearDelays (int level) {
+		Arrays.fill(delayed[level], false);
+	}
+
+	/*
+	 * Getters & Setters
+	 */
+	public SchedulingTable getTable() {
+		return table;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getDeadline (VertexScheduling v, int level) {
+		return deadlines[level][id(v)];
+	}
+
+	public void setDeadline (VertexScheduling v, int level, int deadline) {
+		deadlines[level][id(v)] = deadline;
+	}
+
+	public int getWeight (VertexScheduling v, int level) {
+		return weights[level][id(v)];
+	}
+
+	public void setWeight (VertexScheduling v, int level, int weight) {
+		weights[level][id(v)] = weight;
+	}
+
+	public int getHlfet (VertexScheduling v, int level) {
+		return hlfets[level][id(v)];
+	}
+
+	public void setHlfet (VertexScheduling v, int level, int hlfet) {
+		hlfets[level][id(v)] = hlfet;
+	}
+
+	public boolean isDelayed (VertexScheduling v, int level) {
+		return delayed[level][id(v)];
+	}
+
+	public void setDelayed (VertexScheduling v, int level, boolean delay) {
+		delayed[level][id(v)] = delay;
+	}
+
+	public boolean isVisited (VertexScheduling v, int level) {
+		return visited[level][id(v)];
+	}
+
+	public void setVisited (VertexScheduling v, int level, boolean visit) {
+		visited[level][id(v)] = visit;
+	}
+
+	public boolean isRunning (VertexScheduling v) {
+		return running[id(v)];
+	}
+
+	public void setRunning (VertexScheduling v, boolean run) {
+		running[id(v)] = run;
+	}
+}
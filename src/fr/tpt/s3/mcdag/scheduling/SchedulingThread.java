@@ -22,7 +22,9 @@ import java.util.Set;
 
 import fr.tpt.s3.mcdag.avail.Automata;
 import fr.tpt.s3.mcdag.model.McDAG;
+import fr.tpt.s3.mcdag.model.McSystem;
 import fr.tpt.s3.mcdag.parser.MCParser;
+import fr.tpt.s3.mcdag.trace.TraceRecorder;
 
 /**
  * Threads used by the framework to schedule and write to files
@@ -35,6 +37,7 @@ public class SchedulingThread implements Runnable{
 	private MCParser mcp;
 	private String inputFile;
 	private boolean outSchedFile;
+	private boolean outBinSchedFile;
 	private boolean outPRISMFile;
 	private boolean levels;
 	
@@ -43,10 +46,18 @@ public class SchedulingThread implements Runnable{
 	private Automata auto;
 	private boolean debug;
 	private boolean preempt;
+	private boolean minCores;
+	private boolean portfolio;
+	private long budget;
+	private boolean trace;
+	private boolean compactSched;
+	// System already read by a loader
+	private boolean loaded;
 	
 	public SchedulingThread(String iFile, boolean oSF, boolean oPF, boolean debug, boolean preempt) {
 		dags = new HashSet<McDAG>();
 		mcp = new MCParser(iFile, null, dags, oPF);
+		setInputFile(iFile);
 		setOutPRISMFile(oPF);
 		setPreempt(preempt);
 		
@@ -55,12 +66,35 @@ public class SchedulingThread implements Runnable{
 		if (isOutSchedFile()) mcp.setOutSchedFile(iFile.substring(0, iFile.lastIndexOf('.')).concat("-sched.xml"));
 		setDebug(debug);
 	}
+	
+	/**
+	 * Thread for a system already read, output files are named after the system
+	 * @param system
+	 * @param oSF
+	 * @param oPF
+	 * @param debug
+	 * @param preempt
+	 */
+	public SchedulingThread(McSystem system, boolean oSF, boolean oPF, boolean debug, boolean preempt) {
+		this(system.getName(), oSF, oPF, debug, preempt);
+		dags.addAll(system.getDags());
+		mcp.setNbCores(system.getNbCores());
+		mcp.setNbLevels(system.getNbLevels());
+		loaded = true;
+	}
 
 	@Override
 	public void run() {
-		mcp.readXML();
+		if (!loaded) {
+			try {
+				mcp.readXML();
+			} catch (IOException e) {
+				System.err.println("[ERROR] Unable to read the system "+getInputFile()+": "+e.getMessage());
+				return;
+			}
+		}
 		
-		if (!isOutSchedFile())
+		if (!isOutSchedFile() && !isOutBinSchedFile())
 			System.err.println("[WARNING] No output file has been specified for the scheduling tables.");
 		
 		// Only one DAG has to be scheduled in the multi-core architecture
@@ -78,7 +112,7 @@ public class SchedulingThread implements Runnable{
 			}
 			mcp.setNbCores(ls.getNbCores());
 			mcp.sethPeriod(ls.getDeadline());
-			mcp.setSched(ls.getSched());
+			mcp.setSchedTable(ls.getSchedTable());
 			
 			if (isOutPRISMFile()) {
 				if (debug) System.out.println("[DEBUG] UniDAG: Creating the automata object.");
@@ -100,24 +134,81 @@ public class SchedulingThread implements Runnable{
 			//setScheduler(new EartliestDeadlineFirstMCSched(mcp.getDags(), mcp.getNbCores(), mcp.getNbLevels(), debug, isPreempt()));
 			
 			try {
-				scheduler.scheduleSystem();
+				if (isMinCores()) {
+					MinimumCores search = new MinimumCores(Runtime.getRuntime().availableProcessors(), debug);
+					
+					setScheduler(search.findMinimumCores(mcp.getDags(), scheduler));
+					mcp.setNbCores(scheduler.getNbCores());
+					System.out.println("["+Thread.currentThread().getName()+"] "+inputFile+": minimum number of cores "+scheduler.getNbCores()
+							+" ("+search.getNbProbes()+" probes)");
+				} else if (isPortfolio()) {
+					SchedulerPortfolio race = new SchedulerPortfolio(mcp.getDags(), mcp.getNbCores(), mcp.getNbLevels(), debug);
+					
+					// Federated tables are built per DAG, they can not be written
+					race.setFederated(!isOutSchedFile() && !isOutBinSchedFile());
+					race.setBudget(budget);
+					race.race();
+					System.out.println("["+Thread.currentThread().getName()+"] "+inputFile+": "+race.getWinner()+" scheduler selected"
+							+(budget > 0 ? " ("+race.getNbPreemptions()+" preemptions)" : ""));
+					if (race.getScheduler() == null)
+						return;
+					setScheduler(race.getScheduler());
+				} else {
+					if (isTrace())
+						scheduler.setTrace(new TraceRecorder(TraceRecorder.DEFAULT_CAPACITY));
+					scheduler.scheduleSystem();
+				}
+				mcp.sethPeriod(scheduler.gethPeriod());
+				mcp.setSchedTable(scheduler.getSchedTable());
 			} catch (SchedulingException e) {
 				System.err.println("[ERROR] Unable to schedule the system");
 				e.printStackTrace();
-			} 
+			} finally {
+				writeTrace();
+			}
 		}
 		
 		/* =============== Write results ================ */
-		if (isOutSchedFile()) {
+		if (isOutSchedFile() && mcp.getSchedTable() == null) {
+			System.err.println("[WARNING] No scheduling tables to write to file "+mcp.getOutSchedFile());
+		} else if (isOutSchedFile()) {
 			try {
+				mcp.setCompactSched(isCompactSched());
 				mcp.writeSched();
 			} catch (IOException e) {
-				System.err.println("[WARNING] Error writting scheduling tables to file "+outSchedFile);
+				System.err.println("[WARNING] Error writting scheduling tables to file "+mcp.getOutSchedFile());
+				e.printStackTrace();
+			}
+		}
+		if (isOutBinSchedFile() && mcp.getSchedTable() == null) {
+			System.err.println("[WARNING] No scheduling tables to write to file "+mcp.getOutBinSchedFile());
+		} else if (isOutBinSchedFile()) {
+			try {
+				mcp.writeSchedBinary();
+			} catch (IOException e) {
+				System.err.println("[WARNING] Error writting scheduling tables to file "+mcp.getOutBinSchedFile());
 				e.printStackTrace();
 			}
 		}
 	}
 
+	/**
+	 * Writes the decisions recorded by the scheduler next to the input file
+	 */
+	private void writeTrace () {
+		if (scheduler == null || scheduler.getTrace() == null || scheduler.getTrace().getTable() == null)
+			return;
+		
+		String traceFile = inputFile.substring(0, inputFile.lastIndexOf('.')).concat("-trace.bin");
+		try {
+			scheduler.getTrace().dump(traceFile);
+			System.out.println("["+Thread.currentThread().getName()+"] Trace written to "+traceFile);
+		} catch (IOException e) {
+			System.err.println("[WARNING] Error writting the trace to file "+traceFile);
+			e.printStackTrace();
+		}
+	}
+
 	/*
 	 * Getters and setters
 	 */
@@ -161,6 +252,16 @@ public class SchedulingThread implements Runnable{
 		this.outSchedFile = outSchedFile;
 	}
 
+	public boolean isOutBinSchedFile() {
+		return outBinSchedFile;
+	}
+
+	public void setOutBinSchedFile(boolean outBinSchedFile) {
+		this.outBinSchedFile = outBinSchedFile;
+		if (outBinSchedFile)
+			mcp.setOutBinSchedFile(inputFile.substring(0, inputFile.lastIndexOf('.')).concat("-sched.bin"));
+	}
+
 	public boolean isOutPRISMFile() {
 		return outPRISMFile;
 	}
@@ -193,6 +294,46 @@ public class SchedulingThread implements Runnable{
 		this.levels = levels;
 	}
 
+	public boolean isMinCores() {
+		return minCores;
+	}
+
+	public void setMinCores(boolean minCores) {
+		this.minCores = minCores;
+	}
+
+	public boolean isPortfolio() {
+		return portfolio;
+	}
+
+	public void setPortfolio(boolean portfolio) {
+		this.portfolio = portfolio;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public void setBudget(long budget) {
+		this.budget = budget;
+	}
+
+	public boolean isTrace() {
+		return trace;
+	}
+
+	public void setTrace(boolean trace) {
+		this.trace = trace;
+	}
+
+	public boolean isCompactSched() {
+		return compactSched;
+	}
+
+	public void setCompactSched(boolean compactSched) {
+		this.compactSched = compactSched;
+	}
+
 	public GlobalGenericMCScheduler getScheduler() {
 		return scheduler;
 	}
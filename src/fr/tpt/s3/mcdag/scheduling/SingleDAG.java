@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
 
+import fr.tpt.s3.mcdag.model.SchedulingTable;
 import fr.tpt.s3.mcdag.model.Vertex;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
 import fr.tpt.s3.mcdag.scheduling.old.AbstractMixedCriticalityScheduler;
@@ -46,8 +47,9 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	private int weights_LO[];
 	private int weights_HI[];
 	
-	// Scheduling tables, i: slot, j: task
-	private String sched[][][];
+	// Scheduling tables, i: slot, j: task + working state of the tasks
+	private SchedulingTable sched;
+	private SchedulingContext context;
 	private String S_HLFET[][];
 	private String S_HLFET_HI[][];
 	
@@ -55,6 +57,9 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	private int Start_HI[];
 	
 	private boolean debug;
+	
+	// Metrics of the construction of the tables, null when disabled
+	private SchedulerMetrics metrics;
 
 	/**
 	 * Constructor of LS
@@ -72,14 +77,11 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	 * Initializes scheduling tables
 	 */
 	protected void initTables () {
-		sched = new String[2][getDeadline()][getNbCores()];
-		
-		for (int i = 0; i < 2; i++) {
-			for (int j = 0; j < getDeadline(); j++) {
-				for (int k = 0; k < getNbCores(); k++) {
-					sched[i][j][k] = "-";
-				}
-			}
+		sched = new SchedulingTable(mcDag.getVertices(), 2, getDeadline(), getNbCores());
+		context = new SchedulingContext(sched, 2);
+		if (metrics != null) {
+			metrics.init(2);
+			metrics.tableBytes(sched.getBytes());
 		}
 		
 		if (debug) System.out.println("[DEBUG "+Thread.currentThread().getName()+"] initTables(): Sched tables initialized!");
@@ -118,10 +120,10 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		
 		// Final case the node is a sink
 		if (n.getSndEdges().size() == 0 && mode == VertexScheduling.LO){
-			n.getHlfet()[0] = n.getWcets()[0];
+			context.setHlfet(n, 0, n.getWcets()[0]);
 			return n.getWcets()[0];
 		} else if (n.isSinkinL(1) && mode == VertexScheduling.HI) {
-			n.getHlfet()[1] = n.getWcets()[1];
+			context.setHlfet(n, 1, n.getWcets()[1]);
 			return n.getWcets()[1];
 		}
 		
@@ -143,14 +145,68 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		}
 		
 		if (mode == VertexScheduling.LO) { // LO mode
-			n.getHlfet()[0] = max + n.getWcets()[0];
+			context.setHlfet(n, 0, max + n.getWcets()[0]);
 			return max + n.getWcets()[0];
 		} else {
-			n.getHlfet()[1] =max + n.getWcets()[1];
+			context.setHlfet(n, 1, max + n.getWcets()[1]);
 			return max + n.getWcets()[1];
 		}
 	}
 	
+	/**
+	 * Key of a task in the HI ready list: increasing HLFET levels then ids
+	 * @param n
+	 * @return
+	 */
+	private long keyHI (VertexScheduling n) {
+		return ReadyQueue.key(context.getHlfet(n, 1), n, false);
+	}
+	
+	/**
+	 * Key of a task in the LO ready list: decreasing HLFET levels then ids
+	 * @param n
+	 * @return
+	 */
+	private long keyLO (VertexScheduling n) {
+		return ReadyQueue.key(-context.getHlfet(n, 0), n, true);
+	}
+	
+	/**
+	 * Adds an activated task to a ready list
+	 * @param ready
+	 * @param n
+	 * @param key
+	 * @param level
+	 */
+	private void addReady (ReadyQueue ready, VertexScheduling n, long key, int level) {
+		ready.add(n, key);
+		if (metrics != null)
+			metrics.activation(level);
+	}
+	
+	/**
+	 * Counts a slot built in a level before the ready list is picked
+	 * @param ready
+	 * @param level
+	 */
+	private void countSlot (ReadyQueue ready, int level) {
+		if (metrics != null) {
+			metrics.slots(level, 1);
+			metrics.readyLength(level, ready.size());
+			metrics.sort(level);
+		}
+	}
+	
+	/**
+	 * Counts the comparisons done by the ready list of a level once the table is built
+	 * @param ready
+	 * @param level
+	 */
+	private void countComparisons (ReadyQueue ready, int level) {
+		if (metrics != null)
+			metrics.comparisons(level, ready.getComparisons());
+	}
+	
 	/**
 	 * Allocation algorithm for the HI mode.
 	 * Instantiates the scheduling table + gives start times
@@ -165,7 +221,7 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		
 		Iterator<Vertex> it_n = mcDag.getVertices().iterator(); 
 		// Ready list of tasks that have their dependencies met
-		LinkedList<VertexScheduling> ready_hi = new LinkedList<VertexScheduling>();
+		ReadyQueue ready_hi = new ReadyQueue(sched);
 		// List of recently finished tasks -> to activate new ones
 		LinkedList<VertexScheduling> finished_hi = new LinkedList<VertexScheduling>();
 		boolean task_finished = false;
@@ -176,51 +232,40 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 			if (n.getWcets()[1] != 0) {
 				t_hi[n.getId()] = n.getWcets()[1];
 				if (n.isSinkinL(1)) { // At the beginning only exit nodes are added
-					ready_hi.add(n);
+					addReady(ready_hi, n, keyHI(n), 1);
 				}
 			}
 		}
-
-		// Sort lists
-		Collections.sort(ready_hi, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling n1, VertexScheduling n2) {
-				if (n2.getHlfet()[1]- n1.getHlfet()[1] != 0)
-					return n1.getHlfet()[1] - n2.getHlfet()[1];
-				else
-					return n1.getId() - n2.getId();
-			}
-		});
 		
 		/* =============================================
 		 *  Actual allocation
 		 * =============================================*/
 		
 		// Iterate through slots
-		ListIterator<VertexScheduling> li_it = ready_hi.listIterator();
 		for(int t = deadline - 1; t >= 0 ; t--){
 			
 			// Check if there is enough slots to finish executing tasks
 			if (! checkFreeSlot(t_hi, getMxcDag().getVertices().size(), (t+1) * nbCores)){
+				countComparisons(ready_hi, 1);
 				SchedulingException se = new SchedulingException("Alloc HI : Not enough slot lefts");
 				throw se;
 			}
 			
-			for(int c = 0; c < nbCores; c++) {
-				if (li_it.hasNext()){
-					VertexScheduling n = li_it.next(); // Get head of the list
-					sched[1][t][c] = n.getName(); // Give the slot to the task
-					
-					// Decrement slots left for the task
-					t_hi[n.getId()] = t_hi[n.getId()] - 1;
-					
-					// Check if it's the first slot allocated
-					if (t_hi[n.getId()] == 0){ // Task has began its execution
-						Start_HI[n.getId()] = t;
-						li_it.remove();
-						finished_hi.add(n);
-						task_finished = true;						
-					}
+			countSlot(ready_hi, 1);
+			ready_hi.pick(nbCores);
+			for(int c = 0; c < ready_hi.getNbPicked(); c++) {
+				VertexScheduling n = ready_hi.getPicked(c); // Get head of the list
+				sched.set(1, t, c, n); // Give the slot to the task
+				
+				// Decrement slots left for the task
+				t_hi[n.getId()] = t_hi[n.getId()] - 1;
+				
+				// Check if it's the first slot allocated
+				if (t_hi[n.getId()] == 0){ // Task has began its execution
+					Start_HI[n.getId()] = t;
+					ready_hi.remove(n);
+					finished_hi.add(n);
+					task_finished = true;						
 				}
 			}
 			// Tasks finished their execution 
@@ -229,27 +274,15 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 				ListIterator<VertexScheduling> li_f = finished_hi.listIterator();
 				while (li_f.hasNext()) {
 					VertexScheduling n = li_f.next();
-					checkActivationHI(ready_hi, li_it, n, t_hi);
-					// Heavier tasks can be activated -> needs a new sort
-					Collections.sort(ready_hi, new Comparator<VertexScheduling>() {
-						@Override
-						public int compare(VertexScheduling n1, VertexScheduling n2) {
-							if (n2.getHlfet()[1]- n1.getHlfet()[1] < 0 ||
-									n2.getHlfet()[1]- n1.getHlfet()[1] > 0)
-								return n1.getHlfet()[1]- n2.getHlfet()[1];
-							else
-								return n1.getId() - n2.getId();
-						}
-					});
-					
+					checkActivationHI(ready_hi, n, t_hi);
 				}
 				task_finished = false;
 				finished_hi.clear();
 			}
-			li_it = ready_hi.listIterator(); // Restart the iterator for the next slot
 			if (ready_hi.isEmpty())
-				return;
+				break;
 		}
+		countComparisons(ready_hi, 1);
 	}
 	
 	/**
@@ -263,7 +296,7 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		
 		Iterator<Vertex> it_n = mcDag.getVertices().iterator(); 
 		// Ready list of tasks that have their dependencies met
-		LinkedList<VertexScheduling> ready_lo = new LinkedList<VertexScheduling>();
+		ReadyQueue ready_lo = new ReadyQueue(sched);
 		// List of recently finished tasks -> to activate new ones
 		LinkedList<VertexScheduling> finished_lo = new LinkedList<VertexScheduling>();
 		boolean task_finished = false;
@@ -273,50 +306,38 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 			VertexScheduling n = (VertexScheduling) it_n.next();
 			t_lo[n.getId()] = n.getWcets()[0];
 			if (n.getRcvEdges().size() == 0) // At the beginning only source nodes are added
-				ready_lo.add(n);
+				addReady(ready_lo, n, keyLO(n), 0);
 		}
-
-		// Sort lists
-		Collections.sort(ready_lo, new Comparator<VertexScheduling>() {
-			@Override
-			public int compare(VertexScheduling n1, VertexScheduling n2) {
-				if (n2.getHlfet()[0] - n1.getHlfet()[0] !=0)
-					return n2.getHlfet()[0] - n1.getHlfet()[0];
-				else
-					return n2.getId() - n1.getId();
-			}
-		});
 		
 		/* =============================================
 		 *  Actual allocation
 		 * =============================================*/
 		
 		// Iterate through slots
-		ListIterator<VertexScheduling> li_it = ready_lo.listIterator();
 		for(int t = 0; t < deadline; t++){
 			// For each slot check if it's an WC activation time
 			if (! checkFreeSlot(t_lo, mcDag.getVertices().size(), (deadline - t) * nbCores)){
+				countComparisons(ready_lo, 0);
 				SchedulingException se = new SchedulingException("Alloc LO : Not enough slot lefts");
 				throw se;
 			}
 			
 			checkStartHI(ready_lo, t, Start_HI, t_lo);
 			
-			
-			for(int c = 0; c < nbCores; c++) {
-				if (li_it.hasNext()){
-					VertexScheduling n = li_it.next(); // Get head of the list
-					
-					sched[0][t][c] = n.getName(); // Give the slot to the task
+			countSlot(ready_lo, 0);
+			ready_lo.pick(nbCores);
+			for(int c = 0; c < ready_lo.getNbPicked(); c++) {
+				VertexScheduling n = ready_lo.getPicked(c); // Get head of the list
+				
+				sched.set(0, t, c, n); // Give the slot to the task
 
-					// Decrement slots left for the task
-					t_lo[n.getId()] = t_lo[n.getId()] - 1;
+				// Decrement slots left for the task
+				t_lo[n.getId()] = t_lo[n.getId()] - 1;
 
-					if (t_lo[n.getId()] == 0){ // Task has ended its execution
-						li_it.remove();
-						task_finished = true;
-						finished_lo.add(n);
-					}
+				if (t_lo[n.getId()] == 0){ // Task has ended its execution
+					ready_lo.remove(n);
+					task_finished = true;
+					finished_lo.add(n);
 				}
 			}
 			
@@ -325,60 +346,75 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 				while (li_f.hasNext()) {
 					VertexScheduling n = li_f.next();
 					// Check for new activations
-					checkActivation(ready_lo, li_it, n, t_lo, 0);
-
-					// Heavier tasks can be activated -> needs a new sort
-					Collections.sort(ready_lo, new Comparator<VertexScheduling>() {
-						@Override
-						public int compare(VertexScheduling n1, VertexScheduling n2) {
-							if (n2.getHlfet()[0] - n1.getHlfet()[0] !=0)
-								return n2.getHlfet()[0] - n1.getHlfet()[0];
-							else
-								return n2.getId() - n1.getId();
-						}
-					});
+					checkActivation(ready_lo, n, t_lo);
 				}
 				task_finished = false;
 				finished_lo.clear();
 			}
-			li_it = ready_lo.listIterator(); // Restart the iterator for the next slot
 			if (ready_lo.isEmpty())
-				return;
+				break;
 		}
+		countComparisons(ready_lo, 0);
 	}
 	
 	
 	/**
 	 * Checks if a new HI task needs to be promoted. If it's the case then
-	 * the ready list is reordered.
+	 * its key is updated in the ready list.
 	 * @param ready_lo List of tasks that can be scheduled
 	 * @param t Time unit to check
 	 * @param start_hi Table of start times for HI tasks
 	 * @param t_lo Table of execution times
 	 * @return
 	 */
-	public boolean checkStartHI(LinkedList<VertexScheduling> ready_lo, int t, int[] start_hi, int[] t_lo){
+	public boolean checkStartHI(ReadyQueue ready_lo, int t, int[] start_hi, int[] t_lo){
 		boolean ret = false;
 		Iterator<Vertex> it_n = mcDag.getVertices().iterator();
 		while (it_n.hasNext()){
 			VertexScheduling n = (VertexScheduling) it_n.next();
 			if (start_hi[n.getId()] == t && t_lo[n.getId()] != 0 && n.getWcets()[1] != 0){
-				n.getHlfet()[0] = Integer.MAX_VALUE;
-				Collections.sort(ready_lo, new Comparator<VertexScheduling>() {
-					@Override
-					public int compare(VertexScheduling n1, VertexScheduling n2) {
-						if (n2.getHlfet()[0] - n1.getHlfet()[0] !=0)
-							return n2.getHlfet()[0] - n1.getHlfet()[0];
-						else
-							return n2.getId() - n1.getId();
-					}
-				});
-
+				context.setHlfet(n, 0, Integer.MAX_VALUE);
+				if (metrics != null)
+					metrics.promotion(0);
+				if (ready_lo.contains(n))
+					ready_lo.update(n, keyLO(n));
 			}
 		}
 		return ret;
 	}
 	
+	/**
+	 * 
+	 * @param l_r
+	 * @param n
+	 * @param t_lo
+	 */
+	public void checkActivation(ReadyQueue l_r, VertexScheduling n, int[] t_lo){
+		
+		// Check all successors
+		Iterator<Edge> it_e = n.getSndEdges().iterator();
+		while (it_e.hasNext()){
+			Edge e = it_e.next();
+			VertexScheduling suc = (VertexScheduling) e.getDest();
+			boolean ready = true;
+			
+			Iterator<Edge> it_e_rcv = suc.getRcvEdges().iterator();
+			while (it_e_rcv.hasNext()){ // For each successor we check its dependencies
+				
+				Edge e2 = it_e_rcv.next();
+				VertexScheduling pred = (VertexScheduling) e2.getSrc();
+				if (t_lo[pred.getId()] != 0){
+					ready = false;
+					break;
+				}
+			}
+			
+			// Need to check if the task has already been added
+			if (ready && !l_r.contains(suc))
+				addReady(l_r, suc, keyLO(suc), 0);
+		}
+	}
+	
 	/**
 	 * 
 	 * @param li_r
@@ -427,12 +463,11 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	
 	/**
 	 * 
-	 * @param li_r
+	 * @param l_r
 	 * @param n
 	 * @param t_hi
-	 * @param mode
 	 */
-	public void checkActivationHI(LinkedList<VertexScheduling> l_r, ListIterator<VertexScheduling> li_r, VertexScheduling n, int[] t_hi){
+	public void checkActivationHI(ReadyQueue l_r, VertexScheduling n, int[] t_hi){
 		
 		// Check all successors
 		Iterator<Edge> it_e = n.getRcvEdges().iterator();
@@ -440,7 +475,6 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 			Edge e = it_e.next();
 			VertexScheduling pred = (VertexScheduling) e.getSrc();
 			boolean ready = true;
-			boolean add = true;
 			
 			if (pred.getWcets()[1] == 0) { // Don't activate LO tasks in HI mode
 				ready = false;
@@ -458,16 +492,9 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 				}
 			}
 			
-			if (ready) {
-				// Need to check if the task has already been added
-				ListIterator<VertexScheduling> li = l_r.listIterator();
-				while(li.hasNext()){
-					if(li.next().getId() == pred.getId())
-						add = false;
-				}
-				if (add)
-					li_r.add(pred);
-			}
+			// Need to check if the task has already been added
+			if (ready && !l_r.contains(pred))
+				addReady(l_r, pred, keyHI(pred), 1);
 		}
 	}
 
@@ -482,12 +509,26 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		
 		this.calcWeights(VertexScheduling.HI);
 		if (isDebug()) printW(VertexScheduling.HI);
-		this.AllocHI();
+		if (metrics != null)
+			metrics.startLevel(1);
+		try {
+			this.AllocHI();
+		} finally {
+			if (metrics != null)
+				metrics.endLevel(1);
+		}
 		if (isDebug()) printS_HI();
 		
 		this.calcWeights(VertexScheduling.LO);
 		if (isDebug()) printW(VertexScheduling.LO);
-		this.AllocLO();
+		if (metrics != null)
+			metrics.startLevel(0);
+		try {
+			this.AllocLO();
+		} finally {
+			if (metrics != null)
+				metrics.endLevel(0);
+		}
 		if (isDebug()) printS_LO();
 	}
 
@@ -548,8 +589,8 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		Collections.sort(ready_lo, new Comparator<VertexScheduling>() {
 			@Override
 			public int compare(VertexScheduling n1, VertexScheduling n2) {
-				if (n2.getHlfet()[0] - n1.getHlfet()[0] != 0)
-					return n2.getHlfet()[0]- n1.getHlfet()[0];
+				if (context.getHlfet(n2, 0) - context.getHlfet(n1, 0) != 0)
+					return context.getHlfet(n2, 0)- context.getHlfet(n1, 0);
 				else
 					return n2.getId() - n1.getId();
 			}
@@ -596,8 +637,8 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 					Collections.sort(ready_lo, new Comparator<VertexScheduling>() {
 						@Override
 						public int compare(VertexScheduling n1, VertexScheduling n2) {
-							if (n2.getHlfet()[0] - n1.getHlfet()[0] != 0)
-								return n2.getHlfet()[0]- n1.getHlfet()[0];
+							if (context.getHlfet(n2, 0) - context.getHlfet(n1, 0) != 0)
+								return context.getHlfet(n2, 0)- context.getHlfet(n1, 0);
 							else
 								return n2.getId() - n1.getId();
 						}
@@ -648,8 +689,8 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		Collections.sort(ready_hi, new Comparator<VertexScheduling>() {
 			@Override
 			public int compare(VertexScheduling n1, VertexScheduling n2) {
-				if (n2.getHlfet()[1]- n1.getHlfet()[1] != 0)
-					return n2.getHlfet()[1]- n1.getHlfet()[1];
+				if (context.getHlfet(n2, 1)- context.getHlfet(n1, 1) != 0)
+					return context.getHlfet(n2, 1)- context.getHlfet(n1, 1);
 				else
 					return n2.getId() - n1.getId();
 			}
@@ -693,8 +734,8 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 					Collections.sort(ready_hi, new Comparator<VertexScheduling>() {
 						@Override
 						public int compare(VertexScheduling n1, VertexScheduling n2) {
-							if (n2.getHlfet()[1]- n1.getHlfet()[1] != 0)
-								return n2.getHlfet()[1]- n1.getHlfet()[1];
+							if (context.getHlfet(n2, 1)- context.getHlfet(n1, 1) != 0)
+								return context.getHlfet(n2, 1)- context.getHlfet(n1, 1);
 							else
 								return n2.getId() - n1.getId();
 						}
@@ -723,7 +764,7 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 		for (int i = 0; i < getMxcDag().getVertices().size(); i++) {
 			if (mode == VertexScheduling.HI ) {
 				if (getMxcDag().getNodebyID(i).getWcets()[1] != 0)
-					System.out.println("[DEBUG] Weight HI "+getMxcDag().getNodebyID(i).getName()+" = "+((VertexScheduling) getMxcDag().getNodebyID(i)).getHlfet()[1]);
+					System.out.println("[DEBUG] Weight HI "+getMxcDag().getNodebyID(i).getName()+" = "+context.getHlfet((VertexScheduling) getMxcDag().getNodebyID(i), 1));
 			} else {
 				System.out.println("[DEBUG] Weight LO "+getMxcDag().getNodebyID(i).getName()+" = "+weights_LO[i]);
 			}
@@ -737,7 +778,7 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	public void printS_HI(){
 		for (int c = 0; c < nbCores; c++) {
 			for(int t = 0; t < deadline; t++) {
-				System.out.print(sched[1][t][c]+" | ");
+				System.out.print(sched.getName(1, t, c)+" | ");
 			}
 			System.out.print("\n");
 		}
@@ -751,7 +792,7 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	public void printS_LO(){
 		for (int c = 0; c < nbCores; c++) {
 			for(int t = 0; t < deadline; t++) {
-				System.out.print(sched[0][t][c]+" | ");
+				System.out.print(sched.getName(0, t, c)+" | ");
 			}
 			System.out.print("\n");
 		}
@@ -828,10 +869,22 @@ public class SingleDAG extends AbstractMixedCriticalityScheduler {
 	}
 
 	public String[][][] getSched() {
+		return sched.toStringTable();
+	}
+
+	public SchedulingTable getSchedTable() {
 		return sched;
 	}
 
-	public void setSched(String sched[][][]) {
+	public void setSchedTable(SchedulingTable sched) {
 		this.sched = sched;
 	}
+
+	public SchedulerMetrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(SchedulerMetrics metrics) {
+		this.metrics = metrics;
+	}
 }
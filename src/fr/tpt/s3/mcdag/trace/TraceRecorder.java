@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+
+/**
+ * Recorder of the scheduling decisions taken while the tables are built.
+ * Each level has its own ring buffer, allocated before the run and written by
+ * the thread building the level only. Once full, the oldest records are overwritten.
+ * A record is (event, slot, core, task id, key of the task in the ready list).
+ * @author Roberto Medina
+ *
+ */
+public class TraceRecorder {
+
+	// Events
+	public static final int ADD = 0;
+	public static final int UPDATE = 1;
+	public static final int REMOVE = 2;
+	public static final int RUN = 3;
+	public static final int FAIL = 4;
+
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	// Binary format of the dumps
+	public static final int MAGIC = 0x4d435452;
+	public static final int VERSION = 1;
+
+	private static final int NO_CORE = 0xffffff;
+
+	private int capacity;
+	private SchedulingTable table;
+
+	// Level -> ring of records: event + core + slot, task id, key
+	private long heads[][];
+	private int tasks[][];
+	private long keys[][];
+	private long counts[];
+
+	// Level -> slot of the next records
+	private int slots[];
+
+	/**
+	 * Constructor of the recorder
+	 * @param capacity records kept per level, rounded up to a power of two
+	 */
+	public TraceRecorder (int capacity) {
+		int c = 1;
+
+		while (c < capacity)
+			c <<= 1;
+		this.capacity = c;
+	}
+
+	/**
+	 * Allocates the buffers for the tables of a run, previous records are dropped
+	 * @param table
+	 */
+	public void init (SchedulingTable table) {
+		int levels = table.getLevels();
+
+		this.table = table;
+		if (heads == null || heads.length != levels) {
+			heads = new long[levels][capacity];
+			tasks = new int[levels][capacity];
+			keys = new long[levels][capacity];
+		}
+		counts = new long[levels];
+		slots = new int[levels];
+	}
+
+	/**
+	 * Sets the slot of the next records of a level
+	 * @param level
+	 * @param slot
+	 */
+	public void setSlot (int level, int slot) {
+		slots[level] = slot;
+	}
+
+	/**
+	 * Records an event in the slot set for the level
+	 * @param level
+	 * @param event
+	 * @param core -1 if the event is not on a core
+	 * @param task
+	 * @param key
+	 */
+	public void record (int level, int event, int core, int task, long key) {
+		int i = (int) (counts[level] & (capacity - 1));
+
+		heads[level][i] = ((long) event << 56) | ((long) (core & NO_CORE) << 32) | (slots[level] & 0xffffffffL);
+		tasks[level][i] = task;
+		keys[level][i] = key;
+		counts[level]++;
+	}
+
+	/**
+	 * Writes the records kept for each level, oldest first
+	 * @param file
+	 * @throws IOException
+	 */
+	public void dump (String file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(table.getLevels());
+			out.writeInt(table.getSlots());
+			out.writeInt(table.getNbCores());
+			out.writeInt(table.getNbTasks());
+			for (int t = 0; t < table.getNbTasks(); t++)
+				out.writeUTF(table.getTaskName(t));
+
+			for (int l = 0; l < table.getLevels(); l++) {
+				long first = Math.max(counts[l] - capacity, 0);
+
+				out.writeLong(counts[l]);
+				out.writeInt((int) (counts[l] - first));
+				for (long r = first; r < counts[l]; r++) {
+					int i = (int) (r & (capacity - 1));
+
+					out.writeByte(getEvent(l, i));
+					out.writeInt(getSlot(l, i));
+					out.writeInt(getCore(l, i));
+					out.writeInt(tasks[l][i]);
+					out.writeLong(keys[l][i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private int getEvent (int level, int i) {
+		return (int) (heads[level][i] >>> 56);
+	}
+
+	private int getSlot (int level, int i) {
+		return (int) heads[level][i];
+	}
+
+	private int getCore (int level, int i) {
+		int core = (int) (heads[level][i] >>> 32) & NO_CORE;
+
+		return core == NO_CORE ? -1 : core;
+	}
+
+	/*
+	 * Getters
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getNbRecords (int level) {
+		return counts[level];
+	}
+
+	public SchedulingTable getTable() {
+		return table;
+	}
+}
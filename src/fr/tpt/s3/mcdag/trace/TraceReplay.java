@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Reads the dumps of a TraceRecorder and replays the records of a level to
+ * rebuild the ready list at the beginning of a slot. The LO level is built
+ * forward, the HI levels backward from the end of the hyper-period.
+ * @author Roberto Medina
+ *
+ */
+public class TraceReplay {
+
+	private static final String EVENTS[] = {"ADD", "UPDATE", "REMOVE", "RUN", "FAIL"};
+
+	private int levels;
+	private int slots;
+	private int nbCores;
+	private String names[];
+
+	// Level -> records written, records kept
+	private long totals[];
+	private int events[][];
+	private int recSlots[][];
+	private int cores[][];
+	private int tasks[][];
+	private long keys[][];
+
+	// State of the ready list after the last replay
+	private boolean ready[];
+	private long readyKeys[];
+
+	/**
+	 * Reads a trace
+	 * @param file
+	 * @throws IOException
+	 */
+	public TraceReplay (String file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+		try {
+			if (in.readInt() != TraceRecorder.MAGIC || in.readInt() != TraceRecorder.VERSION)
+				throw new IOException("Not a scheduling trace: "+file);
+
+			levels = in.readInt();
+			slots = in.readInt();
+			nbCores = in.readInt();
+			names = new String[in.readInt()];
+			for (int t = 0; t < names.length; t++)
+				names[t] = in.readUTF();
+
+			totals = new long[levels];
+			events = new int[levels][];
+			recSlots = new int[levels][];
+			cores = new int[levels][];
+			tasks = new int[levels][];
+			keys = new long[levels][];
+			for (int l = 0; l < levels; l++) {
+				totals[l] = in.readLong();
+
+				int n = in.readInt();
+				events[l] = new int[n];
+				recSlots[l] = new int[n];
+				cores[l] = new int[n];
+				tasks[l] = new int[n];
+				keys[l] = new long[n];
+				for (int i = 0; i < n; i++) {
+					events[l][i] = in.readByte();
+					recSlots[l][i] = in.readInt();
+					cores[l][i] = in.readInt();
+					tasks[l][i] = in.readInt();
+					keys[l][i] = in.readLong();
+				}
+			}
+		} finally {
+			in.close();
+		}
+		ready = new boolean[names.length];
+		readyKeys = new long[names.length];
+	}
+
+	/**
+	 * Checks if a slot of a level is built after another one
+	 */
+	private boolean after (int level, int slot, int other) {
+		return level == 0 ? slot > other : slot < other;
+	}
+
+	/**
+	 * Replays the records of a level until the tasks of a slot are allocated
+	 * @param level
+	 * @param slot
+	 * @return ids of the ready tasks in the order of the ready list
+	 */
+	public int[] readyAt (int level, int slot) {
+		Arrays.fill(ready, false);
+
+		for (int i = 0; i < events[level].length; i++) {
+			int s = recSlots[level][i];
+			int e = events[level][i];
+
+			if (after(level, s, slot) || (s == slot && e >= TraceRecorder.REMOVE))
+				break;
+
+			if (e == TraceRecorder.ADD || e == TraceRecorder.UPDATE) {
+				ready[tasks[level][i]] = true;
+				readyKeys[tasks[level][i]] = keys[level][i];
+			} else if (e == TraceRecorder.REMOVE) {
+				ready[tasks[level][i]] = false;
+			}
+		}
+
+		Integer order[] = new Integer[names.length];
+		int n = 0;
+		for (int t = 0; t < names.length; t++) {
+			if (ready[t])
+				order[n++] = t;
+		}
+		Arrays.sort(order, 0, n, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				if (readyKeys[a] != readyKeys[b])
+					return readyKeys[a] < readyKeys[b] ? -1 : 1;
+				return a - b;
+			}
+		});
+
+		int ret[] = new int[n];
+		for (int i = 0; i < n; i++)
+			ret[i] = order[i];
+		return ret;
+	}
+
+	/**
+	 * Returns the tasks allocated to the cores in a slot
+	 * @param level
+	 * @param slot
+	 * @return core -> task id, -1 for idle cores
+	 */
+	public int[] runningAt (int level, int slot) {
+		int ret[] = new int[nbCores];
+
+		Arrays.fill(ret, -1);
+		for (int i = 0; i < events[level].length; i++) {
+			if (recSlots[level][i] == slot && events[level][i] == TraceRecorder.RUN)
+				ret[cores[level][i]] = tasks[level][i];
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the slot in which the construction of a level failed
+	 * @param level
+	 * @return -1 if the level did not fail
+	 */
+	public int failedAt (int level) {
+		for (int i = 0; i < events[level].length; i++) {
+			if (events[level][i] == TraceRecorder.FAIL)
+				return recSlots[level][i];
+		}
+		return -1;
+	}
+
+	/**
+	 * Key of a task in the ready list after the last replay
+	 * @param task
+	 * @return
+	 */
+	public long getKey (int task) {
+		return readyKeys[task];
+	}
+
+	public String getName (int task) {
+		return task == -1 ? "-" : names[task];
+	}
+
+	/**
+	 * Prints the records of a slot
+	 * @param level
+	 * @param slot
+	 */
+	public void printEvents (int level, int slot) {
+		for (int i = 0; i < events[level].length; i++) {
+			if (recSlots[level][i] != slot)
+				continue;
+
+			System.out.print("  "+EVENTS[events[level][i]]);
+			if (cores[level][i] != -1)
+				System.out.print(" core "+cores[level][i]);
+			if (tasks[level][i] != -1)
+				System.out.print(" "+getName(tasks[level][i])+" weight "+(int) (keys[level][i] >> 32));
+			System.out.println("");
+		}
+	}
+
+	/**
+	 * Prints the state of the ready list and of the cores at a slot
+	 * @param level
+	 * @param slot
+	 */
+	public void printSlot (int level, int slot) {
+		int order[] = readyAt(level, slot);
+
+		System.out.println("Level "+level+", slot "+slot+": "+order.length+" ready task(s)"
+				+(isComplete(level) ? "" : ", incomplete: "+getNbLost(level)+" records lost"));
+		for (int t : order)
+			System.out.println("  "+getName(t)+"\tweight "+(int) (getKey(t) >> 32)+"\ttie "+(int) getKey(t));
+
+		System.out.print("Cores:");
+		for (int t : runningAt(level, slot))
+			System.out.print(" "+getName(t));
+		System.out.println("");
+	}
+
+	/**
+	 * Prints the number of records and the failed slot of each level
+	 */
+	public void printSummary () {
+		System.out.println(names.length+" tasks, "+nbCores+" cores, "+slots+" slots");
+		for (int l = levels - 1; l >= 0; l--) {
+			System.out.println("Level "+l+": "+totals[l]+" records, "+getNbLost(l)+" lost"
+					+(failedAt(l) != -1 ? ", failed at slot "+failedAt(l) : ""));
+		}
+	}
+
+	public static void main (String[] args) throws IOException {
+		Options options = new Options();
+
+		Option input = new Option("i", "input", true, "Trace written by the scheduler.");
+		input.setRequired(true);
+		options.addOption(input);
+
+		Option levelOpt = new Option("l", "level", true, "Level to replay.");
+		levelOpt.setRequired(false);
+		options.addOption(levelOpt);
+
+		Option slotOpt = new Option("s", "slot", true, "Slot to replay, the failed slot by default.");
+		slotOpt.setRequired(false);
+		options.addOption(slotOpt);
+
+		Option eventsOpt = new Option("e", "events", false, "Print the records of the slot.");
+		eventsOpt.setRequired(false);
+		options.addOption(eventsOpt);
+
+		CommandLineParser parser = new DefaultParser();
+		HelpFormatter formatter = new HelpFormatter();
+		CommandLine cmd;
+
+		try {
+			cmd = parser.parse(options, args);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			formatter.printHelp("MC-DAG trace replay", options);
+
+			System.exit(1);
+			return;
+		}
+
+		TraceReplay replay = new TraceReplay(cmd.getOptionValue("input"));
+		replay.printSummary();
+
+		if (cmd.hasOption("level")) {
+			int level = Integer.parseInt(cmd.getOptionValue("level"));
+			int slot = cmd.hasOption("slot") ? Integer.parseInt(cmd.getOptionValue("slot")) : replay.failedAt(level);
+
+			if (slot == -1) {
+				System.err.println("[ERROR] No slot given and level "+level+" did not fail.");
+				System.exit(1);
+			}
+			replay.printSlot(level, slot);
+			if (cmd.hasOption("events"))
+				replay.printEvents(level, slot);
+		}
+	}
+
+	/*
+	 * Getters
+	 */
+	public int getLevels() {
+		return levels;
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	public int getNbCores() {
+		return nbCores;
+	}
+
+	public int getNbTasks() {
+		return names.length;
+	}
+
+	public long getNbLost (int level) {
+		return totals[level] - events[level].length;
+	}
+
+	public boolean isComplete (int level) {
+		return getNbLost(level) == 0;
+	}
+}
@@ -16,6 +16,8 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.util;
 
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+
 public class AlignScheduler {
 	
 	/**
@@ -25,26 +27,26 @@ public class AlignScheduler {
 	 * @param hPeriod
 	 * @param cores
 	 */
-	public static void align (String sched[][][], int level, int hPeriod, int cores) {
+	public static void align (SchedulingTable sched, int level, int hPeriod, int cores) {
 		for (int s = 1; s < hPeriod; s++) {
-			String ordered[] = new String[cores];
+			int ordered[] = new int[cores];
 			
 			// Init array
 			for (int c = 0; c < cores; c++)
-				ordered[c] = "-";
+				ordered[c] = SchedulingTable.IDLE;
 			
 			for (int c = 0; c < cores; c++) {
-				String task = sched[level][s][c];
+				int task = sched.get(level, s, c);
 				
 				// If a task is being executed in the core at that time slot
-				if (!task.contentEquals("-")) {
+				if (task != SchedulingTable.IDLE) {
 					boolean skip = false;
 					// Check if it was scheduled before
 					for (int c2 = 0; c2 < cores; c2++) {
-						if (sched[level][s - 1][c2].contains(task)) {
+						if (sched.get(level, s - 1, c2) == task) {
 							// Swap
-							if (!ordered[c2].contentEquals("-")) {
-								String tmp = ordered[c2];
+							if (ordered[c2] != SchedulingTable.IDLE) {
+								int tmp = ordered[c2];
 								ordered[c2] = task;
 								ordered[c] = tmp;
 							} else {
@@ -61,7 +63,7 @@ public class AlignScheduler {
 			
 			// Copy the new order
 			for (int c = 0; c < cores; c++)
-				sched[level][s][c] = ordered[c];
+				sched.set(level, s, c, ordered[c]);
 		}
 	}
 }
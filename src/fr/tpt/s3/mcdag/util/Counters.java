@@ -16,12 +16,12 @@
  *******************************************************************************/
 package fr.tpt.s3.mcdag.util;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Hashtable;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Set;
 
+import fr.tpt.s3.mcdag.model.SchedulingTable;
 import fr.tpt.s3.mcdag.model.VertexScheduling;
 
 /**
@@ -32,6 +32,23 @@ import fr.tpt.s3.mcdag.model.VertexScheduling;
  */
 public class Counters {
 
+	/**
+	 * Adds a count of each task to its reference
+	 * @param sched
+	 * @param refs
+	 * @param counts task id -> value to add
+	 */
+	private static void addCounts (SchedulingTable sched, Hashtable<VertexScheduling, Integer> refs, int counts[]) {
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				VertexScheduling a = sched.getTask(i);
+				int val = refs.get(a);
+				val += counts[i];
+				refs.put(a, val);
+			}
+		}
+	}
+	
 	/**
 	 * Method that counts the number of context switches for all tasks
 	 * @param sched
@@ -40,57 +57,51 @@ public class Counters {
 	 * @param hPeriod
 	 * @param nbCores
 	 */
-	public static void countContextSwitch (String sched[][][], Hashtable<VertexScheduling, Integer> refs, int nbLevels, int hPeriod, int nbCores) {
-		// Check for all tasks how many context switches it has
-		Set<VertexScheduling> keys = refs.keySet();
+	public static void countContextSwitch (SchedulingTable sched, Hashtable<VertexScheduling, Integer> refs, int nbLevels, int hPeriod, int nbCores) {
+		TaskCounts counts = new TaskCounts(sched, nbLevels, hPeriod, nbCores);
+		int switches[] = new int[sched.getNbTasks()];
 		
-		for (VertexScheduling a : keys) {
-			int nbContSwitch = refs.get(a);
-			
-			// Iterate through the table to count context switches of a task
-			for (int l = 0; l < nbLevels; l++) {
-				for (int s = 0; s < hPeriod; s++) {
-					if (s != 0) { // Check if task was running in the previous slot
-						boolean wasRunning = false;
-						boolean isRunning = false;
-						
-						for (int c = 0; c < nbCores; c++) {
-							if (sched[l][s][c].contains(a.getName())) {
-								isRunning = true;
-								break;
-							}
-						}
-						
-						for (int c = 0; c < nbCores; c++) {
-							if (sched[l][s - 1][c].contains(a.getName())) {
-								wasRunning = true;
-								break;
-							}
-						}
-						
-						if (!wasRunning && isRunning)
-							nbContSwitch++;	
-					}					
-				}
-			}
-			refs.put(a, nbContSwitch);
-		}
+		for (VertexScheduling a : refs.keySet())
+			switches[sched.getTaskId(a)] = counts.getContextSwitches(sched.getTaskId(a));
+		addCounts(sched, refs, switches);
 	}
 	
-	private static VertexScheduling lookForInList (List<VertexScheduling> listActors, String name) {
-		for (VertexScheduling a: listActors) {
-			if (a.getName().contentEquals(name))
-				return a;
-		}
-		return null;
+	/**
+	 * Method that counts the number of times jobs resume on another core for all tasks
+	 * @param sched
+	 * @param refs
+	 * @param nbLevels
+	 * @param hPeriod
+	 * @param nbCores
+	 */
+	public static void countMigrations (SchedulingTable sched, Hashtable<VertexScheduling, Integer> refs, int nbLevels, int hPeriod, int nbCores) {
+		TaskCounts counts = new TaskCounts(sched, nbLevels, hPeriod, nbCores);
+		int migrations[] = new int[sched.getNbTasks()];
+		
+		for (VertexScheduling a : refs.keySet())
+			migrations[sched.getTaskId(a)] = counts.getMigrations(sched.getTaskId(a));
+		addCounts(sched, refs, migrations);
 	}
 	
-	private static VertexScheduling lookForInKeys (Set<VertexScheduling> keys, String name) {
-		for (VertexScheduling a: keys) {
-			if (a.getName().contentEquals(name))
-				return a;
-		}
-		return null;
+	/**
+	 * Counts the number of times each task starts running on the tables.
+	 * Levels are read one after the other, a task running at the end of a level
+	 * and at the beginning of the next one is not counted twice.
+	 * @param sched
+	 * @param refs
+	 * @param levels
+	 * @param slots
+	 * @param nbCores
+	 */
+	private static void countStarts (SchedulingTable sched,
+									 Hashtable<VertexScheduling, Integer> refs,
+									 int levels, int slots, int nbCores) {
+		TaskCounts counts = new TaskCounts(sched, levels, slots, nbCores);
+		int starts[] = new int[sched.getNbTasks()];
+		
+		for (int i = 0; i < starts.length; i++)
+			starts[i] = counts.getStarts(i);
+		addCounts(sched, refs, starts);
 	}
 	
 	/**
@@ -101,53 +112,20 @@ public class Counters {
 	 * @param hPeriod
 	 * @param nbCores
 	 */
-	public static void countPreemptions (String sched[][][],
+	public static void countPreemptions (SchedulingTable sched,
 										 Hashtable<VertexScheduling, Integer> refs,
 										 int levels, int hPeriod, int nbCores) {
 		
 		Set<VertexScheduling> keys = refs.keySet();
-		List<VertexScheduling> runningPreviously = new LinkedList<>();
-				
-		for (int i = 0; i < levels; i++) {
-			for (int j = 0; j < hPeriod; j++) {
-				// Check if elements that were running in the previous slot are still running
-				Iterator<VertexScheduling> lit = runningPreviously.listIterator();
-				while (lit.hasNext()) {
-					boolean stillRunning = false;
-					VertexScheduling a = lit.next();
-					
-					for (int k = 0; k < nbCores; k++) {
-						if (sched[i][j][k].contentEquals(a.getName())) {
-							stillRunning = true;
-							break;
-						}
-					}
-					
-					if (!stillRunning)
-						lit.remove();	
-				}
-								
-				// Add new tasks that are scheduled + increment their preemption count
-				for (int k = 0; k < nbCores; k++) {
-					if (!sched[i][j][k].contentEquals("-") &&
-							lookForInList(runningPreviously, sched[i][j][k]) == null) {
-						VertexScheduling toAdd = lookForInKeys(keys, sched[i][j][k]);
-						int val = refs.get(toAdd);
-						val++;
-						refs.put(toAdd, val);
-						runningPreviously.add(toAdd);
-					}
-						
-				}
-			}
-		}
+		
+		countStarts(sched, refs, levels, hPeriod, nbCores);
 		
 		// Decrement the preemption count by the nb of activations
 		for (VertexScheduling a : keys) {
 			int nbActivations = 0;
 			for (int lvl = 0; lvl < levels; lvl++) {
 				if (a.getWcet(lvl) != 0)
-					nbActivations += (int)(hPeriod / a.getGraphDead());
+					nbActivations += hPeriod / a.getGraphDead();
 			}
 			int val = refs.get(a);
 			val -= nbActivations;
@@ -163,45 +141,72 @@ public class Counters {
 	 * @param hPeriod
 	 * @param nbCores
 	 */
-	public static void countPreemptions (String sched[][][],
+	public static void countPreemptions (SchedulingTable sched,
 										 Hashtable<VertexScheduling, Integer> refs,
 										 int levels, int hPeriod, int deadline, int nbCores) {
 		
+		countStarts(sched, refs, levels, deadline, nbCores);
+	}
+
+	/**
+	 * Method to count the number of preemptions for each task (String tables)
+	 * @param sched
+	 * @param refs
+	 * @param levels
+	 * @param hPeriod
+	 * @param nbCores
+	 */
+	public static void countPreemptions (String sched[][][],
+										 Hashtable<VertexScheduling, Integer> refs,
+										 int levels, int hPeriod, int nbCores) {
+		
 		Set<VertexScheduling> keys = refs.keySet();
-		List<VertexScheduling> runningPreviously = new LinkedList<>();
-				
+		// Names are resolved once, the table is then read by index
+		HashMap<String, Integer> index = new HashMap<String, Integer>();
+		VertexScheduling tasks[] = new VertexScheduling[keys.size()];
+		int lastRunning[] = new int[keys.size()];
+		int starts[] = new int[keys.size()];
+		int step = 0;
+		
+		for (VertexScheduling a : keys) {
+			if (!index.containsKey(a.getName())) {
+				tasks[index.size()] = a;
+				index.put(a.getName(), index.size());
+			}
+		}
+		Arrays.fill(lastRunning, -2);
+		
 		for (int i = 0; i < levels; i++) {
-			for (int j = 0; j < deadline; j++) {
-				// Check if elements that were running in the previous slot are still running
-				Iterator<VertexScheduling> lit = runningPreviously.listIterator();
-				while (lit.hasNext()) {
-					boolean stillRunning = false;
-					VertexScheduling a = lit.next();
-					
-					for (int k = 0; k < nbCores; k++) {
-						if (sched[i][j][k].contentEquals(a.getName())) {
-							stillRunning = true;
-							break;
-						}
-					}
-					
-					if (!stillRunning)
-						lit.remove();	
-				}
-								
-				// Add new tasks that are scheduled + increment their preemption count
+			for (int j = 0; j < hPeriod; j++) {
 				for (int k = 0; k < nbCores; k++) {
-					if (!sched[i][j][k].contentEquals("-") &&
-							lookForInList(runningPreviously, sched[i][j][k]) == null) {
-						VertexScheduling toAdd = lookForInKeys(keys, sched[i][j][k]);
-						int val = refs.get(toAdd);
-						val++;
-						refs.put(toAdd, val);
-						runningPreviously.add(toAdd);
+					Integer task = index.get(sched[i][j][k]);
+					
+					if (task != null) {
+						if (lastRunning[task] < step - 1)
+							starts[task]++;
+						lastRunning[task] = step;
 					}
-						
 				}
+				step++;
+			}
+		}
+		
+		for (int i = 0; i < index.size(); i++) {
+			int val = refs.get(tasks[i]);
+			val += starts[i];
+			refs.put(tasks[i], val);
+		}
+		
+		// Decrement the preemption count by the nb of activations
+		for (VertexScheduling a : keys) {
+			int nbActivations = 0;
+			for (int lvl = 0; lvl < levels; lvl++) {
+				if (a.getWcet(lvl) != 0)
+					nbActivations += hPeriod / a.getGraphDead();
 			}
+			int val = refs.get(a);
+			val -= nbActivations;
+			refs.put(a, val);
 		}
 	}
 }
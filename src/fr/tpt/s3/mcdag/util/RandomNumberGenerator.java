@@ -28,6 +28,15 @@ public class RandomNumberGenerator {
 		random = new MersenneTwister(new java.util.Date());
 		uniform = new Uniform(random);
 	}
+	
+	/**
+	 * Generator with a fixed seed, the same numbers are drawn on every run
+	 * @param seed
+	 */
+	public RandomNumberGenerator (int seed) {
+		random = new MersenneTwister(seed);
+		uniform = new Uniform(random);
+	}
 
 	/**
 	 * Returns a uniform integer between a lower and an upper bound
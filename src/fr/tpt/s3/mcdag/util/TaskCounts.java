@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Roberto Medina
+ * Written by Roberto Medina (rmedina@telecom-paristech.fr)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package fr.tpt.s3.mcdag.util;
+
+import fr.tpt.s3.mcdag.model.SchedulingSegments;
+import fr.tpt.s3.mcdag.model.SchedulingTable;
+import fr.tpt.s3.mcdag.model.VertexScheduling;
+
+/**
+ * Starts, preemptions, context switches and core migrations of each task of the tables,
+ * counted for all the levels in one pass over the segments of the tasks.
+ * A segment is a run of consecutive slots of a task on a core, so the cost is bounded
+ * by the size of the tables (levels x slots x cores) and is usually far below it.
+ * @author Roberto Medina
+ *
+ */
+public class TaskCounts {
+
+	private SchedulingTable sched;
+	private int levels;
+	private int slots;
+
+	// Task -> times the task starts running, levels are read one after the other
+	private int starts[];
+	// Level, task -> context switches and migrations inside a level
+	private int switches[][];
+	private int migrations[][];
+
+	/**
+	 * Counts the tasks of the first slots and cores of the tables
+	 * @param sched
+	 * @param levels
+	 * @param slots
+	 * @param nbCores
+	 */
+	public TaskCounts (SchedulingTable sched, int levels, int slots, int nbCores) {
+		this.sched = sched;
+		this.levels = levels;
+		this.slots = slots;
+		starts = new int[sched.getNbTasks()];
+		switches = new int[levels][sched.getNbTasks()];
+		migrations = new int[levels][sched.getNbTasks()];
+
+		count(sched.getSegments(), nbCores);
+	}
+
+	/**
+	 * A task running at the end of a level and at the beginning of the next one
+	 * does not start again. A context switch is a start inside a level, after its first slot.
+	 * A migration is a job running on another core than the one it left, preempted or not.
+	 * @param segments
+	 * @param nbCores
+	 */
+	private void count (SchedulingSegments segments, int nbCores) {
+		for (int task = 0; task < sched.getNbTasks(); task++) {
+			VertexScheduling v = sched.getTask(task);
+			int period = v != null && v.getGraphDead() > 0 ? v.getGraphDead() : slots;
+			// Last step in which the task was running
+			int lastRunning = -2;
+
+			for (int i = 0; i < levels; i++) {
+				// Last slot of the task in the level, core and job of its last segment
+				int lastSlot = -2;
+				int lastCore = -1;
+				int lastJob = -1;
+
+				for (int j = 0; j < segments.getNbTaskSegments(i, task); j++) {
+					int start = segments.getTaskStart(i, task, j);
+					int core = segments.getTaskCore(i, task, j);
+
+					if (start >= slots)
+						break;
+					else if (core >= nbCores)
+						continue;
+
+					int end = Math.min(start + segments.getTaskLength(i, task, j), slots) - 1;
+					int first = i * slots + start;
+
+					if (lastRunning < first - 1)
+						starts[task]++;
+					if (i * slots + end > lastRunning)
+						lastRunning = i * slots + end;
+
+					if (lastSlot < start - 1 && start > 0)
+						switches[i][task]++;
+					if (lastJob == start / period && lastCore != core)
+						migrations[i][task]++;
+					if (end > lastSlot) {
+						lastSlot = end;
+						lastCore = core;
+						lastJob = start / period;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of jobs of a task in the tables: one per period in each level it runs
+	 * @param task
+	 * @return
+	 */
+	public int getActivations (int task) {
+		VertexScheduling v = sched.getTask(task);
+		int ret = 0;
+
+		for (int i = 0; i < levels; i++) {
+			if (v.getWcet(i) != 0)
+				ret += slots / v.getGraphDead();
+		}
+		return ret;
+	}
+
+	/**
+	 * Starts of a task that are not the activation of a job
+	 * @param task
+	 * @return
+	 */
+	public int getPreemptions (int task) {
+		return starts[task] - getActivations(task);
+	}
+
+	public int getStarts (int task) {
+		return starts[task];
+	}
+
+	public int getContextSwitches (int level, int task) {
+		return switches[level][task];
+	}
+
+	public int getContextSwitches (int task) {
+		int ret = 0;
+
+		for (int i = 0; i < levels; i++)
+			ret += switches[i][task];
+		return ret;
+	}
+
+	public int getMigrations (int level, int task) {
+		return migrations[level][task];
+	}
+
+	public int getMigrations (int task) {
+		int ret = 0;
+
+		for (int i = 0; i < levels; i++)
+			ret += migrations[i][task];
+		return ret;
+	}
+
+	public SchedulingTable getSched() {
+		return sched;
+	}
+}